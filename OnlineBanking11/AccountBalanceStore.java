@@ -0,0 +1,193 @@
+/*
+ * Online Banking System - Account Balance Store
+ */
+package banking.management.system;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Materialized per-account balance kept in the account_balance table.
+ * Every ledger write adjusts the stored balance in the same transaction as the
+ * bank insert, so reading a balance is a single primary-key lookup instead of
+ * a scan over the account's whole history. An index on balance serves the
+ * low-balance sweep as a range scan; it costs one index entry move per write.
+ */
+public final class AccountBalanceStore {
+
+    private static final Logger LOGGER = Logger.getLogger(AccountBalanceStore.class.getName());
+
+    static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS account_balance (" +
+            "Account_No VARCHAR(30) NOT NULL PRIMARY KEY, " +
+            "balance DECIMAL(19,2) NOT NULL, " +
+            "updated_at TIMESTAMP NOT NULL)";
+    private static final String BALANCE_INDEX = "idx_account_balance_balance";
+
+    /** Signed sum of an account's ledger rows in minor units; credits add, everything else subtracts */
+    static final String LEDGER_SUM_SQL =
+            "SELECT COALESCE(SUM(" + LedgerSchema.SIGNED_AMOUNT_MINOR + "), 0) FROM bank WHERE Account_No = ?";
+
+    private AccountBalanceStore() {
+    }
+
+    /**
+     * Creates the account_balance table and its balance index if they do not exist yet
+     * @param connection Open database connection
+     * @throws SQLException if the DDL fails
+     */
+    public static void ensureTable(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate(CREATE_TABLE);
+            if (!LedgerSchema.existingIndexes(connection, "account_balance").contains(BALANCE_INDEX)) {
+                // The primary key rides along in the index, so the sweep never reads the table
+                st.executeUpdate("CREATE INDEX " + BALANCE_INDEX + " ON account_balance (balance)");
+            }
+        }
+    }
+
+    /**
+     * Checks whether a ledger row type increases the balance
+     * @param type Ledger row type
+     * @return true for Deposit and Transfer-In
+     */
+    public static boolean isCredit(String type) {
+        return "Deposit".equals(type) || "Transfer-In".equals(type);
+    }
+
+    /**
+     * Applies a balance change. Must be called on the connection (and inside the
+     * transaction) that inserted the matching bank row. The first write for an
+     * account seeds the row from the ledger, which already includes the new row.
+     * @param connection Connection holding the ledger transaction
+     * @param accountNo Account number
+     * @param delta Signed balance change in minor units
+     * @throws SQLException if the update fails
+     */
+    public static void applyDelta(Connection connection, String accountNo, long delta) throws SQLException {
+        if (updateBalance(connection, accountNo, delta) > 0) {
+            return;
+        }
+
+        String seed = "INSERT IGNORE INTO account_balance (Account_No, balance, updated_at) " +
+                      "SELECT ?, CAST(COALESCE(SUM(" + LedgerSchema.SIGNED_AMOUNT_MINOR + "), 0) AS DECIMAL(19, 2)) / 100, NOW() " +
+                      "FROM bank WHERE Account_No = ?";
+        try (PreparedStatement ps = connection.prepareStatement(seed)) {
+            ps.setString(1, accountNo);
+            ps.setString(2, accountNo);
+            if (ps.executeUpdate() > 0) {
+                return;
+            }
+        }
+
+        // Another writer seeded the row concurrently; it did not see our row, so add the delta
+        updateBalance(connection, accountNo, delta);
+    }
+
+    /**
+     * Applies balance changes for several accounts with one batched UPDATE.
+     * Accounts without a balance row yet are seeded individually.
+     * @param connection Connection holding the ledger transaction
+     * @param deltas Signed balance change per account in minor units
+     * @throws SQLException if the update fails
+     */
+    public static void applyDeltas(Connection connection, Map<String, Long> deltas) throws SQLException {
+        List<String> accounts = new ArrayList<>(deltas.keySet());
+        int[] counts;
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE account_balance SET balance = balance + ?, updated_at = NOW() WHERE Account_No = ?")) {
+            for (String accountNo : accounts) {
+                ps.setBigDecimal(1, BigDecimal.valueOf(deltas.get(accountNo), Money.SCALE));
+                ps.setString(2, accountNo);
+                ps.addBatch();
+            }
+            counts = ps.executeBatch();
+        }
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                applyDelta(connection, accounts.get(i), deltas.get(accounts.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Reads the maintained balance of an account. Accounts that have never been
+     * written since the table was introduced are seeded from the ledger once.
+     * @param connection Open database connection
+     * @param accountNo Account number
+     * @return Current balance
+     * @throws SQLException if the lookup fails
+     */
+    public static Money getBalance(Connection connection, String accountNo) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT balance FROM account_balance WHERE Account_No = ?")) {
+            ps.setString(1, accountNo);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return Money.of(rs.getBigDecimal(1));
+                }
+            }
+        }
+
+        Money balance = computeFromLedger(connection, accountNo);
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT IGNORE INTO account_balance (Account_No, balance, updated_at) VALUES (?, ?, NOW())")) {
+            ps.setString(1, accountNo);
+            ps.setBigDecimal(2, balance.toBigDecimal());
+            ps.executeUpdate();
+        }
+        LOGGER.info("Seeded account_balance from ledger for account: " + accountNo);
+        return balance;
+    }
+
+    /**
+     * Recomputes an account balance from the full ledger (O(history))
+     * @param connection Open database connection
+     * @param accountNo Account number
+     * @return Balance derived from the bank table
+     * @throws SQLException if the query fails
+     */
+    public static Money computeFromLedger(Connection connection, String accountNo) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(LEDGER_SUM_SQL)) {
+            ps.setString(1, accountNo);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? Money.ofMinor(rs.getLong(1)) : Money.ZERO;
+            }
+        }
+    }
+
+    /**
+     * Overwrites the stored balance, used by the reconciler to repair drift
+     * @param connection Open database connection
+     * @param accountNo Account number
+     * @param balance Correct balance
+     * @throws SQLException if the update fails
+     */
+    static void setBalance(Connection connection, String accountNo, Money balance) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO account_balance (Account_No, balance, updated_at) VALUES (?, ?, NOW()) " +
+                "ON DUPLICATE KEY UPDATE balance = VALUES(balance), updated_at = NOW()")) {
+            ps.setString(1, accountNo);
+            ps.setBigDecimal(2, balance.toBigDecimal());
+            ps.executeUpdate();
+        }
+    }
+
+    private static int updateBalance(Connection connection, String accountNo, long delta) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE account_balance SET balance = balance + ?, updated_at = NOW() WHERE Account_No = ?")) {
+            ps.setBigDecimal(1, BigDecimal.valueOf(delta, Money.SCALE));
+            ps.setString(2, accountNo);
+            return ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Online Banking System - Account Numbers
+ */
+package banking.management.system;
+
+import java.security.SecureRandom;
+import java.sql.SQLException;
+
+/**
+ * Issues the numbers a new customer receives at signup. Account and form
+ * numbers come from {@link SequenceAllocator}s, so they are unique without
+ * relying on a constraint failure, and PINs come from a SecureRandom.
+ *
+ * An account number is the five-digit prefix, the eight-digit sequence value
+ * and a Luhn check digit, fourteen digits like the numbers issued before. The
+ * default prefix 35407 lies outside the range the old random numbers were
+ * drawn from (35405910000001 to 35406089999999), so the two never collide.
+ * Form numbers start at 1000000, above every old six-digit form number.
+ *
+ * Settings: banking.accounts.prefix (default 35407) and
+ * banking.accounts.blockSize (default 1000).
+ */
+public final class AccountNumbers {
+
+    static final String ACCOUNT_SEQUENCE = "account_no";
+    static final String FORM_SEQUENCE = "form_no";
+    static final long FIRST_FORM_NUMBER = 1_000_000L;
+    private static final long MAX_ACCOUNT_SEQUENCE = 99_999_999L;
+
+    private static final String PREFIX = System.getProperty("banking.accounts.prefix", "35407");
+    private static final int BLOCK_SIZE = Integer.getInteger("banking.accounts.blockSize", 1_000);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static volatile SequenceAllocator accounts;
+    private static volatile SequenceAllocator forms;
+
+    private AccountNumbers() {
+    }
+
+    /**
+     * @return A new account number with its check digit
+     * @throws SQLException if a block of numbers cannot be reserved
+     */
+    public static String newAccountNumber() throws SQLException {
+        return accountNumber(PREFIX, accountSequence().next());
+    }
+
+    /**
+     * @return A new application form number
+     * @throws SQLException if a block of numbers cannot be reserved
+     */
+    public static long newFormNumber() throws SQLException {
+        return formSequence().next();
+    }
+
+    /**
+     * @return A six-digit PIN from a SecureRandom
+     */
+    public static String newPin() {
+        return Integer.toString(100_000 + RANDOM.nextInt(900_000));
+    }
+
+    /**
+     * Formats an account number
+     * @param prefix Five-digit prefix
+     * @param sequence Sequence value, at most eight digits
+     * @return Prefix, zero-padded sequence and check digit
+     */
+    static String accountNumber(String prefix, long sequence) {
+        if (sequence < 0 || sequence > MAX_ACCOUNT_SEQUENCE) {
+            throw new IllegalStateException("Account number sequence exhausted for prefix " + prefix + ": " + sequence);
+        }
+        String digits = Long.toString(sequence);
+        StringBuilder number = new StringBuilder(prefix.length() + 9).append(prefix);
+        for (int i = digits.length(); i < 8; i++) {
+            number.append('0');
+        }
+        number.append(digits);
+        return number.append(checkDigit(number)).toString();
+    }
+
+    /**
+     * @param accountNo Account number
+     * @return True if the number is fourteen digits and its last digit is the Luhn check digit of the rest
+     */
+    public static boolean hasValidCheckDigit(String accountNo) {
+        if (accountNo == null || accountNo.length() != 14) {
+            return false;
+        }
+        for (int i = 0; i < accountNo.length(); i++) {
+            if (!Character.isDigit(accountNo.charAt(i))) {
+                return false;
+            }
+        }
+        return checkDigit(accountNo.subSequence(0, 13)) == accountNo.charAt(13) - '0';
+    }
+
+    /**
+     * @param digits Number without its check digit
+     * @return Luhn check digit, catching every single-digit error and most adjacent transpositions
+     */
+    static int checkDigit(CharSequence digits) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int digit = digits.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    private static SequenceAllocator accountSequence() {
+        SequenceAllocator result = accounts;
+        if (result == null) {
+            synchronized (AccountNumbers.class) {
+                result = accounts;
+                if (result == null) {
+                    accounts = result = new SequenceAllocator(ACCOUNT_SEQUENCE + "_" + PREFIX, BLOCK_SIZE, 0);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static SequenceAllocator formSequence() {
+        SequenceAllocator result = forms;
+        if (result == null) {
+            synchronized (AccountNumbers.class) {
+                result = forms;
+                if (result == null) {
+                    forms = result = new SequenceAllocator(FORM_SEQUENCE, BLOCK_SIZE, FIRST_FORM_NUMBER);
+                }
+            }
+        }
+        return result;
+    }
+}
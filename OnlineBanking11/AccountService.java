@@ -0,0 +1,151 @@
+/*
+ * Online Banking System - Account Service
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Headless account operations: balance lookup and deposits. Used by the Swing
+ * screens and the HTTP API alike, so it holds no UI state and no per-user
+ * fields. Instances are stateless and safe to share between threads.
+ * With banking.ledger.mode=journal both go to the in-memory JournalLedger.
+ * Otherwise balances are cached per account; every writer in this process
+ * drops the entries of the accounts it wrote right after its commit, and the
+ * TTL bounds staleness from writes made by other processes.
+ */
+public class AccountService {
+
+    // Shared by every service instance; bounded, expiring and single-flight per account
+    private static final ConcurrentLruCache<String, Money> BALANCE_CACHE = new ConcurrentLruCache<>("account.balances",
+            Integer.getInteger("banking.balance.cache.maxSize", 100_000),
+            Long.getLong("banking.balance.cache.ttlMillis", 60_000L));
+
+    private final JournalLedger journal;
+    private final LatencyHistogram depositLatency = new LatencyHistogram("account.deposit");
+    private final LatencyHistogram balanceLatency = new LatencyHistogram("account.balance");
+
+    public AccountService() {
+        this(JournalLedger.fromSystemProperties());
+        OutboxRelay.startFromSystemProperties();
+    }
+
+    /**
+     * @param journal Journal ledger to use, or null to read and write the SQL ledger directly
+     */
+    public AccountService(JournalLedger journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @param accountNo Account number
+     * @return Current balance from the maintained balance table or the journal ledger
+     * @throws SQLException if the lookup fails
+     */
+    public Money getBalance(String accountNo) throws SQLException {
+        long start = System.nanoTime();
+        if (journal != null) {
+            try {
+                return journal.getBalance(accountNo);
+            } finally {
+                balanceLatency.recordSince(start);
+            }
+        }
+        try {
+            return BALANCE_CACHE.get(accountNo, AccountService::loadBalance);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof SQLException ? (SQLException) e.getCause() : new SQLException(e.getCause());
+        } finally {
+            balanceLatency.recordSince(start);
+        }
+    }
+
+    private static Money loadBalance(String accountNo) throws SQLException {
+        try (Connection connection = ConnectionPool.borrow()) {
+            return AccountBalanceStore.getBalance(connection, accountNo);
+        }
+    }
+
+    /**
+     * Writes a deposit to the ledger; the ledger row and the balance update commit together
+     * @param pin PIN entered by the account holder, empty for API callers; not written to the ledger
+     * @param accountNo Account to credit
+     * @param amount Amount to deposit
+     * @return Reference of the deposit
+     * @throws IllegalArgumentException if the amount is not positive
+     * @throws SQLException if the write fails
+     */
+    public String deposit(String pin, String accountNo, Money amount) throws SQLException {
+        if (amount == null || !amount.isPositive()) {
+            throw new IllegalArgumentException("Please enter a valid amount");
+        }
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+        String reference = newReference();
+
+        long start = System.nanoTime();
+        if (journal != null) {
+            Money balance;
+            try {
+                balance = journal.deposit(accountNo, amount, timestamp, reference);
+            } finally {
+                depositLatency.recordSince(start);
+            }
+            LedgerEventBus.getInstance().publish("Deposit", accountNo, amount.getMinorUnits(), balance.getMinorUnits(),
+                    reference, timestamp);
+            return reference;
+        }
+        try (Connection connection = ConnectionPool.borrow()) {
+            connection.setAutoCommit(false);
+            try {
+                LedgerWriter.append(connection, accountNo, timestamp, "Deposit", amount, "", reference);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            depositLatency.recordSince(start);
+        }
+        invalidateBalance(accountNo);
+        LedgerEventBus.getInstance().publish("Deposit", accountNo, amount.getMinorUnits(), LedgerEvent.UNKNOWN_BALANCE,
+                reference, timestamp);
+        return reference;
+    }
+
+    /**
+     * Drops the cached balance of an account so the next lookup reads it again
+     * @param accountNo Account number
+     */
+    public static void invalidateBalance(String accountNo) {
+        BALANCE_CACHE.invalidate(accountNo);
+    }
+
+    /**
+     * @return Hit and miss counts of the shared balance cache
+     */
+    public static String cacheMetricsSummary() {
+        return BALANCE_CACHE.toString();
+    }
+
+    /**
+     * @return Unique deposit reference
+     */
+    static String newReference() {
+        return "DEP" + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+
+    public LatencyHistogram getDepositLatency() {
+        return depositLatency;
+    }
+
+    public LatencyHistogram getBalanceLatency() {
+        return balanceLatency;
+    }
+}
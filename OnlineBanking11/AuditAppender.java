@@ -0,0 +1,300 @@
+/*
+ * Online Banking System - Audit Appender
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes audit rows (login_activity, security_audit, notification_log) off the
+ * request path. Callers append to a lock-free MPSC ring buffer and return at
+ * once; a single writer thread drains it and inserts the rows with one
+ * executeBatch per table, in one transaction, whenever a batch is full or the
+ * oldest row has waited for the flush interval. Each row's time is taken when
+ * it is appended. On shutdown the buffer is drained before the writer exits.
+ *
+ * Settings: banking.audit.capacity (default 16384), banking.audit.batchSize (256),
+ * banking.audit.flushMillis (200), banking.audit.policy DROP or BLOCK (DROP),
+ * banking.audit.blockTimeoutMillis (1000).
+ */
+public final class AuditAppender {
+
+    private static final Logger LOGGER = Logger.getLogger(AuditAppender.class.getName());
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    private static volatile AuditAppender instance;
+
+    /**
+     * What append does when the buffer is full
+     */
+    public enum OverflowPolicy {
+        /** Drop the row and count it */
+        DROP,
+        /** Wait up to blockTimeoutMillis for space, then drop */
+        BLOCK
+    }
+
+    /**
+     * Audit tables and their column order
+     */
+    public enum Table {
+        LOGIN_ACTIVITY("INSERT INTO login_activity (account_no, login_time, success, ip_address) VALUES (?, ?, ?, ?)"),
+        SECURITY_AUDIT("INSERT INTO security_audit (account_no, action, details, success, timestamp) VALUES (?, ?, ?, ?, ?)"),
+        NOTIFICATION_LOG("INSERT INTO notification_log (account_no, notification_type, message, success, timestamp) " +
+                         "VALUES (?, ?, ?, ?, ?)");
+
+        private final String insert;
+
+        Table(String insert) {
+            this.insert = insert;
+        }
+    }
+
+    /**
+     * One row waiting to be written
+     */
+    private static final class Row {
+        private final Table table;
+        private final Object[] values;
+
+        Row(Table table, Object[] values) {
+            this.table = table;
+            this.values = values;
+        }
+    }
+
+    private final MpscRingBuffer<Row> buffer;
+    private final int batchSize;
+    private final long flushNanos;
+    private final OverflowPolicy policy;
+    private final long blockTimeoutNanos;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LatencyHistogram batchLatency = new LatencyHistogram("audit.batch");
+
+    /**
+     * @param capacity Buffer slots, rounded up to a power of two
+     * @param batchSize Rows per executeBatch
+     * @param flushMillis Longest time a row waits for its batch to fill
+     * @param policy What to do when the buffer is full
+     * @param blockTimeoutMillis How long BLOCK waits for space
+     */
+    AuditAppender(int capacity, int batchSize, long flushMillis, OverflowPolicy policy, long blockTimeoutMillis) {
+        this.buffer = new MpscRingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        this.policy = policy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+        this.writer = new Thread(this::run, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return The process-wide appender, created on first use from system properties
+     */
+    public static AuditAppender getInstance() {
+        AuditAppender result = instance;
+        if (result == null) {
+            synchronized (AuditAppender.class) {
+                result = instance;
+                if (result == null) {
+                    instance = result = new AuditAppender(
+                            Integer.getInteger("banking.audit.capacity", 16_384),
+                            Integer.getInteger("banking.audit.batchSize", 256),
+                            Long.getLong("banking.audit.flushMillis", 200),
+                            OverflowPolicy.valueOf(System.getProperty("banking.audit.policy", "DROP").toUpperCase()),
+                            Long.getLong("banking.audit.blockTimeoutMillis", 1_000));
+                    final AuditAppender created = result;
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> created.shutdown(5_000), "audit-shutdown"));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Queues a login_activity row
+     * @param accountNo Account number
+     * @param success Whether the login succeeded
+     * @param ipAddress Address the attempt came from
+     * @return true if queued, false if dropped
+     */
+    public boolean appendLoginActivity(String accountNo, boolean success, String ipAddress) {
+        return append(Table.LOGIN_ACTIVITY, accountNo, now(), success, ipAddress);
+    }
+
+    /**
+     * Queues a security_audit row
+     * @param accountNo Account number
+     * @param action Audited action
+     * @param details Free-text details
+     * @param success Whether the action succeeded
+     * @return true if queued, false if dropped
+     */
+    public boolean appendSecurityEvent(String accountNo, String action, String details, boolean success) {
+        return append(Table.SECURITY_AUDIT, accountNo, action, details, success, now());
+    }
+
+    /**
+     * Queues a notification_log row
+     * @param accountNo Account number
+     * @param notificationType Notification type
+     * @param message Message sent
+     * @param success Whether it was delivered
+     * @return true if queued, false if dropped
+     */
+    public boolean appendNotification(String accountNo, String notificationType, String message, boolean success) {
+        return append(Table.NOTIFICATION_LOG, accountNo, notificationType, message, success, now());
+    }
+
+    /**
+     * Queues a row
+     * @param table Target table
+     * @param values Column values in the table's insert order
+     * @return true if queued, false if dropped
+     */
+    public boolean append(Table table, Object... values) {
+        Row row = new Row(table, values);
+        if (running && offer(row)) {
+            appended.increment();
+            return true;
+        }
+        dropped.increment();
+        LOGGER.fine("Audit buffer full, dropped " + table + " row");
+        return false;
+    }
+
+    /**
+     * @return Rows waiting to be written
+     */
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    /**
+     * Stops accepting rows and waits for the writer to drain the buffer
+     * @param timeoutMillis Maximum time to wait
+     */
+    public void shutdown(long timeoutMillis) {
+        running = false;
+        try {
+            writer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            LOGGER.warning("Audit writer did not drain in " + timeoutMillis + " ms: " + this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AuditAppender{depth=" + buffer.size() + ", appended=" + appended.sum() +
+               ", written=" + written.sum() + ", dropped=" + dropped.sum() +
+               ", failed=" + failed.sum() + ", " + batchLatency + "}";
+    }
+
+    private boolean offer(Row row) {
+        if (buffer.offer(row)) {
+            return true;
+        }
+        if (policy == OverflowPolicy.DROP) {
+            return false;
+        }
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+        while (System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            if (buffer.offer(row)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Timestamp now() {
+        return new Timestamp(System.currentTimeMillis());
+    }
+
+    private void run() {
+        List<Row> batch = new ArrayList<>(batchSize);
+        long batchStarted = 0;
+        while (true) {
+            boolean stopping = !running;
+            buffer.drainTo(batch, batchSize - batch.size());
+            if (batch.isEmpty()) {
+                if (stopping && buffer.isEmpty()) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            if (batchStarted == 0) {
+                batchStarted = System.nanoTime();
+            }
+            if (batch.size() >= batchSize || stopping || System.nanoTime() - batchStarted >= flushNanos) {
+                write(batch);
+                batch.clear();
+                batchStarted = 0;
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void write(List<Row> batch) {
+        Map<Table, List<Row>> byTable = new EnumMap<>(Table.class);
+        for (Row row : batch) {
+            byTable.computeIfAbsent(row.table, t -> new ArrayList<>()).add(row);
+        }
+
+        long start = System.nanoTime();
+        for (int attempt = 1; ; attempt++) {
+            try (Connection connection = ConnectionPool.borrow()) {
+                connection.setAutoCommit(false);
+                for (Map.Entry<Table, List<Row>> entry : byTable.entrySet()) {
+                    try (PreparedStatement ps = connection.prepareStatement(entry.getKey().insert)) {
+                        for (Row row : entry.getValue()) {
+                            for (int i = 0; i < row.values.length; i++) {
+                                ps.setObject(i + 1, row.values[i]);
+                            }
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }
+                connection.commit();
+                written.add(batch.size());
+                break;
+            } catch (SQLException e) {
+                if (attempt >= MAX_WRITE_ATTEMPTS) {
+                    failed.add(batch.size());
+                    LOGGER.log(Level.WARNING, "Failed to write " + batch.size() + " audit rows", e);
+                    break;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100L * attempt));
+            }
+        }
+        batchLatency.recordSince(start);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Online Banking System - Authentication Service
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Headless login check shared by the login screen and the HTTP API: the
+ * throttle, one credential query that also returns the role, and an audit row
+ * handed to the background writer. Holds no session state and shows no
+ * dialogs. Safe to share between threads.
+ */
+public class AuthenticationService {
+
+    private static final Logger LOGGER = Logger.getLogger(AuthenticationService.class.getName());
+    private static final LatencyHistogram LOGIN_LATENCY = new LatencyHistogram("login.authenticate");
+
+    private final LoginThrottle throttle;
+
+    public AuthenticationService() {
+        this(LoginThrottle.getInstance());
+    }
+
+    /**
+     * @param throttle Throttle for failed attempts
+     */
+    AuthenticationService(LoginThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    /**
+     * Authenticates a user and resolves their role in a single query.
+     * The attempt is written to login_activity asynchronously.
+     * @param accountNo the account number
+     * @param password the password
+     * @param ipAddress the address the attempt came from, or null if unknown
+     * @return the principal, which is rejected or locked if login failed
+     */
+    public LoginPrincipal authenticate(String accountNo, String password, String ipAddress) {
+        long start = System.nanoTime();
+        try {
+            // Turn away accounts and addresses with too many recent failures before querying
+            if (throttle.isBlocked(accountNo, ipAddress)) {
+                LOGGER.warning("Login throttled for account " + accountNo + (ipAddress != null ? " from " + ipAddress : ""));
+                return LoginPrincipal.locked(accountNo);
+            }
+
+            LoginPrincipal principal;
+            try (Connection connection = ConnectionPool.borrow()) {
+                principal = CredentialStore.authenticate(connection, accountNo, password);
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "Login authentication error", e);
+                return LoginPrincipal.rejected(accountNo);
+            }
+
+            if (principal.isAuthenticated()) {
+                throttle.recordSuccess(accountNo);
+            } else {
+                throttle.recordFailure(accountNo, ipAddress);
+            }
+            AuditAppender.getInstance().appendLoginActivity(accountNo, principal.isAuthenticated(), ipAddress);
+            return principal;
+        } finally {
+            LOGIN_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * @return Latency of authenticate() calls in this process
+     */
+    public static LatencyHistogram getLoginLatency() {
+        return LOGIN_LATENCY;
+    }
+}
@@ -60,19 +60,9 @@ class BalanceEnquiry extends JFrame implements ActionListener {
         back.setForeground(Color.WHITE);
         add(back);
         
-         ConnectionSql c = new ConnectionSql();
-         int balance1 = 0;
-        try{
-           
-            ResultSet rs = c.s.executeQuery("select * from bank where Login_Password = '" + pin + "' and Account_No = '" + Accountno + "'");
-            
-            while (rs.next()) {
-                if (rs.getString("type").equals("Deposit")) {
-                    balance1 += Integer.parseInt(rs.getString("amount"));
-                } else {
-                    balance1 -= Integer.parseInt(rs.getString("amount"));
-                }
-            }
+         Money balance1 = Money.ZERO;
+        try {
+            balance1 = new AccountService().getBalance(Accountno);
         }catch(Exception e){
        System.out.println(e);
         }
@@ -0,0 +1,139 @@
+/*
+ * Online Banking System - Balance Reconciler
+ */
+package banking.management.system;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reconciliation job that recomputes every account balance from the bank ledger
+ * and compares it with the maintained account_balance table.
+ * Run with "--repair" to overwrite drifted balances with the ledger value.
+ */
+public class BalanceReconciler implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(BalanceReconciler.class.getName());
+    private final boolean repair;
+
+    /**
+     * Drift between the ledger and the stored balance of one account
+     */
+    public static class Drift {
+        private final String accountNo;
+        private final Money ledgerBalance;
+        private final Money storedBalance;
+        private final boolean missing;
+
+        Drift(String accountNo, Money ledgerBalance, Money storedBalance, boolean missing) {
+            this.accountNo = accountNo;
+            this.ledgerBalance = ledgerBalance;
+            this.storedBalance = storedBalance;
+            this.missing = missing;
+        }
+
+        public String getAccountNo() {
+            return accountNo;
+        }
+
+        public Money getLedgerBalance() {
+            return ledgerBalance;
+        }
+
+        public Money getStoredBalance() {
+            return storedBalance;
+        }
+
+        public boolean isMissing() {
+            return missing;
+        }
+
+        @Override
+        public String toString() {
+            return accountNo + ": ledger=" + ledgerBalance +
+                   (missing ? ", stored=<missing>" : ", stored=" + storedBalance);
+        }
+    }
+
+    /**
+     * @param repair true to fix drifted balances, false to only report them
+     */
+    public BalanceReconciler(boolean repair) {
+        this.repair = repair;
+    }
+
+    /**
+     * Recomputes all balances in one grouped pass over the ledger. Both sides are
+     * compared exactly in minor units, so any difference of a paisa is drift.
+     * @param connection Open database connection
+     * @return Accounts whose stored balance differs from the ledger
+     * @throws SQLException if the query or repair fails
+     */
+    public List<Drift> reconcile(Connection connection) throws SQLException {
+        String query = "SELECT l.Account_No, l.ledger_balance, ab.balance FROM (" +
+                       "SELECT Account_No, SUM(" + LedgerSchema.SIGNED_AMOUNT_MINOR + ") AS ledger_balance " +
+                       "FROM bank GROUP BY Account_No) l " +
+                       "LEFT JOIN account_balance ab ON ab.Account_No = l.Account_No";
+
+        List<Drift> drifts = new ArrayList<>();
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(query)) {
+            while (rs.next()) {
+                String accountNo = rs.getString(1);
+                Money ledgerBalance = Money.ofMinor(rs.getLong(2));
+                BigDecimal stored = rs.getBigDecimal(3);
+                boolean missing = stored == null;
+                Money storedBalance = missing ? Money.ZERO : Money.of(stored);
+
+                if (missing || !ledgerBalance.equals(storedBalance)) {
+                    drifts.add(new Drift(accountNo, ledgerBalance, storedBalance, missing));
+                }
+            }
+        }
+
+        if (repair) {
+            for (Drift drift : drifts) {
+                AccountBalanceStore.setBalance(connection, drift.getAccountNo(), drift.getLedgerBalance());
+                AccountService.invalidateBalance(drift.getAccountNo());
+            }
+        }
+        return drifts;
+    }
+
+    /**
+     * Runs one reconciliation pass and logs any drift found
+     */
+    @Override
+    public void run() {
+        try (Connection connection = ConnectionPool.borrow()) {
+            AccountBalanceStore.ensureTable(connection);
+            List<Drift> drifts = reconcile(connection);
+
+            if (drifts.isEmpty()) {
+                LOGGER.info("Balance reconciliation complete: no drift");
+            } else {
+                for (Drift drift : drifts) {
+                    LOGGER.warning("Balance drift " + (repair ? "repaired" : "detected") + " - " + drift);
+                }
+                LOGGER.warning("Balance reconciliation complete: " + drifts.size() + " account(s) drifted");
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Balance reconciliation failed", e);
+        }
+    }
+
+    /**
+     * Entry point for running the job from a scheduler
+     * @param args "--repair" to overwrite drifted balances
+     */
+    public static void main(String[] args) {
+        boolean repair = args.length > 0 && "--repair".equals(args[0]);
+        new BalanceReconciler(repair).run();
+    }
+}
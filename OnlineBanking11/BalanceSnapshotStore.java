@@ -0,0 +1,294 @@
+/*
+ * Online Banking System - Balance Snapshot Store
+ */
+package banking.management.system;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * End-of-day closing balances per account in the account_balance_snapshot table.
+ * A snapshot is written for every account with ledger activity on a day, so the
+ * latest snapshot before a date is the account's balance at that point and the
+ * balance at any moment is that snapshot plus the rows since. History views and
+ * statements use this for their opening balance instead of summing the whole
+ * history before the period.
+ *
+ * Snapshots are built incrementally, one complete day at a time, from the day
+ * after the newest snapshot; each day costs one range scan over that day's rows
+ * and one indexed lookup per active account. Rebuilding a day replaces it, so a
+ * run can be repeated safely. Rows can still land on a day that is already
+ * snapshotted (journal projector lag, transfers committed around midnight), so
+ * every run also rebuilds the newest few snapshotted days. An older correction
+ * needs a run from its day: pass that day to {@link #main(String[])}, which
+ * otherwise runs shortly after midnight.
+ *
+ * Settings: banking.snapshot.rebuildDays (default 3).
+ */
+public final class BalanceSnapshotStore {
+
+    private static final Logger LOGGER = Logger.getLogger(BalanceSnapshotStore.class.getName());
+
+    static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS account_balance_snapshot (" +
+            "Account_No VARCHAR(30) NOT NULL, " +
+            "snapshot_date DATE NOT NULL, " +
+            "closing_balance DECIMAL(19,2) NOT NULL, " +
+            "PRIMARY KEY (Account_No, snapshot_date))";
+
+    private static final int LOOKUP_CHUNK = 500;
+    static final int DEFAULT_REBUILD_DAYS = 3;
+
+    private BalanceSnapshotStore() {
+    }
+
+    /**
+     * Creates the snapshot table if it does not exist yet
+     * @param connection Open database connection
+     * @throws SQLException if the DDL fails
+     */
+    public static void ensureTable(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate(CREATE_TABLE);
+        }
+    }
+
+    /**
+     * Balance of an account just before a point in time: the latest snapshot of an
+     * earlier day plus the ledger rows between that day and the point
+     * @param connection Open database connection
+     * @param accountNo Account number
+     * @param before Exclusive bound (yyyy-MM-dd or yyyy-MM-dd HH:mm:ss), or null for the start of history
+     * @return Balance before the bound
+     * @throws SQLException if a query fails
+     */
+    public static Money balanceBefore(Connection connection, String accountNo, String before) throws SQLException {
+        if (before == null) {
+            return Money.ZERO;
+        }
+        LocalDate day = LocalDate.parse(before.substring(0, 10));
+        Money balance = Money.ZERO;
+        String from = null;
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT snapshot_date, closing_balance FROM account_balance_snapshot " +
+                "WHERE Account_No = ? AND snapshot_date < ? ORDER BY snapshot_date DESC LIMIT 1")) {
+            ps.setString(1, accountNo);
+            ps.setDate(2, Date.valueOf(day));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    from = startOf(rs.getDate(1).toLocalDate().plusDays(1));
+                    balance = Money.of(rs.getBigDecimal(2));
+                }
+            }
+        }
+
+        String sql = "SELECT COALESCE(SUM(" + LedgerSchema.SIGNED_AMOUNT_MINOR + "), 0) FROM bank WHERE Account_No = ?" +
+                     (from != null ? " AND date >= ?" : "") + " AND date < ?";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int i = 1;
+            ps.setString(i++, accountNo);
+            if (from != null) {
+                ps.setString(i++, from);
+            }
+            ps.setString(i, before);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return balance.plus(Money.ofMinor(rs.getLong(1)));
+            }
+        }
+    }
+
+    /**
+     * Builds snapshots for every day after the newest one, up to and including
+     * lastDay, and rebuilds the newest banking.snapshot.rebuildDays days already built
+     * @param connection Open database connection
+     * @param lastDay Last complete day to snapshot
+     * @return Snapshots written
+     * @throws SQLException if a query fails; days already built stay committed
+     */
+    public static int buildThrough(Connection connection, LocalDate lastDay) throws SQLException {
+        return buildThrough(connection, lastDay, Integer.getInteger("banking.snapshot.rebuildDays", DEFAULT_REBUILD_DAYS));
+    }
+
+    /**
+     * Builds snapshots for every day after the newest one, up to and including
+     * lastDay, and rebuilds the newest days already built
+     * @param connection Open database connection
+     * @param lastDay Last complete day to snapshot
+     * @param rebuildDays Number of snapshotted days to rebuild
+     * @return Snapshots written
+     * @throws SQLException if a query fails; days already built stay committed
+     */
+    public static int buildThrough(Connection connection, LocalDate lastDay, int rebuildDays) throws SQLException {
+        LocalDate day = firstDayToBuild(connection);
+        if (day == null) {
+            return 0;
+        }
+        return rebuild(connection, day.minusDays(Math.max(0, rebuildDays)), lastDay);
+    }
+
+    /**
+     * Rebuilds the snapshots of every day from firstDay through lastDay, in order,
+     * so each day starts from the rebuilt closings of the days before it
+     * @param connection Open database connection
+     * @param firstDay First day to rebuild
+     * @param lastDay Last complete day to snapshot
+     * @return Snapshots written
+     * @throws SQLException if a query fails; days already built stay committed
+     */
+    public static int rebuild(Connection connection, LocalDate firstDay, LocalDate lastDay) throws SQLException {
+        int written = 0;
+        for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            written += buildDay(connection, day);
+        }
+        return written;
+    }
+
+    /**
+     * Builds (or rebuilds) the snapshots of one day from the previous snapshots and the day's rows
+     * @param connection Open database connection
+     * @param day Day to snapshot
+     * @return Snapshots written
+     * @throws SQLException if a query or the write fails
+     */
+    public static int buildDay(Connection connection, LocalDate day) throws SQLException {
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT Account_No, SUM(" + LedgerSchema.SIGNED_AMOUNT_MINOR + ") FROM bank " +
+                "WHERE date >= ? AND date < ? GROUP BY Account_No")) {
+            ps.setString(1, startOf(day));
+            ps.setString(2, startOf(day.plusDays(1)));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    deltas.put(rs.getString(1), rs.getLong(2));
+                }
+            }
+        }
+        Map<String, BigDecimal> previous = deltas.isEmpty() ? Collections.emptyMap()
+                : previousClosings(connection, new ArrayList<>(deltas.keySet()), day);
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "DELETE FROM account_balance_snapshot WHERE snapshot_date = ?")) {
+                ps.setDate(1, Date.valueOf(day));
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO account_balance_snapshot (Account_No, snapshot_date, closing_balance) VALUES (?, ?, ?)")) {
+                for (Map.Entry<String, Long> entry : deltas.entrySet()) {
+                    BigDecimal opening = previous.getOrDefault(entry.getKey(), BigDecimal.ZERO);
+                    ps.setString(1, entry.getKey());
+                    ps.setDate(2, Date.valueOf(day));
+                    ps.setBigDecimal(3, opening.add(BigDecimal.valueOf(entry.getValue(), Money.SCALE)));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return deltas.size();
+    }
+
+    /**
+     * @return The day after the newest snapshot, the first ledger day if there are none, or null for an empty ledger
+     */
+    private static LocalDate firstDayToBuild(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            try (ResultSet rs = st.executeQuery("SELECT MAX(snapshot_date) FROM account_balance_snapshot")) {
+                if (rs.next() && rs.getDate(1) != null) {
+                    return rs.getDate(1).toLocalDate().plusDays(1);
+                }
+            }
+            try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM bank WHERE " + LedgerAmountMigration.LEGACY_DATE)) {
+                if (rs.next() && rs.getLong(1) > 0) {
+                    LOGGER.warning(rs.getLong(1) + " ledger rows have dates not in yyyy-MM-dd HH:mm:ss and are left " +
+                                   "out of snapshots; run LedgerAmountMigration to rewrite them");
+                }
+            }
+            try (ResultSet rs = st.executeQuery(
+                    "SELECT MIN(date) FROM bank WHERE NOT (" + LedgerAmountMigration.LEGACY_DATE + ")")) {
+                if (rs.next() && rs.getString(1) != null) {
+                    String first = rs.getString(1);
+                    try {
+                        return LocalDate.parse(first.substring(0, 10));
+                    } catch (DateTimeParseException e) {
+                        throw new SQLException("Earliest ledger date is not a valid date: '" + first + "'", e);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Latest closing balance before the day for each account that has one
+     */
+    private static Map<String, BigDecimal> previousClosings(Connection connection, List<String> accounts, LocalDate day)
+            throws SQLException {
+        Map<String, BigDecimal> closings = new HashMap<>();
+        for (int from = 0; from < accounts.size(); from += LOOKUP_CHUNK) {
+            List<String> chunk = accounts.subList(from, Math.min(accounts.size(), from + LOOKUP_CHUNK));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT s.Account_No, s.closing_balance FROM account_balance_snapshot s " +
+                    "WHERE s.Account_No IN (" + placeholders + ") AND s.snapshot_date = (" +
+                    "SELECT MAX(t.snapshot_date) FROM account_balance_snapshot t " +
+                    "WHERE t.Account_No = s.Account_No AND t.snapshot_date < ?)")) {
+                int i = 1;
+                for (String accountNo : chunk) {
+                    ps.setString(i++, accountNo);
+                }
+                ps.setDate(i, Date.valueOf(day));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        closings.put(rs.getString(1), rs.getBigDecimal(2));
+                    }
+                }
+            }
+        }
+        return closings;
+    }
+
+    private static String startOf(LocalDate day) {
+        return day + " 00:00:00";
+    }
+
+    /**
+     * Builds snapshots through yesterday
+     * @param args Optional first day to rebuild (yyyy-MM-dd), for corrections older than the rebuild window
+     */
+    public static void main(String[] args) {
+        try (Connection connection = ConnectionPool.borrow()) {
+            ensureTable(connection);
+            long start = System.nanoTime();
+            LocalDate yesterday = LocalDate.now().minusDays(1);
+            int written = args.length > 0 ? rebuild(connection, LocalDate.parse(args[0]), yesterday)
+                                          : buildThrough(connection, yesterday);
+            LOGGER.info("Wrote " + written + " balance snapshots in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to build balance snapshots", e);
+        }
+    }
+}
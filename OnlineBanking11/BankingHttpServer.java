@@ -0,0 +1,554 @@
+/*
+ * Online Banking System - Banking HTTP Server
+ */
+package banking.management.system;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Embedded HTTP API over the headless services, on the JDK's built-in server.
+ * Requests take form-encoded parameters (query string or POST body) and get
+ * JSON back. A client logs in once and sends the returned token as
+ * "Authorization: Bearer &lt;token&gt;"; tokens expire after 15 minutes idle.
+ * Tokens live in a {@link SessionStore}, so with banking.security.store=jdbc
+ * every node behind a load balancer accepts them. The store only sees the
+ * account number and a SHA-256 digest of the token's secret part.
+ *
+ *   POST /api/login          account, pin
+ *   POST /api/logout
+ *   GET  /api/balance
+ *   POST /api/deposits       amount
+ *   POST /api/transfers      to, amount, description, reference (or an Idempotency-Key header)
+ *   GET  /api/transactions   from, to (yyyy-MM-dd), type, min, max, limit, after, afterRef, balance
+ *   GET  /health
+ *
+ * On a Java 21 or later runtime every request runs on its own virtual thread,
+ * and the connection pool is what bounds the requests in the database at once.
+ * The build still targets Java 17, so the executor is looked up at runtime. On
+ * older runtimes, or with banking.http.virtualThreads=false, requests run on a
+ * fixed pool of worker threads with a bounded queue; when the queue is full
+ * the accepting thread runs the request itself, which slows down accepting
+ * instead of dropping connections. Each worker holds at most one pooled
+ * connection at a time, so size the pool with the connection pool.
+ *
+ * Settings: banking.http.port (default 8080), banking.http.virtualThreads
+ * (true), banking.http.threads (64), banking.http.queue (1024).
+ */
+public class BankingHttpServer {
+
+    private static final Logger LOGGER = Logger.getLogger(BankingHttpServer.class.getName());
+
+    private static final long TOKEN_TTL_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    private static final int DEFAULT_PAGE_LIMIT = 50;
+    private static final int MAX_PAGE_LIMIT = 500;
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    private final AccountService accounts;
+    private final TransferService transfers;
+    private final HistoryService history;
+    private final AuthenticationService authentication;
+    private final SessionStore tokens;
+    private final SecureRandom random = new SecureRandom();
+
+    private final HttpServer server;
+    private final ExecutorService workers;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LatencyHistogram requestLatency = new LatencyHistogram("http.request");
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Thrown by a handler to end the request with a client error
+     */
+    private static final class ApiException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Status and JSON body of a response
+     */
+    private static final class Response {
+        private final int status;
+        private final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response ok(String body) {
+            return new Response(200, body);
+        }
+    }
+
+    /**
+     * One route of the API
+     */
+    private interface Route {
+        Response handle(HttpExchange exchange, Map<String, String> params) throws ApiException, SQLException;
+    }
+
+    /**
+     * @param port Port to listen on, 0 for any free port
+     * @param threads Worker threads, when not on virtual threads
+     * @param queueCapacity Requests that may wait for a worker, when not on virtual threads
+     * @throws IOException if the port cannot be bound
+     */
+    public BankingHttpServer(int port, int threads, int queueCapacity) throws IOException {
+        this(port, workers(Boolean.parseBoolean(System.getProperty("banking.http.virtualThreads", "true")), threads,
+                queueCapacity), SessionStore.tokensFromSystemProperties(TOKEN_TTL_MILLIS),
+                new AuthenticationService(), new AccountService(), new TransferService(), new HistoryService());
+    }
+
+    BankingHttpServer(int port, ExecutorService workers, SessionStore tokens, AuthenticationService authentication,
+                      AccountService accounts, TransferService transfers, HistoryService history) throws IOException {
+        this.workers = workers;
+        this.tokens = tokens;
+        this.authentication = authentication;
+        this.accounts = accounts;
+        this.transfers = transfers;
+        this.history = history;
+
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(workers);
+        route("/api/login", "POST", false, this::login);
+        route("/api/logout", "POST", true, this::logout);
+        route("/api/balance", "GET", true, this::balance);
+        route("/api/deposits", "POST", true, this::deposit);
+        route("/api/transfers", "POST", true, this::transfer);
+        route("/api/transactions", "GET", true, this::transactions);
+        route("/health", "GET", false, (exchange, params) -> Response.ok("{\"status\":\"UP\",\"inFlight\":" +
+                inFlight.get() + ",\"queued\":" +
+                (workers instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) workers).getQueue().size() : 0) +
+                ",\"sessions\":" + tokens.getLiveCount() + "}"));
+    }
+
+    /**
+     * @return A virtual thread per request if asked for and the runtime has them, otherwise a bounded pool
+     */
+    static ExecutorService workers(boolean virtualThreads, int threads, int queueCapacity) {
+        if (virtualThreads) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                LOGGER.info("Virtual threads need Java 21, running requests on " + threads + " worker threads");
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "http-worker-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Starts accepting requests
+     */
+    public void start() {
+        server.start();
+        LOGGER.info("Banking API listening on port " + getPort());
+    }
+
+    /**
+     * Stops accepting requests, lets running ones finish and releases the workers
+     * @param delaySeconds Longest wait for running requests
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        workers.shutdown();
+        tokens.close();
+        LOGGER.info("Banking API stopped: " + this);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public String toString() {
+        return "BankingHttpServer{requests=" + requests.sum() + ", errors=" + errors.sum() +
+               ", " + tokens + ", " + requestLatency + "}";
+    }
+
+    private void route(String path, String method, boolean authenticated, Route route) {
+        server.createContext(path, exchange -> {
+            long start = System.nanoTime();
+            requests.increment();
+            inFlight.incrementAndGet();
+            Response response;
+            try {
+                if (!path.equals(exchange.getRequestURI().getPath())) {
+                    throw new ApiException(404, "Not found");
+                }
+                if (!method.equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    throw new ApiException(405, "Use " + method);
+                }
+                Map<String, String> params = parameters(exchange);
+                if (authenticated) {
+                    // The account always comes from the token, never from the caller
+                    params.put("account", requireAccount(exchange));
+                }
+                response = route.handle(exchange, params);
+            } catch (ApiException e) {
+                response = new Response(e.status, error(e.getMessage()));
+            } catch (SQLException | RuntimeException e) {
+                errors.increment();
+                LOGGER.log(Level.SEVERE, "Request failed: " + exchange.getRequestMethod() + " " + path, e);
+                response = new Response(500, error("Internal error"));
+            }
+            try {
+                byte[] bytes = response.body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.getResponseHeaders().set("Cache-Control", "no-store");
+                exchange.sendResponseHeaders(response.status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } finally {
+                exchange.close();
+                inFlight.decrementAndGet();
+                requestLatency.recordSince(start);
+            }
+        });
+    }
+
+    private Response login(HttpExchange exchange, Map<String, String> params) throws ApiException {
+        String accountNo = required(params, "account");
+        String pin = required(params, "pin");
+        String ipAddress = exchange.getRemoteAddress().getAddress().getHostAddress();
+
+        LoginPrincipal principal = authentication.authenticate(accountNo, pin, ipAddress);
+        if (principal.isLocked()) {
+            throw new ApiException(429, "Too many failed attempts, try again later");
+        }
+        if (!principal.isAuthenticated()) {
+            throw new ApiException(401, "Invalid account number or PIN");
+        }
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        // The account travels in the token; the store is keyed by it and the digest of the secret
+        String token = accountNo + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tokens.create(sessionKey(token));
+        return Response.ok("{\"token\":" + json(token) + ",\"account\":" + json(accountNo) +
+               ",\"role\":" + json(principal.getRole()) + ",\"expiresInSeconds\":" + TOKEN_TTL_MILLIS / 1000 + "}");
+    }
+
+    private Response logout(HttpExchange exchange, Map<String, String> params) {
+        String key = sessionKey(bearerToken(exchange));
+        if (key != null) {
+            tokens.end(key);
+        }
+        return Response.ok("{\"status\":\"LOGGED_OUT\"}");
+    }
+
+    private Response balance(HttpExchange exchange, Map<String, String> params) throws SQLException {
+        String accountNo = params.get("account");
+        return Response.ok("{\"account\":" + json(accountNo) + ",\"balance\":\"" + accounts.getBalance(accountNo) + "\"}");
+    }
+
+    private Response deposit(HttpExchange exchange, Map<String, String> params) throws ApiException, SQLException {
+        Money amount = amount(params, "amount", true);
+        try {
+            String reference = accounts.deposit("", params.get("account"), amount);
+            return new Response(201, "{\"reference\":" + json(reference) + ",\"amount\":\"" + amount + "\"}");
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, e.getMessage());
+        }
+    }
+
+    private Response transfer(HttpExchange exchange, Map<String, String> params) throws ApiException {
+        String reference = params.get("reference");
+        if (reference == null) {
+            reference = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+        }
+        if (reference == null || reference.isEmpty()) {
+            reference = transfers.newReference();
+        } else if (reference.length() > 64) {
+            throw new ApiException(400, "Reference is longer than 64 characters");
+        }
+
+        TransferEngine.TransferResult result = transfers.transfer("", params.get("account"), required(params, "to"),
+                amount(params, "amount", true), params.get("description"), reference);
+        int status;
+        switch (result.getStatus()) {
+            case COMPLETED:
+                status = 201;
+                break;
+            case DUPLICATE:
+                status = 200;
+                break;
+            case INSUFFICIENT_FUNDS:
+                status = 422;
+                break;
+            case INVALID:
+                status = 400;
+                break;
+            default:
+                status = 500;
+                break;
+        }
+        return new Response(status, "{\"status\":" + json(result.getStatus().name()) + ",\"reference\":" + json(result.getReference()) +
+               ",\"timestamp\":" + json(result.getTimestamp()) + ",\"balance\":\"" + result.getSourceBalance() +
+               "\",\"message\":" + json(result.getMessage()) + "}");
+    }
+
+    private Response transactions(HttpExchange exchange, Map<String, String> params) throws ApiException, SQLException {
+        String accountNo = params.get("account");
+        String from = date(params, "from");
+        String to = date(params, "to");
+        TransactionQuery query = new TransactionQuery(accountNo, from, to != null ? to + " 23:59:59" : null,
+                params.get("type"), amount(params, "min", false), amount(params, "max", false));
+        int limit = Math.min(MAX_PAGE_LIMIT, integer(params, "limit", DEFAULT_PAGE_LIMIT));
+
+        HistoryService.Cursor cursor;
+        String rowCount = "null";
+        if (params.get("after") != null) {
+            cursor = new HistoryService.Cursor(params.get("after"), params.getOrDefault("afterRef", ""),
+                    amount(params, "balance", true).getMinorUnits());
+        } else {
+            HistoryService.Summary summary = history.summarize(query);
+            cursor = summary.start();
+            rowCount = String.valueOf(summary.getRowCount());
+        }
+
+        HistoryService.Page page = history.page(query, cursor, limit);
+        StringBuilder sb = new StringBuilder(256 + page.getEntries().size() * 160);
+        sb.append("{\"account\":").append(json(accountNo)).append(",\"rowCount\":").append(rowCount)
+          .append(",\"transactions\":[");
+        boolean first = true;
+        for (HistoryService.Entry entry : page.getEntries()) {
+            sb.append(first ? "" : ",")
+              .append("{\"date\":").append(json(entry.getDate()))
+              .append(",\"description\":").append(json(entry.getDescription()))
+              .append(",\"reference\":").append(json(entry.getReference()))
+              .append(",\"type\":").append(json(entry.getType()))
+              .append(",\"amount\":\"").append(entry.isCredit() ? "" : "-").append(Money.format(entry.getAmount()))
+              .append("\",\"balance\":\"").append(Money.format(entry.getBalance())).append("\"}");
+            first = false;
+        }
+        sb.append("]");
+        if (page.getEntries().size() == limit) {
+            HistoryService.Cursor next = page.getNext();
+            sb.append(",\"next\":{\"after\":").append(json(next.getAfterDate()))
+              .append(",\"afterRef\":").append(json(next.getAfterReference()))
+              .append(",\"balance\":\"").append(Money.format(next.getBalance())).append("\"}");
+        }
+        return Response.ok(sb.append("}").toString());
+    }
+
+    /**
+     * @return Account the bearer token belongs to, extending its session
+     */
+    private String requireAccount(HttpExchange exchange) throws ApiException {
+        String key = sessionKey(bearerToken(exchange));
+        if (key == null || !tokens.touch(key)) {
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+            throw new ApiException(401, "Missing or expired token");
+        }
+        return key.substring(0, key.indexOf('.'));
+    }
+
+    /**
+     * @return Store key of a token: its account and the digest of its secret, or null if it is malformed
+     */
+    private static String sessionKey(String token) {
+        int dot = token != null ? token.indexOf('.') : -1;
+        if (dot <= 0 || dot == token.length() - 1) {
+            return null;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                                         .digest(token.substring(dot + 1).getBytes(StandardCharsets.UTF_8));
+            return token.substring(0, dot + 1) + Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        return header != null && header.startsWith("Bearer ") ? header.substring(7).trim() : null;
+    }
+
+    /**
+     * Reads the query string and, for form posts, the body into one map
+     */
+    private static Map<String, String> parameters(HttpExchange exchange) throws ApiException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        if ("POST".equals(exchange.getRequestMethod())) {
+            try (InputStream in = exchange.getRequestBody()) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    if (body.size() + read > MAX_BODY_BYTES) {
+                        throw new ApiException(413, "Request body too large");
+                    }
+                    body.write(buffer, 0, read);
+                }
+                parseForm(body.toString(StandardCharsets.UTF_8), params);
+            } catch (IOException e) {
+                throw new ApiException(400, "Unreadable request body");
+            }
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) throws ApiException {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        try {
+            for (String pair : form.split("&")) {
+                int eq = pair.indexOf('=');
+                String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+                String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+                if (!key.isEmpty() && !value.isEmpty()) {
+                    params.put(key, value);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "Malformed parameters");
+        }
+    }
+
+    private static String required(Map<String, String> params, String name) throws ApiException {
+        String value = params.get(name);
+        if (value == null || value.trim().isEmpty()) {
+            throw new ApiException(400, "Missing parameter: " + name);
+        }
+        return value.trim();
+    }
+
+    private static Money amount(Map<String, String> params, String name, boolean required) throws ApiException {
+        String value = required ? required(params, name) : params.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Money.parse(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Invalid amount: " + name);
+        }
+    }
+
+    private static String date(Map<String, String> params, String name) throws ApiException {
+        String value = params.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value).toString();
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, "Invalid date (yyyy-MM-dd): " + name);
+        }
+    }
+
+    private static int integer(Map<String, String> params, String name, int defaultValue) throws ApiException {
+        String value = params.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 1) {
+                throw new ApiException(400, "Invalid " + name + ": " + value);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Invalid " + name + ": " + value);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + json(message) + "}";
+    }
+
+    /**
+     * @return The value as a JSON string literal, or null
+     */
+    static String json(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Starts the API and runs until the process is stopped
+     * @param args Unused
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        BankingHttpServer server = new BankingHttpServer(
+                Integer.getInteger("banking.http.port", 8080),
+                Integer.getInteger("banking.http.threads", 64),
+                Integer.getInteger("banking.http.queue", 1_024));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(5), "http-shutdown"));
+        server.start();
+    }
+}
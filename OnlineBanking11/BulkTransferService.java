@@ -0,0 +1,339 @@
+/*
+ * Online Banking System - Bulk Transfer Service
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Programmatic bulk transfer entry point for payroll-style payouts.
+ * Transfers are processed in commit groups: per group, references are claimed
+ * with one batch, all involved balance rows are locked with one ordered
+ * SELECT ... FOR UPDATE, funds are checked once per source account in memory,
+ * and all ledger rows and balance updates are written with executeBatch.
+ * A group that fails at the database level is rolled back and its items are
+ * retried one by one through TransferEngine so each gets its own outcome.
+ * With banking.ledger.mode=journal every item goes through JournalLedger
+ * instead, so bulk and single transfers check funds against the same
+ * balances and only the projector writes the SQL ledger.
+ */
+public class BulkTransferService {
+
+    private static final Logger LOGGER = Logger.getLogger(BulkTransferService.class.getName());
+    public static final int DEFAULT_COMMIT_GROUP_SIZE = 200;
+
+    private final TransferEngine transferEngine;
+    private final JournalLedger journal;
+    private final int commitGroupSize;
+    private final LatencyHistogram groupLatency = new LatencyHistogram("bulk.group");
+
+    public BulkTransferService() {
+        this(new TransferEngine(), Integer.getInteger("banking.bulk.commitGroupSize", DEFAULT_COMMIT_GROUP_SIZE));
+        OutboxRelay.startFromSystemProperties();
+    }
+
+    /**
+     * @param transferEngine Engine used for single-item fallback
+     * @param commitGroupSize Number of transfers committed per transaction
+     */
+    public BulkTransferService(TransferEngine transferEngine, int commitGroupSize) {
+        this(transferEngine, commitGroupSize, JournalLedger.fromSystemProperties());
+    }
+
+    /**
+     * @param transferEngine Engine used for single-item fallback
+     * @param commitGroupSize Number of transfers committed per transaction
+     * @param journal Journal ledger that executes every item instead, or null
+     */
+    public BulkTransferService(TransferEngine transferEngine, int commitGroupSize, JournalLedger journal) {
+        if (commitGroupSize < 1) {
+            throw new IllegalArgumentException("Commit group size must be positive: " + commitGroupSize);
+        }
+        this.transferEngine = transferEngine;
+        this.commitGroupSize = commitGroupSize;
+        this.journal = journal;
+    }
+
+    /**
+     * Executes a list of transfers
+     * @param requests Transfers to execute, each with its own reference
+     * @return One result per request, in request order
+     */
+    public List<TransferEngine.TransferResult> transferAll(List<TransferEngine.TransferRequest> requests) {
+        TransferEngine.TransferResult[] results = new TransferEngine.TransferResult[requests.size()];
+        List<Integer> group = new ArrayList<>(commitGroupSize);
+        Set<String> seenReferences = new HashSet<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            TransferEngine.TransferRequest request = requests.get(i);
+            String invalid = TransferEngine.validate(request);
+            if (invalid != null) {
+                results[i] = new TransferEngine.TransferResult(TransferEngine.Status.INVALID,
+                        request.getReference(), null, Money.ZERO, invalid);
+                continue;
+            }
+            if (!seenReferences.add(request.getReference())) {
+                results[i] = duplicate(request);
+                continue;
+            }
+            if (journal != null) {
+                // Journal transfers are in-memory appends; grouping commits would save nothing
+                results[i] = journal.transfer(request);
+                if (results[i].isSuccess()) {
+                    TransferService.publish(request, results[i]);
+                }
+                continue;
+            }
+
+            group.add(i);
+            if (group.size() == commitGroupSize) {
+                processGroup(requests, group, results);
+                group.clear();
+            }
+        }
+        if (!group.isEmpty()) {
+            processGroup(requests, group, results);
+        }
+
+        List<TransferEngine.TransferResult> list = new ArrayList<>(results.length);
+        for (TransferEngine.TransferResult result : results) {
+            list.add(result);
+        }
+        return list;
+    }
+
+    public int getCommitGroupSize() {
+        return commitGroupSize;
+    }
+
+    public LatencyHistogram getGroupLatency() {
+        return groupLatency;
+    }
+
+    private void processGroup(List<TransferEngine.TransferRequest> requests, List<Integer> group,
+                              TransferEngine.TransferResult[] results) {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionPool.borrow()) {
+            executeGroup(connection, requests, group, results);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Bulk commit group of " + group.size() + " failed, retrying items individually", e);
+            for (int index : group) {
+                results[index] = transferEngine.transfer(requests.get(index));
+                if (results[index].isSuccess()) {
+                    TransferService.publish(requests.get(index), results[index]);
+                }
+            }
+        } finally {
+            groupLatency.recordSince(start);
+        }
+    }
+
+    /**
+     * Runs one commit group in a single transaction
+     */
+    private void executeGroup(Connection connection, List<TransferEngine.TransferRequest> requests,
+                              List<Integer> group, TransferEngine.TransferResult[] results) throws SQLException {
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+
+        TreeSet<String> accounts = new TreeSet<>();
+        List<String> references = new ArrayList<>(group.size());
+        for (int index : group) {
+            TransferEngine.TransferRequest request = requests.get(index);
+            accounts.add(request.getFromAccount());
+            accounts.add(request.getToAccount());
+            references.add(request.getReference());
+        }
+        seedMissingBalances(connection, accounts);
+
+        connection.setAutoCommit(false);
+        try {
+            // References before balances, the same lock order TransferEngine uses
+            Set<String> alreadyUsed = findExistingReferences(connection, references);
+            List<Integer> claimed = new ArrayList<>(group.size());
+            for (int index : group) {
+                if (alreadyUsed.contains(requests.get(index).getReference())) {
+                    results[index] = duplicate(requests.get(index));
+                } else {
+                    claimed.add(index);
+                }
+            }
+            claimReferences(connection, requests, claimed, timestamp);
+            Map<String, Money> available = lockBalances(connection, accounts);
+
+            List<Integer> accepted = new ArrayList<>(claimed.size());
+            List<Integer> refused = new ArrayList<>();
+            List<LedgerEntry> entries = new ArrayList<>(claimed.size() * 2);
+            long[] balancesAfter = new long[claimed.size() * 2];
+            for (int index : claimed) {
+                TransferEngine.TransferRequest request = requests.get(index);
+                Money sourceBalance = available.get(request.getFromAccount());
+                if (request.getAmount().isGreaterThan(sourceBalance)) {
+                    results[index] = new TransferEngine.TransferResult(TransferEngine.Status.INSUFFICIENT_FUNDS,
+                            request.getReference(), null, sourceBalance, "Insufficient funds");
+                    refused.add(index);
+                    continue;
+                }
+
+                available.put(request.getFromAccount(), sourceBalance.minus(request.getAmount()));
+                available.merge(request.getToAccount(), request.getAmount(), Money::plus);
+                balancesAfter[entries.size()] = available.get(request.getFromAccount()).getMinorUnits();
+                balancesAfter[entries.size() + 1] = available.get(request.getToAccount()).getMinorUnits();
+                entries.add(new LedgerEntry(request.getFromAccount(), timestamp, "Transfer-Out",
+                        request.getAmount(), request.getDescription(), request.getReference()));
+                entries.add(new LedgerEntry(request.getToAccount(), timestamp, "Transfer-In",
+                        request.getAmount(), request.getDescription(), request.getReference()));
+                accepted.add(index);
+            }
+
+            releaseReferences(connection, requests, refused);
+            LedgerWriter.appendAll(connection, entries);
+            connection.commit();
+            for (String accountNo : accounts) {
+                AccountService.invalidateBalance(accountNo);
+            }
+
+            for (int index : accepted) {
+                TransferEngine.TransferRequest request = requests.get(index);
+                results[index] = new TransferEngine.TransferResult(TransferEngine.Status.COMPLETED,
+                        request.getReference(), timestamp, available.get(request.getFromAccount()), "Transfer completed");
+            }
+            LedgerEventBus bus = LedgerEventBus.getInstance();
+            for (int i = 0; i < entries.size(); i++) {
+                bus.publish(entries.get(i), balancesAfter[i]);
+            }
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            for (int index : group) {
+                results[index] = null;
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void seedMissingBalances(Connection connection, Set<String> accounts) throws SQLException {
+        Set<String> present = new HashSet<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT Account_No FROM account_balance WHERE Account_No IN (" + placeholders(accounts.size()) + ")")) {
+            bindAll(ps, accounts);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    present.add(rs.getString(1));
+                }
+            }
+        }
+        for (String accountNo : accounts) {
+            if (!present.contains(accountNo)) {
+                AccountBalanceStore.getBalance(connection, accountNo);
+            }
+        }
+    }
+
+    private Set<String> findExistingReferences(Connection connection, List<String> references) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT reference FROM transfer_request WHERE reference IN (" + placeholders(references.size()) + ")")) {
+            bindAll(ps, references);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getString(1));
+                }
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Locks every involved balance row with one statement; rows are locked in
+     * primary key order, the same order TransferEngine uses
+     */
+    private Map<String, Money> lockBalances(Connection connection, Set<String> accounts) throws SQLException {
+        Map<String, Money> balances = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT Account_No, balance FROM account_balance WHERE Account_No IN (" + placeholders(accounts.size()) +
+                ") ORDER BY Account_No FOR UPDATE")) {
+            bindAll(ps, accounts);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    balances.put(rs.getString(1), Money.of(rs.getBigDecimal(2)));
+                }
+            }
+        }
+        if (balances.size() != accounts.size()) {
+            throw new SQLException("Missing balance rows for bulk transfer group");
+        }
+        return balances;
+    }
+
+    private void claimReferences(Connection connection, List<TransferEngine.TransferRequest> requests,
+                                 List<Integer> accepted, String timestamp) throws SQLException {
+        if (accepted.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO transfer_request (reference, from_account, to_account, amount, created_at) VALUES (?, ?, ?, ?, ?)")) {
+            for (int index : accepted) {
+                TransferEngine.TransferRequest request = requests.get(index);
+                ps.setString(1, request.getReference());
+                ps.setString(2, request.getFromAccount());
+                ps.setString(3, request.getToAccount());
+                ps.setBigDecimal(4, request.getAmount().toBigDecimal());
+                ps.setString(5, timestamp);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Frees the references of refused items so they can be resubmitted
+     */
+    private void releaseReferences(Connection connection, List<TransferEngine.TransferRequest> requests,
+                                   List<Integer> refused) throws SQLException {
+        if (refused.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM transfer_request WHERE reference = ?")) {
+            for (int index : refused) {
+                ps.setString(1, requests.get(index).getReference());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static TransferEngine.TransferResult duplicate(TransferEngine.TransferRequest request) {
+        return new TransferEngine.TransferResult(TransferEngine.Status.DUPLICATE, request.getReference(), null, Money.ZERO,
+                "Transfer " + request.getReference() + " was already processed");
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
+    private static void bindAll(PreparedStatement ps, Iterable<String> values) throws SQLException {
+        int i = 1;
+        for (String value : values) {
+            ps.setString(i++, value);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Online Banking System - Concurrent LRU Cache
+ */
+package banking.management.system;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, thread-safe read-through cache with per-entry time-to-live.
+ * Keys are spread over independently locked segments, each an access-ordered
+ * LinkedHashMap that evicts its least recently used entry when full, so the
+ * total size stays within maxSize and unrelated keys do not contend.
+ * Loading is single-flight: the first caller that misses loads the value
+ * outside the lock while concurrent callers for the same key wait for that
+ * load, so a burst of lookups for one key reaches the database once.
+ * Failed loads are not cached.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class ConcurrentLruCache<K, V> {
+
+    private static final int DEFAULT_SEGMENTS = 16;
+
+    /**
+     * Produces the value for a missing or expired key
+     */
+    public interface Loader<K, V> {
+        V load(K key) throws Exception;
+    }
+
+    private final String name;
+    private final long ttlNanos;
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LatencyHistogram loadLatency;
+
+    /**
+     * A value, or the pending load of one, plus the time it was written;
+     * a loaded entry's age counts from the end of its load
+     */
+    private static final class Entry<V> {
+        private final CompletableFuture<V> value;
+        private volatile long writtenAt;
+
+        Entry(CompletableFuture<V> value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    /**
+     * One lock and one LRU map
+     */
+    private final class Segment extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        private final LinkedHashMap<K, Entry<V>> map;
+
+        Segment(final int capacity) {
+            map = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    /**
+     * @param name Name used in metrics
+     * @param maxSize Maximum number of entries
+     * @param ttlMillis Time after which an entry is reloaded on its next access
+     */
+    public ConcurrentLruCache(String name, int maxSize, long ttlMillis) {
+        this(name, maxSize, ttlMillis, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * @param name Name used in metrics
+     * @param maxSize Maximum number of entries
+     * @param ttlMillis Time after which an entry is reloaded on its next access
+     * @param segmentCount Number of independently locked segments
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLruCache(String name, int maxSize, long ttlMillis, int segmentCount) {
+        if (maxSize < 1 || segmentCount < 1) {
+            throw new IllegalArgumentException("Invalid cache size: maxSize=" + maxSize + ", segments=" + segmentCount);
+        }
+        this.name = name;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.loadLatency = new LatencyHistogram(name + ".load");
+        int count = Math.min(segmentCount, maxSize);
+        this.segments = (Segment[]) new ConcurrentLruCache<?, ?>.Segment[count];
+        for (int i = 0; i < count; i++) {
+            // Spread the remainder so the capacities add up to maxSize
+            segments[i] = new Segment(maxSize / count + (i < maxSize % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns the cached value, loading it if it is missing or expired
+     * @param key Key
+     * @param loader Loads the value on a miss; runs on the calling thread
+     * @return The value
+     * @throws ExecutionException if this or a concurrent load failed, with the loader's exception as cause
+     */
+    public V get(K key, Loader<? super K, ? extends V> loader) throws ExecutionException {
+        Segment segment = segmentFor(key);
+        Entry<V> entry;
+        boolean owner = false;
+
+        segment.lock();
+        try {
+            entry = segment.map.get(key);
+            long now = System.nanoTime();
+            if (entry != null && (!entry.value.isDone() || now - entry.writtenAt < ttlNanos)) {
+                hits.increment();
+            } else {
+                if (entry != null) {
+                    expirations.increment();
+                }
+                misses.increment();
+                entry = new Entry<>(new CompletableFuture<>(), now);
+                segment.map.put(key, entry);
+                owner = true;
+            }
+        } finally {
+            segment.unlock();
+        }
+
+        if (owner) {
+            load(segment, key, entry, loader);
+        }
+        return await(entry.value);
+    }
+
+    /**
+     * @param key Key
+     * @return The cached value, or null if it is absent, expired or still loading
+     */
+    public V getIfPresent(K key) {
+        Segment segment = segmentFor(key);
+        segment.lock();
+        try {
+            Entry<V> entry = segment.map.get(key);
+            if (entry != null && entry.value.isDone() && !entry.value.isCompletedExceptionally()
+                    && System.nanoTime() - entry.writtenAt < ttlNanos) {
+                hits.increment();
+                return entry.value.getNow(null);
+            }
+            misses.increment();
+            return null;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    /**
+     * Stores a value, replacing any cached or loading one
+     * @param key Key
+     * @param value Value
+     */
+    public void put(K key, V value) {
+        Segment segment = segmentFor(key);
+        segment.lock();
+        try {
+            segment.map.put(key, new Entry<>(CompletableFuture.completedFuture(value), System.nanoTime()));
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    /**
+     * Removes a key so its next access reloads it
+     * @param key Key
+     */
+    public void invalidate(K key) {
+        Segment segment = segmentFor(key);
+        segment.lock();
+        try {
+            segment.map.remove(key);
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    /**
+     * Removes every entry
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.lock();
+            try {
+                segment.map.clear();
+            } finally {
+                segment.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return Entries currently held, including loading and expired ones
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock();
+            try {
+                size += segment.map.size();
+            } finally {
+                segment.unlock();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    /**
+     * @return Hits divided by lookups, or 0 before the first lookup
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return name + "{size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() +
+               ", hitRate=" + String.format("%.3f", getHitRate()) + ", evictions=" + getEvictionCount() +
+               ", expirations=" + getExpirationCount() + ", loadFailures=" + getLoadFailureCount() +
+               ", " + loadLatency + "}";
+    }
+
+    private void load(Segment segment, K key, Entry<V> loading, Loader<? super K, ? extends V> loader) {
+        long start = System.nanoTime();
+        try {
+            V value = loader.load(key);
+            loading.writtenAt = System.nanoTime();
+            loading.value.complete(value);
+        } catch (Exception e) {
+            loadFailures.increment();
+            loading.value.completeExceptionally(e);
+            // Drop the failed entry unless it has been replaced meanwhile
+            segment.lock();
+            try {
+                Entry<V> entry = segment.map.get(key);
+                if (entry == loading) {
+                    segment.map.remove(key);
+                }
+            } finally {
+                segment.unlock();
+            }
+        } finally {
+            loadLatency.recordSince(start);
+        }
+    }
+
+    private V await(CompletableFuture<V> future) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    // The load runs on another caller's thread; keep waiting and restore the flag
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Segment segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return segments[(h & 0x7fffffff) % segments.length];
+    }
+}
@@ -0,0 +1,506 @@
+/*
+ * Online Banking System - Connection Pool
+ */
+package banking.management.system;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded, instrumented JDBC connection pool shared by every screen and service.
+ * Physical connections come from DriverManager using the banking.db.* settings,
+ * which every screen and service shares, so there is one database configuration;
+ * they can also point the pool at an embedded database (benchmarks). Callers
+ * borrow with {@link #borrow()} and return the connection by closing it
+ * (try-with-resources).
+ * Statements left open by the caller are closed on return, and connections held
+ * longer than the leak threshold are reported with the stack that borrowed them.
+ *
+ * A MySQL URL gets useCursorFetch=true unless it sets that option itself, so a
+ * statement with a fetch size (CSV export, statements) streams its rows in
+ * batches instead of Connector/J buffering the whole result.
+ *
+ * Settings: banking.db.url and banking.db.user, both required, and
+ * banking.db.password (empty if unset).
+ */
+public final class ConnectionPool {
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    private static volatile ConnectionPool instance;
+
+    /**
+     * Creates physical connections for the pool
+     */
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * Pool settings, read from banking.pool.* system properties by default
+     */
+    public static class Config {
+        int minSize = 2;
+        int maxSize = 10;
+        String validationQuery = "SELECT 1";
+        long validationIntervalMillis = 30_000;
+        long acquireTimeoutMillis = 5_000;
+        long leakThresholdMillis = 60_000;
+
+        /**
+         * @return Config populated from system properties, falling back to defaults
+         */
+        public static Config fromSystemProperties() {
+            Config config = new Config();
+            config.minSize = Integer.getInteger("banking.pool.minSize", config.minSize);
+            config.maxSize = Integer.getInteger("banking.pool.maxSize", config.maxSize);
+            config.validationQuery = System.getProperty("banking.pool.validationQuery", config.validationQuery);
+            config.validationIntervalMillis = Long.getLong("banking.pool.validationIntervalMillis", config.validationIntervalMillis);
+            config.acquireTimeoutMillis = Long.getLong("banking.pool.acquireTimeoutMillis", config.acquireTimeoutMillis);
+            config.leakThresholdMillis = Long.getLong("banking.pool.leakThresholdMillis", config.leakThresholdMillis);
+            return config;
+        }
+
+        public Config minSize(int minSize) {
+            this.minSize = minSize;
+            return this;
+        }
+
+        public Config maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Config validationQuery(String validationQuery) {
+            this.validationQuery = validationQuery;
+            return this;
+        }
+
+        public Config acquireTimeoutMillis(long acquireTimeoutMillis) {
+            this.acquireTimeoutMillis = acquireTimeoutMillis;
+            return this;
+        }
+
+        public Config leakThresholdMillis(long leakThresholdMillis) {
+            this.leakThresholdMillis = leakThresholdMillis;
+            return this;
+        }
+    }
+
+    private final Config config;
+    private final ConnectionFactory factory;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown;
+
+    private final LatencyHistogram borrowLatency = new LatencyHistogram("pool.borrow");
+    private final LatencyHistogram returnLatency = new LatencyHistogram("pool.return");
+    private final LatencyHistogram holdTime = new LatencyHistogram("pool.hold");
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+
+    /**
+     * Creates a pool and pre-opens minSize connections
+     * @param config Pool settings
+     * @param factory Source of physical connections
+     */
+    public ConnectionPool(Config config, ConnectionFactory factory) {
+        if (config.minSize < 0 || config.maxSize < 1 || config.minSize > config.maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + config.minSize + ", max=" + config.maxSize);
+        }
+        this.config = config;
+        this.factory = factory;
+        this.permits = new Semaphore(config.maxSize, true);
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000, config.leakThresholdMillis / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+
+        fillToMinimum();
+    }
+
+    /**
+     * @return The process-wide pool, created on first use from system properties
+     */
+    public static ConnectionPool getInstance() {
+        ConnectionPool pool = instance;
+        if (pool == null) {
+            synchronized (ConnectionPool.class) {
+                pool = instance;
+                if (pool == null) {
+                    pool = new ConnectionPool(Config.fromSystemProperties(), factoryFromSystemProperties());
+                    instance = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * @return DriverManager factory for banking.db.url, banking.db.user and banking.db.password
+     * @throws IllegalStateException if banking.db.url or banking.db.user is not set
+     */
+    static ConnectionFactory factoryFromSystemProperties() {
+        String url = withCursorFetch(requiredProperty("banking.db.url"));
+        String user = requiredProperty("banking.db.user");
+        String password = System.getProperty("banking.db.password", "");
+        return () -> DriverManager.getConnection(url, user, password);
+    }
+
+    /**
+     * @param url JDBC URL
+     * @return The URL with useCursorFetch=true added if it is a MySQL URL that does not set the option
+     */
+    static String withCursorFetch(String url) {
+        if (!url.startsWith("jdbc:mysql:") || url.contains("useCursorFetch=")) {
+            return url;
+        }
+        return url + (url.indexOf('?') < 0 ? "?" : "&") + "useCursorFetch=true";
+    }
+
+    private static String requiredProperty(String name) {
+        String value = System.getProperty(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalStateException(name + " is not set; the database connection is not configured");
+        }
+        return value;
+    }
+
+    /**
+     * Borrows a connection from the shared pool; close it to give it back
+     * @return Pooled connection
+     * @throws SQLException if no connection becomes available within the acquire timeout
+     */
+    public static Connection borrow() throws SQLException {
+        return getInstance().getConnection();
+    }
+
+    /**
+     * Borrows a connection from the shared pool and runs the validation query on it
+     * @throws SQLException if the database cannot be reached
+     */
+    public static void checkHealth() throws SQLException {
+        getInstance().validateConnection();
+    }
+
+    /**
+     * Borrows a connection from this pool
+     * @return Pooled connection, returned to the pool by close()
+     * @throws SQLException if the pool is exhausted past the acquire timeout or a connection cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool is shut down");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                acquireTimeouts.increment();
+                throw new SQLTimeoutException("Timed out after " + config.acquireTimeoutMillis +
+                        "ms waiting for a connection (active=" + borrowed.size() + ", max=" + config.maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (validate(pooled)) {
+                    break;
+                }
+                discard(pooled);
+            }
+            if (pooled == null) {
+                pooled = open();
+            }
+
+            pooled.borrowedAt = System.nanoTime();
+            pooled.borrowSite = config.leakThresholdMillis > 0 ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            pooled.logicallyClosed = false;
+            borrowed.add(pooled);
+            borrowLatency.recordSince(start);
+            return pooled.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes idle connections and stops accepting borrows. Borrowed connections
+     * are closed physically when they are returned.
+     */
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    public int getMaxSize() {
+        return config.maxSize;
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public long getAcquireTimeoutCount() {
+        return acquireTimeouts.sum();
+    }
+
+    public long getLeakCount() {
+        return leaksDetected.sum();
+    }
+
+    public long getValidationFailureCount() {
+        return validationFailures.sum();
+    }
+
+    public long getConnectionsCreated() {
+        return connectionsCreated.sum();
+    }
+
+    public LatencyHistogram getBorrowLatency() {
+        return borrowLatency;
+    }
+
+    public LatencyHistogram getReturnLatency() {
+        return returnLatency;
+    }
+
+    public LatencyHistogram getHoldTime() {
+        return holdTime;
+    }
+
+    /**
+     * @return One-line summary of pool gauges, counters and histograms
+     */
+    public String metricsSummary() {
+        return "ConnectionPool{active=" + getActiveCount() + ", idle=" + getIdleCount() +
+               ", max=" + config.maxSize + ", created=" + getConnectionsCreated() +
+               ", acquireTimeouts=" + getAcquireTimeoutCount() + ", leaks=" + getLeakCount() +
+               ", validationFailures=" + getValidationFailureCount() + ", " +
+               borrowLatency + ", " + returnLatency + ", " + holdTime + "}";
+    }
+
+    /**
+     * Returns a borrowed connection to the pool
+     * @param pooled Connection being closed by its borrower
+     */
+    private void release(PooledConnection pooled) {
+        long start = System.nanoTime();
+        if (!borrowed.remove(pooled)) {
+            return;
+        }
+        holdTime.recordSince(pooled.borrowedAt);
+        pooled.borrowSite = null;
+
+        boolean healthy = pooled.reset();
+        if (healthy && !shutdown) {
+            pooled.lastUsedAt = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } else {
+            discard(pooled);
+        }
+        permits.release();
+        returnLatency.recordSince(start);
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection raw = factory.create();
+        if (raw == null) {
+            throw new SQLException("Connection factory returned no connection");
+        }
+        connectionsCreated.increment();
+        return new PooledConnection(raw);
+    }
+
+    private void validateConnection() throws SQLException {
+        try (Connection connection = getConnection();
+             Statement st = connection.createStatement()) {
+            st.setQueryTimeout(5);
+            st.execute(config.validationQuery);
+        }
+    }
+
+    private boolean validate(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastUsedAt < config.validationIntervalMillis) {
+            return true;
+        }
+        try (Statement st = pooled.raw.createStatement()) {
+            st.setQueryTimeout(5);
+            st.execute(config.validationQuery);
+            return true;
+        } catch (SQLException e) {
+            validationFailures.increment();
+            LOGGER.log(Level.WARNING, "Discarding connection that failed validation", e);
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        try {
+            pooled.raw.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Error closing discarded connection", e);
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!shutdown && idle.size() + borrowed.size() < config.minSize) {
+            try {
+                PooledConnection pooled = open();
+                pooled.lastUsedAt = System.currentTimeMillis();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Could not pre-open pooled connection", e);
+                return;
+            }
+        }
+    }
+
+    private void housekeep() {
+        long now = System.nanoTime();
+        long threshold = TimeUnit.MILLISECONDS.toNanos(config.leakThresholdMillis);
+        for (PooledConnection pooled : borrowed) {
+            Throwable site = pooled.borrowSite;
+            if (!pooled.leakReported && site != null && now - pooled.borrowedAt > threshold) {
+                pooled.leakReported = true;
+                leaksDetected.increment();
+                LOGGER.log(Level.WARNING, "Possible connection leak: held for " +
+                        TimeUnit.NANOSECONDS.toMillis(now - pooled.borrowedAt) + "ms", site);
+            }
+        }
+        fillToMinimum();
+        LOGGER.fine(metricsSummary());
+    }
+
+    /**
+     * A physical connection plus the proxy handed to borrowers
+     */
+    private final class PooledConnection implements InvocationHandler {
+        private final Connection raw;
+        private final Connection proxy;
+        private final List<Statement> openStatements = new ArrayList<>();
+        private volatile long borrowedAt;
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+        private volatile boolean logicallyClosed;
+        private long lastUsedAt = System.currentTimeMillis();
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object p, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!logicallyClosed) {
+                        logicallyClosed = true;
+                        release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return logicallyClosed || raw.isClosed();
+                case "equals":
+                    return p == args[0];
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "toString":
+                    return "Pooled" + raw;
+                default:
+                    break;
+            }
+
+            if (logicallyClosed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            Object result;
+            try {
+                result = method.invoke(raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            if (result instanceof Statement) {
+                synchronized (openStatements) {
+                    openStatements.add((Statement) result);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Closes statements the borrower forgot and rolls back any open transaction
+         * @return false if the connection is no longer usable
+         */
+        boolean reset() {
+            synchronized (openStatements) {
+                for (Statement st : openStatements) {
+                    try {
+                        st.close();
+                    } catch (SQLException e) {
+                        LOGGER.log(Level.FINE, "Error closing leaked statement", e);
+                    }
+                }
+                openStatements.clear();
+            }
+            try {
+                if (raw.isClosed()) {
+                    return false;
+                }
+                if (!raw.getAutoCommit()) {
+                    raw.rollback();
+                    raw.setAutoCommit(true);
+                }
+                return true;
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Discarding connection that could not be reset", e);
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Online Banking System - Credential Store
+ */
+package banking.management.system;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Base64;
+import java.util.logging.Logger;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted PBKDF2-HMAC-SHA256 hashes for login PINs.
+ * A stored credential reads "pbkdf2-sha256$iterations$salt$hash" (Base64 salt and
+ * hash), so each row carries its own cost and the cost can be raised without a
+ * migration: a successful login whose hash is older than the current cost, or
+ * still plaintext from before hashing, is rewritten with a fresh hash.
+ *
+ * The iteration count comes from banking.credentials.iterations when set;
+ * otherwise it is calibrated once at startup so that one verification on this
+ * machine takes about banking.credentials.targetMillis (default 25 ms), but
+ * never fewer than MIN_ITERATIONS. The count only ever goes up on rehash.
+ */
+public final class CredentialStore {
+
+    private static final Logger LOGGER = Logger.getLogger(CredentialStore.class.getName());
+
+    public static final String PREFIX = "pbkdf2-sha256$";
+    public static final int MIN_ITERATIONS = 100_000;
+    public static final int MAX_ITERATIONS = 10_000_000;
+    public static final long DEFAULT_TARGET_MILLIS = 25;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+    private static final int CALIBRATION_ITERATIONS = 20_000;
+    private static final int PASSWORD_COLUMN_SIZE = 255;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final LatencyHistogram VERIFY_LATENCY = new LatencyHistogram("credentials.verify");
+    private static final int ITERATIONS = configuredIterations();
+
+    // Verified against when the account does not exist, so unknown accounts cost the same time
+    private static final String DUMMY_HASH = hash("000000", ITERATIONS);
+
+    private static volatile boolean schemaChecked;
+
+    private CredentialStore() {
+    }
+
+    /**
+     * Hashes a secret at the current cost
+     * @param secret PIN or password
+     * @return Encoded credential
+     */
+    public static String hash(String secret) {
+        return hash(secret, ITERATIONS);
+    }
+
+    /**
+     * Hashes a secret at a given cost
+     * @param secret PIN or password
+     * @param iterations PBKDF2 iteration count
+     * @return Encoded credential
+     */
+    public static String hash(String secret, int iterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + base64.encodeToString(salt) + "$" +
+               base64.encodeToString(derive(secret, salt, iterations));
+    }
+
+    /**
+     * Checks a secret against a stored credential in time independent of where they differ
+     * @param secret PIN or password entered by the user
+     * @param stored Encoded credential, or a legacy plaintext value
+     * @return true if they match
+     */
+    public static boolean verify(String secret, String stored) {
+        if (secret == null || stored == null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            if (!stored.startsWith(PREFIX)) {
+                // Plaintext from before hashing; compared in constant time and upgraded on success
+                return MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8),
+                        stored.getBytes(StandardCharsets.UTF_8));
+            }
+            String[] parts = stored.substring(PREFIX.length()).split("\\$");
+            if (parts.length != 3) {
+                return false;
+            }
+            int iterations = Integer.parseInt(parts[0]);
+            Base64.Decoder base64 = Base64.getDecoder();
+            byte[] salt = base64.decode(parts[1]);
+            byte[] expected = base64.decode(parts[2]);
+            return MessageDigest.isEqual(expected, derive(secret, salt, iterations));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warning("Malformed stored credential");
+            return false;
+        } finally {
+            VERIFY_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * @param stored Encoded credential
+     * @return true if it is plaintext or cheaper than the current cost
+     */
+    public static boolean needsRehash(String stored) {
+        if (stored == null || !stored.startsWith(PREFIX)) {
+            return true;
+        }
+        int end = stored.indexOf('$', PREFIX.length());
+        try {
+            return end < 0 || Integer.parseInt(stored.substring(PREFIX.length(), end)) < ITERATIONS;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Verifies a login against the login table in one query that also resolves the
+     * account's role, upgrading the stored hash on success if needed
+     * @param connection Open database connection
+     * @param accountNo Account number
+     * @param secret PIN entered by the user
+     * @return Authenticated principal with the account's role, or a rejected one
+     * @throws SQLException if the lookup fails
+     */
+    public static LoginPrincipal authenticate(Connection connection, String accountNo, String secret)
+            throws SQLException {
+        String stored = null;
+        String role = null;
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT Login_Password, user_type FROM login WHERE Account_No = ?")) {
+            ps.setString(1, accountNo);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    stored = rs.getString(1);
+                    role = rs.getString(2);
+                }
+            }
+        }
+
+        if (stored == null) {
+            verify(secret, DUMMY_HASH);
+            return LoginPrincipal.rejected(accountNo);
+        }
+        if (!verify(secret, stored)) {
+            return LoginPrincipal.rejected(accountNo);
+        }
+        if (needsRehash(stored)) {
+            upgrade(connection, accountNo, stored, hash(secret));
+        }
+        return LoginPrincipal.authenticated(accountNo, role);
+    }
+
+    /**
+     * Widens login.Login_Password so it can hold an encoded credential; call before
+     * writing one. The column is checked once per process.
+     * @param connection Open database connection
+     * @throws SQLException if the lookup or ALTER fails
+     */
+    public static void ensureSchema(Connection connection) throws SQLException {
+        if (schemaChecked) {
+            return;
+        }
+        DatabaseMetaData meta = connection.getMetaData();
+        int size = Integer.MAX_VALUE;
+        try (ResultSet rs = meta.getColumns(connection.getCatalog(), null, "login", "Login_Password")) {
+            if (rs.next()) {
+                size = rs.getInt("COLUMN_SIZE");
+            }
+        }
+        if (size < PASSWORD_COLUMN_SIZE) {
+            LOGGER.info("Widening login.Login_Password from " + size + " to " + PASSWORD_COLUMN_SIZE);
+            try (Statement st = connection.createStatement()) {
+                st.executeUpdate("ALTER TABLE login MODIFY Login_Password VARCHAR(" + PASSWORD_COLUMN_SIZE + ")");
+            }
+        }
+        schemaChecked = true;
+    }
+
+    /**
+     * @return Iteration count new hashes use
+     */
+    public static int getIterations() {
+        return ITERATIONS;
+    }
+
+    /**
+     * @return Latency of verify() calls in this process
+     */
+    public static LatencyHistogram getVerifyLatency() {
+        return VERIFY_LATENCY;
+    }
+
+    /**
+     * Measures this machine and returns the iteration count that fits a time budget
+     * @param targetMillis Time one verification may take
+     * @return Iteration count, before clamping
+     */
+    public static int calibrate(long targetMillis) {
+        byte[] salt = new byte[SALT_BYTES];
+        for (int i = 0; i < 5; i++) {
+            derive("warmup", salt, CALIBRATION_ITERATIONS); // let the JIT compile HMAC first
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            derive("calibrate", salt, CALIBRATION_ITERATIONS);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double nanosPerIteration = (double) best / CALIBRATION_ITERATIONS;
+        return (int) Math.min(Integer.MAX_VALUE, targetMillis * 1_000_000L / nanosPerIteration);
+    }
+
+    private static int configuredIterations() {
+        Integer fixed = Integer.getInteger("banking.credentials.iterations");
+        if (fixed != null) {
+            return Math.max(1, fixed);
+        }
+        long target = Long.getLong("banking.credentials.targetMillis", DEFAULT_TARGET_MILLIS);
+        int calibrated = calibrate(target);
+        int iterations = Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, calibrated));
+        if (iterations != calibrated) {
+            LOGGER.warning("Credential cost for a " + target + " ms budget is " + calibrated +
+                           " iterations; clamped to " + iterations);
+        }
+        LOGGER.info("Credential hashing uses " + iterations + " PBKDF2 iterations");
+        return iterations;
+    }
+
+    private static void upgrade(Connection connection, String accountNo, String oldValue, String newValue)
+            throws SQLException {
+        ensureSchema(connection);
+        // Compare-and-set, so a concurrent PIN change is never overwritten
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE login SET Login_Password = ? WHERE Account_No = ? AND Login_Password = ?")) {
+            ps.setString(1, newValue);
+            ps.setString(2, accountNo);
+            ps.setString(3, oldValue);
+            if (ps.executeUpdate() > 0) {
+                LOGGER.fine("Upgraded stored credential for account " + accountNo);
+            }
+        }
+    }
+
+    private static byte[] derive(String secret, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(secret.toCharArray(), salt, iterations, HASH_BYTES * 8);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new IllegalStateException("PBKDF2WithHmacSHA256 is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -20,6 +20,7 @@ public class Deposit extends JFrame implements ActionListener
     JButton b1, b2;
     String pin;
     String Accountno;
+    private static final AccountService ACCOUNTS = new AccountService();
     Deposit(String pin, String Accountno) {
         this.pin = pin;
         this.Accountno= Accountno;
@@ -87,14 +88,13 @@ public class Deposit extends JFrame implements ActionListener
     public void actionPerformed(ActionEvent ae) {
         try {
             String amount = t1.getText();
-            Date date = new Date();
             this.Accountno=Accountno;
             if (ae.getSource() == b1) {
                 if (t1.getText().equals("")) {
                     JOptionPane.showMessageDialog(null, "Please enter the Amount to you want to Deposit");
                 } else {
-                    ConnectionSql c = new ConnectionSql();
-                    c.s.executeUpdate("insert into bank values('" + pin + "', '" + Accountno + "', '" + date + "', 'Deposit', '" + amount + "')");
+                    Money value = Money.parse(amount);
+                    ACCOUNTS.deposit(pin, Accountno, value);
                     JOptionPane.showMessageDialog(null, "Rs. " + amount + " Deposited Successfully");
                     
                     setVisible(false);
@@ -105,6 +105,9 @@ public class Deposit extends JFrame implements ActionListener
                 new Transactions(pin,Accountno).setVisible(true);
             }
         }
+        catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(null, "Please enter a valid Amount");
+        }
         catch (Exception e) {
             e.printStackTrace();
         }
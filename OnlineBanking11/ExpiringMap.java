@@ -0,0 +1,294 @@
+/*
+ * Online Banking System - Expiring Map
+ */
+package banking.management.system;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Concurrent map whose entries expire a fixed time after they were last touched.
+ * Entries live in a ConcurrentHashMap and are also placed on a hashed timer wheel:
+ * an array of slots, one per tick, that a shared background thread advances once
+ * per tick, so expiry work is proportional to the entries due in that slot rather
+ * than to the size of the map. Touching an entry only moves its deadline; when its
+ * slot comes round and the deadline has moved, the entry is re-filed under the new
+ * deadline. Lookups check the deadline themselves, so an entry is never returned
+ * after it expired even if the wheel has not reached it yet.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class ExpiringMap<K, V> implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(ExpiringMap.class.getName());
+
+    public static final long DEFAULT_TICK_MILLIS = 1_000;
+    public static final int DEFAULT_WHEEL_SIZE = 1024;
+
+    private static final ScheduledExecutorService TICKER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "expiring-map-wheel");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String name;
+    private final long ttlNanos;
+    private final long tickNanos;
+    private final int mask;
+    private final long origin = System.nanoTime();
+    private final ConcurrentHashMap<K, Node<K, V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Node<K, V>>[] wheel;
+    private final ScheduledFuture<?> ticking;
+    private long processedTick;
+
+    private final LongAdder expired = new LongAdder();
+    private long rateSampleAt = System.nanoTime();
+    private long rateSampleExpired;
+    private volatile double expiredPerSecond;
+
+    /**
+     * An entry and its current deadline
+     */
+    private static final class Node<K, V> {
+        private final K key;
+        private final V value;
+        private volatile long deadline;
+
+        Node(K key, V value, long deadline) {
+            this.key = key;
+            this.value = value;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * @param name Name used in metrics
+     * @param ttlMillis Time an entry lives after it was last touched
+     */
+    public ExpiringMap(String name, long ttlMillis) {
+        this(name, ttlMillis, DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * @param name Name used in metrics
+     * @param ttlMillis Time an entry lives after it was last touched
+     * @param tickMillis Wheel resolution; entries are removed at most about one tick late
+     * @param wheelSize Number of slots, rounded up to a power of two
+     */
+    public ExpiringMap(String name, long ttlMillis, long tickMillis, int wheelSize) {
+        if (ttlMillis <= 0 || tickMillis <= 0 || wheelSize < 1) {
+            throw new IllegalArgumentException("Invalid expiry settings for " + name);
+        }
+        this.name = name;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.mask = size - 1;
+        this.wheel = newWheel(size);
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.ticking = TICKER.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stores a value with a fresh deadline, replacing any previous one
+     * @param key Key
+     * @param value Value
+     */
+    public void put(K key, V value) {
+        Node<K, V> node = new Node<>(key, value, System.nanoTime() + ttlNanos);
+        entries.put(key, node);
+        schedule(node);
+    }
+
+    /**
+     * Stores a value unless the key already has a live one
+     * @param key Key
+     * @param value Value
+     * @return The live value already present, or null if this value was stored
+     */
+    public V putIfAbsent(K key, V value) {
+        Node<K, V> node = new Node<>(key, value, System.nanoTime() + ttlNanos);
+        while (true) {
+            Node<K, V> existing = entries.putIfAbsent(key, node);
+            if (existing == null) {
+                schedule(node);
+                return null;
+            }
+            if (existing.deadline - System.nanoTime() > 0) {
+                return existing.value;
+            }
+            if (entries.replace(key, existing, node)) {
+                expired.increment();
+                schedule(node);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @param key Key
+     * @return The live value, or null if absent or expired
+     */
+    public V get(K key) {
+        Node<K, V> node = live(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Returns the live value and pushes its deadline back by the time-to-live
+     * @param key Key
+     * @return The live value, or null if absent or expired
+     */
+    public V touch(K key) {
+        Node<K, V> node = live(key);
+        if (node == null) {
+            return null;
+        }
+        node.deadline = System.nanoTime() + ttlNanos;
+        return node.value;
+    }
+
+    /**
+     * @param key Key
+     * @return The removed live value, or null if absent or expired
+     */
+    public V remove(K key) {
+        Node<K, V> node = entries.remove(key);
+        return node == null || node.deadline - System.nanoTime() <= 0 ? null : node.value;
+    }
+
+    /**
+     * Removes a key only while it still maps to the given value, so of several
+     * threads racing to consume the same entry exactly one succeeds
+     * @param key Key
+     * @param value Value expected
+     * @return true if this call removed a live entry
+     */
+    public boolean remove(K key, V value) {
+        Node<K, V> node = entries.get(key);
+        return node != null && node.value == value && entries.remove(key, node)
+               && node.deadline - System.nanoTime() > 0;
+    }
+
+    /**
+     * @return Entries held, including any expired entries the wheel has not reached yet
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Entries removed by expiry since creation
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * @return Entries expired per second, measured over roughly the last second
+     */
+    public double getExpiredPerSecond() {
+        return expiredPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return name + "{live=" + size() + ", expired=" + getExpiredCount() +
+               ", expiredPerSecond=" + String.format("%.1f", getExpiredPerSecond()) + "}";
+    }
+
+    /**
+     * Stops the wheel for this map; entries still expire on lookup
+     */
+    @Override
+    public void close() {
+        ticking.cancel(false);
+    }
+
+    private Node<K, V> live(K key) {
+        Node<K, V> node = entries.get(key);
+        if (node == null) {
+            return null;
+        }
+        if (node.deadline - System.nanoTime() <= 0) {
+            if (entries.remove(key, node)) {
+                expired.increment();
+            }
+            return null;
+        }
+        return node;
+    }
+
+    private void schedule(Node<K, V> node) {
+        wheel[(int) (tickOf(node.deadline) & mask)].offer(node);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> ConcurrentLinkedQueue<Node<K, V>>[] newWheel(int size) {
+        return (ConcurrentLinkedQueue<Node<K, V>>[]) new ConcurrentLinkedQueue<?>[size];
+    }
+
+    private long tickOf(long nanos) {
+        // Round up so a node is never examined before its deadline
+        return (nanos - origin + tickNanos - 1) / tickNanos;
+    }
+
+    /**
+     * Drains every slot between the last processed tick and now; runs on the ticker thread
+     */
+    private void tick() {
+        try {
+            long now = System.nanoTime();
+            long currentTick = (now - origin) / tickNanos;
+            // After a long stall one full rotation already covers every slot
+            long from = Math.max(processedTick + 1, currentTick - mask);
+            for (long t = from; t <= currentTick; t++) {
+                drain(wheel[(int) (t & mask)], now);
+            }
+            processedTick = currentTick;
+            sampleRate(now);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Expiry tick failed for " + name, e);
+        }
+    }
+
+    private void drain(ConcurrentLinkedQueue<Node<K, V>> slot, long now) {
+        // Only look at what was in the slot when we started; re-filed nodes go to later slots
+        for (int n = slot.size(); n > 0; n--) {
+            Node<K, V> node = slot.poll();
+            if (node == null) {
+                return;
+            }
+            if (entries.get(node.key) != node) {
+                continue; // removed or replaced since it was filed
+            }
+            if (node.deadline - now <= 0) {
+                if (entries.remove(node.key, node)) {
+                    expired.increment();
+                }
+            } else {
+                schedule(node);
+            }
+        }
+    }
+
+    private void sampleRate(long now) {
+        long elapsed = now - rateSampleAt;
+        if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+            long total = expired.sum();
+            expiredPerSecond = (total - rateSampleExpired) * 1e9 / elapsed;
+            rateSampleExpired = total;
+            rateSampleAt = now;
+        }
+    }
+}
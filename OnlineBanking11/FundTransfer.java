@@ -6,10 +6,6 @@ package banking.management.system;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.sql.*;
-import java.util.Date;
-import java.text.SimpleDateFormat;
-import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,9 +23,10 @@ public class FundTransfer extends JFrame implements ActionListener {
     
     private String pin;
     private String accountNo;
-    private double availableBalance;
+    private Money availableBalance = Money.ZERO;
     private static final Logger LOGGER = Logger.getLogger(FundTransfer.class.getName());
-    private Connection connection;
+    private final AccountService accountService = new AccountService();
+    private final TransferService transferService = new TransferService();
 
     /**
      * Constructor for Fund Transfer screen
@@ -39,7 +36,6 @@ public class FundTransfer extends JFrame implements ActionListener {
     public FundTransfer(String pin, String accountNo) {
         this.pin = pin;
         this.accountNo = accountNo;
-        connection = ConnectionSql.Connector();
         
         setLayout(null);
         getContentPane().setBackground(new Color(204, 229, 255));
@@ -174,21 +170,7 @@ public class FundTransfer extends JFrame implements ActionListener {
      */
     private void loadAvailableBalance() {
         try {
-            ConnectionSql c = new ConnectionSql();
-            int balance = 0;
-            ResultSet rs = c.s.executeQuery("SELECT * FROM bank WHERE Login_Password = '" + pin + 
-                                          "' AND Account_No = '" + accountNo + "'");
-            
-            while (rs.next()) {
-                if (rs.getString("type").equals("Deposit")) {
-                    balance += Integer.parseInt(rs.getString("amount"));
-                } else {
-                    balance -= Integer.parseInt(rs.getString("amount"));
-                }
-            }
-            
-            this.availableBalance = balance;
-            
+            this.availableBalance = accountService.getBalance(accountNo);
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error loading available balance", e);
         }
@@ -212,11 +194,8 @@ public class FundTransfer extends JFrame implements ActionListener {
      */
     private void loadAllAccounts(JComboBox<String> comboBox) {
         try {
-            ConnectionSql c = new ConnectionSql();
-            ResultSet rs = c.s.executeQuery("SELECT DISTINCT Account_No FROM login WHERE Account_No != '" + accountNo + "'");
-            
-            while (rs.next()) {
-                comboBox.addItem(rs.getString("Account_No"));
+            for (String destination : transferService.destinationAccounts(accountNo)) {
+                comboBox.addItem(destination);
             }
             
             // Add option for external accounts
@@ -235,7 +214,7 @@ public class FundTransfer extends JFrame implements ActionListener {
      * @param description Transfer description
      * @return true if user confirms, false otherwise
      */
-    private boolean showConfirmationDialog(String sourceAccount, String destAccount, double amount, String description) {
+    private boolean showConfirmationDialog(String sourceAccount, String destAccount, Money amount, String description) {
         // Clear confirmation panel
         confirmationPanel.removeAll();
         
@@ -279,12 +258,13 @@ public class FundTransfer extends JFrame implements ActionListener {
         
         // Custom confirmation dialog with action listeners
         final boolean[] result = {false}; // Use array to make it effectively final
+        final String transactionRef = transferService.newReference();
         
         confirmButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
                 result[0] = true;
                 confirmationPanel.setVisible(false);
-                processTransfer();
+                processTransfer(destAccount, amount, description, transactionRef);
             }
         });
         
@@ -298,112 +278,50 @@ public class FundTransfer extends JFrame implements ActionListener {
     }
     
     /**
-     * Process the fund transfer transaction
+     * Process the fund transfer transaction through the transfer engine
+     * @param toAccount Destination account number
+     * @param amount Transfer amount
+     * @param description Transfer description
+     * @param transactionRef Reference generated when the confirmation was shown
      */
-    private void processTransfer() {
-        try {
-            String fromAccount = accountNo;
-            String toAccount = toAccountCombo.getSelectedItem().toString();
-            
-            // Check if it's an "Enter External Account" option
-            if (toAccount.equals("Enter External Account...")) {
-                toAccount = JOptionPane.showInputDialog("Enter external account number:");
-                if (toAccount == null || toAccount.trim().isEmpty()) {
-                    JOptionPane.showMessageDialog(this, "Invalid account number.", "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-            } else if (toAccount.contains(" ")) {
-                // Extract account number if it has additional text
-                toAccount = toAccount.split(" ")[0];
-            }
-            
-            double amount = Double.parseDouble(amountField.getText());
-            String description = descriptionField.getText();
-            
-            // Validate amount
-            if (amount <= 0) {
-                JOptionPane.showMessageDialog(this, "Please enter a valid amount.", "Error", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-            
-            // Check sufficient funds
-            if (amount > availableBalance) {
-                JOptionPane.showMessageDialog(this, "Insufficient funds.", "Error", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-            
-            // Generate transaction reference
-            String transactionRef = generateTransactionReference();
-            Date date = new Date();
-            SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            String timestamp = formatter.format(date);
-            
-            ConnectionSql c = new ConnectionSql();
-            
-            // Debit source account
-            String debitQuery = "INSERT INTO bank VALUES(?, ?, ?, ?, ?, ?, ?)";
-            PreparedStatement pstmt = connection.prepareStatement(debitQuery);
-            pstmt.setString(1, pin);
-            pstmt.setString(2, fromAccount);
-            pstmt.setString(3, timestamp);
-            pstmt.setString(4, "Transfer-Out");
-            pstmt.setString(5, String.valueOf(amount));
-            pstmt.setString(6, description);
-            pstmt.setString(7, transactionRef);
-            pstmt.executeUpdate();
-            
-            // Credit destination account
-            String creditQuery = "INSERT INTO bank VALUES(?, ?, ?, ?, ?, ?, ?)";
-            pstmt = connection.prepareStatement(creditQuery);
-            pstmt.setString(1, ""); // No PIN for recipient
-            pstmt.setString(2, toAccount);
-            pstmt.setString(3, timestamp);
-            pstmt.setString(4, "Transfer-In");
-            pstmt.setString(5, String.valueOf(amount));
-            pstmt.setString(6, description);
-            pstmt.setString(7, transactionRef);
-            pstmt.executeUpdate();
-            
-            // Generate receipt
-            String receiptMessage = 
-                "Transaction Successful!\n\n" +
-                "Transaction Reference: " + transactionRef + "\n" +
-                "Date: " + timestamp + "\n" +
-                "From Account: " + maskAccountNumber(fromAccount) + "\n" +
-                "To Account: " + maskAccountNumber(toAccount) + "\n" +
-                "Amount: $" + amount + "\n" +
-                "Description: " + (description.isEmpty() ? "N/A" : description) + "\n\n" +
-                "Thank you for using our banking services.";
-            
-            JOptionPane.showMessageDialog(this, receiptMessage, "Transaction Receipt", JOptionPane.INFORMATION_MESSAGE);
-            
-            // Clear fields
-            amountField.setText("");
-            descriptionField.setText("");
-            
-            // Update available balance
-            loadAvailableBalance();
-            
-            // Trigger notification if amount is large (> $1000)
-            if (amount > 1000) {
-                // This would typically call the NotificationService
-                LOGGER.info("Large transfer notification triggered for amount: $" + amount);
+    private void processTransfer(String toAccount, Money amount, String description, String transactionRef) {
+        String fromAccount = accountNo;
+        
+        TransferEngine.TransferResult result = transferService.transfer(
+                pin, fromAccount, toAccount, amount, description, transactionRef);
+        
+        if (result.getStatus() == TransferEngine.Status.DUPLICATE) {
+            // Confirm pressed twice for the same transfer; the first one already went through
+            return;
+        }
+        
+        if (!result.isSuccess()) {
+            if (result.getStatus() == TransferEngine.Status.INSUFFICIENT_FUNDS) {
+                this.availableBalance = result.getSourceBalance();
             }
-            
-        } catch (NumberFormatException e) {
-            JOptionPane.showMessageDialog(this, "Please enter a valid amount.", "Error", JOptionPane.ERROR_MESSAGE);
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error processing transfer", e);
-            JOptionPane.showMessageDialog(this, "Transfer failed: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            JOptionPane.showMessageDialog(this, result.getMessage() + ".", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
         }
-    }
-    
-    /**
-     * Generate a unique transaction reference
-     * @return Unique transaction reference string
-     */
-    private String generateTransactionReference() {
-        return "TXN" + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        
+        // Generate receipt
+        String receiptMessage = 
+            "Transaction Successful!\n\n" +
+            "Transaction Reference: " + transactionRef + "\n" +
+            "Date: " + result.getTimestamp() + "\n" +
+            "From Account: " + maskAccountNumber(fromAccount) + "\n" +
+            "To Account: " + maskAccountNumber(toAccount) + "\n" +
+            "Amount: $" + amount + "\n" +
+            "Description: " + (description.isEmpty() ? "N/A" : description) + "\n\n" +
+            "Thank you for using our banking services.";
+        
+        JOptionPane.showMessageDialog(this, receiptMessage, "Transaction Receipt", JOptionPane.INFORMATION_MESSAGE);
+        
+        // Clear fields
+        amountField.setText("");
+        descriptionField.setText("");
+        
+        // Update available balance
+        this.availableBalance = result.getSourceBalance();
     }
     
     /**
@@ -439,9 +357,9 @@ public class FundTransfer extends JFrame implements ActionListener {
                     toAccount = toAccount.split(" ")[0];
                 }
                 
-                double amount = 0;
+                Money amount;
                 try {
-                    amount = Double.parseDouble(amountField.getText());
+                    amount = Money.parse(amountField.getText());
                 } catch (NumberFormatException e) {
                     JOptionPane.showMessageDialog(this, "Please enter a valid amount.", "Error", JOptionPane.ERROR_MESSAGE);
                     return;
@@ -456,12 +374,12 @@ public class FundTransfer extends JFrame implements ActionListener {
                     return;
                 }
                 
-                if (amount <= 0) {
+                if (!amount.isPositive()) {
                     JOptionPane.showMessageDialog(this, "Please enter a valid amount.", "Error", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
                 
-                if (amount > availableBalance) {
+                if (amount.isGreaterThan(availableBalance)) {
                     JOptionPane.showMessageDialog(this, "Insufficient funds.", "Error", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
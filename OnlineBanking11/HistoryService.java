@@ -0,0 +1,266 @@
+/*
+ * Online Banking System - History Service
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Headless transaction history, newest first, with keyset pagination on
+ * (date, reference). A {@link Cursor} carries the position after the last row
+ * of a page and the running balance there, so any page can be fetched with one
+ * indexed query and its balances need no pass over earlier rows. Used by the
+ * history table model and the HTTP API. Safe to share between threads.
+ */
+public class HistoryService {
+
+    /**
+     * Size of a filtered window and the balance after its newest row
+     */
+    public static final class Summary {
+        private final int rowCount;
+        private final long closingBalance;
+
+        Summary(int rowCount, long closingBalance) {
+            this.rowCount = rowCount;
+            this.closingBalance = closingBalance;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * @return Balance after the newest row of the window, in minor units
+         */
+        public long getClosingBalance() {
+            return closingBalance;
+        }
+
+        /**
+         * @return Cursor of the first page
+         */
+        public Cursor start() {
+            return new Cursor(null, null, closingBalance);
+        }
+    }
+
+    /**
+     * Keyset position and running balance at the start of a page
+     */
+    public static final class Cursor {
+        private final String afterDate;
+        private final String afterReference;
+        private final long balance;
+
+        /**
+         * @param afterDate Date of the last row already shown, or null for the first page
+         * @param afterReference Reference of that row ("" if it had none)
+         * @param balance Balance after the first row of the page, in minor units
+         */
+        public Cursor(String afterDate, String afterReference, long balance) {
+            this.afterDate = afterDate;
+            this.afterReference = afterReference;
+            this.balance = balance;
+        }
+
+        public String getAfterDate() {
+            return afterDate;
+        }
+
+        public String getAfterReference() {
+            return afterReference;
+        }
+
+        public long getBalance() {
+            return balance;
+        }
+    }
+
+    /**
+     * One ledger row with the balance after it
+     */
+    public static final class Entry {
+        private final String date;
+        private final String description;
+        private final String reference;
+        private final String type;
+        private final long amount;
+        private final long balance;
+
+        Entry(String date, String description, String reference, String type, long amount, long balance) {
+            this.date = date;
+            this.description = description;
+            this.reference = reference;
+            this.type = type;
+            this.amount = amount;
+            this.balance = balance;
+        }
+
+        public String getDate() {
+            return date;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * @return Reference, or null for legacy rows without one
+         */
+        public String getReference() {
+            return reference;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * @return Unsigned amount in minor units
+         */
+        public long getAmount() {
+            return amount;
+        }
+
+        /**
+         * @return Balance after this row, in minor units
+         */
+        public long getBalance() {
+            return balance;
+        }
+
+        public boolean isCredit() {
+            return AccountBalanceStore.isCredit(type);
+        }
+    }
+
+    /**
+     * Rows of one page plus the cursor of the page after it
+     */
+    public static final class Page {
+        private final List<Entry> entries;
+        private final Cursor next;
+
+        Page(List<Entry> entries, Cursor next) {
+            this.entries = entries;
+            this.next = next;
+        }
+
+        public List<Entry> getEntries() {
+            return entries;
+        }
+
+        public Cursor getNext() {
+            return next;
+        }
+    }
+
+    private final LatencyHistogram pageLatency = new LatencyHistogram("history.page");
+
+    /**
+     * Runs one aggregate query for the row count and the net change of the
+     * window and adds the opening balance (see {@link #openingBalance}).
+     * @param query Filter
+     * @return Row count and closing balance of the window
+     * @throws SQLException if the aggregate or opening balance query fails
+     */
+    public Summary summarize(TransactionQuery query) throws SQLException {
+        String sql = "SELECT COUNT(*), COALESCE(SUM(" + LedgerSchema.SIGNED_AMOUNT_MINOR + "), 0) " +
+                     "FROM bank WHERE " + query.whereClause();
+
+        try (Connection connection = ConnectionPool.borrow()) {
+            long closingBalance = openingBalance(connection, query);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                query.bind(ps, 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return new Summary(rs.getInt(1), closingBalance + rs.getLong(2));
+                }
+            }
+        }
+    }
+
+    /**
+     * Balance a window's running balance starts from. Without a type or amount
+     * filter every row of the window is shown, so the column is the account
+     * balance and starts from the balance before the window, taken from the
+     * latest daily snapshot. With one, rows are missing from the window, so the
+     * column is a running total of the matching rows and starts from zero.
+     * @param connection Open database connection
+     * @param query Filter
+     * @return Opening balance in minor units
+     * @throws SQLException if the snapshot lookup fails
+     */
+    static long openingBalance(Connection connection, TransactionQuery query) throws SQLException {
+        if (query.filtersRows()) {
+            return 0;
+        }
+        return BalanceSnapshotStore.balanceBefore(connection, query.getAccountNo(), query.getFromDate()).getMinorUnits();
+    }
+
+    /**
+     * Fetches one page after the cursor
+     * @param query Filter
+     * @param cursor Position from {@link Summary#start()} or the previous {@link Page#getNext()}
+     * @param limit Maximum rows
+     * @return The page; empty past the last row
+     * @throws SQLException if the query fails
+     */
+    public Page page(TransactionQuery query, Cursor cursor, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT date, description, type, ")
+                .append(LedgerSchema.AMOUNT_MINOR).append(" AS amount_minor, reference FROM bank WHERE ")
+                .append(query.whereClause());
+        if (cursor.afterDate != null) {
+            sql.append(" AND (date < ? OR (date = ? AND COALESCE(reference, '') < ?))");
+        }
+        sql.append(" ORDER BY date DESC, reference DESC LIMIT ?");
+
+        List<Entry> entries = new ArrayList<>(limit);
+        long balance = cursor.balance;
+        String lastDate = cursor.afterDate;
+        String lastReference = cursor.afterReference;
+
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionPool.borrow();
+             PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+            int i = query.bind(ps, 1);
+            if (cursor.afterDate != null) {
+                ps.setString(i++, cursor.afterDate);
+                ps.setString(i++, cursor.afterDate);
+                ps.setString(i++, cursor.afterReference);
+            }
+            ps.setInt(i, limit);
+            ps.setFetchSize(limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String date = rs.getString("date");
+                    String type = rs.getString("type");
+                    long amount = rs.getLong("amount_minor");
+                    String reference = rs.getString("reference");
+
+                    // Balance shown on a row is the balance after it; walking newest-first we undo each row
+                    entries.add(new Entry(date, rs.getString("description"), reference, type, amount, balance));
+                    balance -= Money.signedMinor(type, amount);
+
+                    lastDate = date;
+                    lastReference = reference != null ? reference : "";
+                }
+            }
+        } finally {
+            pageLatency.recordSince(start);
+        }
+        return new Page(Collections.unmodifiableList(entries), new Cursor(lastDate, lastReference, balance));
+    }
+
+    public LatencyHistogram getPageLatency() {
+        return pageLatency;
+    }
+}
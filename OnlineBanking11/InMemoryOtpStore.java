@@ -0,0 +1,41 @@
+/*
+ * Online Banking System - In-Memory OTP Store
+ */
+package banking.management.system;
+
+/**
+ * OTP store for a single node, backed by an {@link ExpiringMap}
+ */
+public class InMemoryOtpStore implements OtpStore {
+
+    private final ExpiringMap<String, String> otps;
+
+    /**
+     * @param ttlMillis Time an OTP stays valid after it is issued
+     */
+    public InMemoryOtpStore(long ttlMillis) {
+        otps = new ExpiringMap<>("security.otps", ttlMillis);
+    }
+
+    @Override
+    public void put(String accountNo, String otp) {
+        otps.put(accountNo, otp);
+    }
+
+    @Override
+    public boolean consume(String accountNo, String otp) {
+        String issued = otps.get(accountNo);
+        // Conditional remove: of several concurrent verifications only one can win
+        return issued != null && issued.equals(otp) && otps.remove(accountNo, issued);
+    }
+
+    @Override
+    public void close() {
+        otps.close();
+    }
+
+    @Override
+    public String toString() {
+        return otps.toString();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Online Banking System - In-Memory Session Store
+ */
+package banking.management.system;
+
+/**
+ * Session store for a single node, backed by an {@link ExpiringMap}
+ */
+public class InMemorySessionStore implements SessionStore {
+
+    private final ExpiringMap<String, String> sessions;
+
+    /**
+     * @param ttlMillis Idle time after which a session expires
+     */
+    public InMemorySessionStore(long ttlMillis) {
+        this("security.sessions", ttlMillis);
+    }
+
+    /**
+     * @param name Name of the store in its statistics
+     * @param ttlMillis Idle time after which a session expires
+     */
+    public InMemorySessionStore(String name, long ttlMillis) {
+        sessions = new ExpiringMap<>(name, ttlMillis);
+    }
+
+    @Override
+    public void create(String accountNo) {
+        sessions.put(accountNo, accountNo);
+    }
+
+    @Override
+    public boolean touch(String accountNo) {
+        return sessions.touch(accountNo) != null;
+    }
+
+    @Override
+    public void end(String accountNo) {
+        sessions.remove(accountNo);
+    }
+
+    @Override
+    public int getLiveCount() {
+        return sessions.size();
+    }
+
+    @Override
+    public double getExpiredPerSecond() {
+        return sessions.getExpiredPerSecond();
+    }
+
+    @Override
+    public void close() {
+        sessions.close();
+    }
+
+    @Override
+    public String toString() {
+        return sessions.toString();
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Online Banking System - JDBC OTP Store
+ */
+package banking.management.system;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * OTP store shared by every node through the security_otp table, so an OTP
+ * issued on one node verifies on any other. Only an HMAC-SHA256 of the OTP,
+ * keyed with a server-side secret, is stored, so the six-digit OTPs cannot be
+ * recovered from a copy of the table by trying all of them. Verification is a
+ * single conditional DELETE, which makes it single-use across nodes without
+ * any locking. Expired rows are swept once a minute.
+ *
+ * Settings: banking.security.otpKey, the secret shared by every node; required,
+ * since a key of one node's own would only verify the OTPs that node issued.
+ */
+public class JdbcOtpStore implements OtpStore {
+
+    private static final Logger LOGGER = Logger.getLogger(JdbcOtpStore.class.getName());
+    private static final long SWEEP_INTERVAL_MILLIS = 60_000;
+
+    static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS security_otp (" +
+            "account_no VARCHAR(30) NOT NULL PRIMARY KEY, " +
+            "otp_hash CHAR(64) NOT NULL, " +
+            "expires_at BIGINT NOT NULL)";
+
+    private final ConnectionPool pool;
+    private final long ttlMillis;
+    private final SecretKeySpec key;
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * @param pool Pool of the shared database
+     * @param ttlMillis Time an OTP stays valid after it is issued
+     * @throws IllegalStateException if banking.security.otpKey is not set
+     */
+    public JdbcOtpStore(ConnectionPool pool, long ttlMillis) {
+        this.pool = pool;
+        this.ttlMillis = ttlMillis;
+        this.key = new SecretKeySpec(loadKey(), "HmacSHA256");
+
+        try (Connection connection = pool.getConnection()) {
+            ensureTable(connection);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Could not verify the security_otp table", e);
+        }
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "otp-store-sweep");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates the OTP table if it does not exist yet
+     * @param connection Open database connection
+     * @throws SQLException if the DDL fails
+     */
+    public static void ensureTable(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate(CREATE_TABLE);
+        }
+    }
+
+    @Override
+    public void put(String accountNo, String otp) {
+        String hash = digest(accountNo, otp);
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        try (Connection connection = pool.getConnection()) {
+            if (update(connection, accountNo, hash, expiresAt) == 0) {
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "INSERT INTO security_otp (account_no, otp_hash, expires_at) VALUES (?, ?, ?)")) {
+                    ps.setString(1, accountNo);
+                    ps.setString(2, hash);
+                    ps.setLong(3, expiresAt);
+                    ps.executeUpdate();
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    // Issued concurrently on another node; the latest OTP wins
+                    update(connection, accountNo, hash, expiresAt);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to store OTP for account " + accountNo, e);
+        }
+    }
+
+    @Override
+    public boolean consume(String accountNo, String otp) {
+        if (otp == null) {
+            return false;
+        }
+        try (Connection connection = pool.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "DELETE FROM security_otp WHERE account_no = ? AND otp_hash = ? AND expires_at > ?")) {
+            ps.setString(1, accountNo);
+            ps.setString(2, digest(accountNo, otp));
+            ps.setLong(3, System.currentTimeMillis());
+            return ps.executeUpdate() == 1;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "OTP verification failed for account " + accountNo, e);
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+
+    private int update(Connection connection, String accountNo, String hash, long expiresAt) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE security_otp SET otp_hash = ?, expires_at = ? WHERE account_no = ?")) {
+            ps.setString(1, hash);
+            ps.setLong(2, expiresAt);
+            ps.setString(3, accountNo);
+            return ps.executeUpdate();
+        }
+    }
+
+    private void sweep() {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement ps = connection.prepareStatement("DELETE FROM security_otp WHERE expires_at <= ?")) {
+            ps.setLong(1, System.currentTimeMillis());
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to sweep expired OTPs", e);
+        }
+    }
+
+    /**
+     * @return Bytes of banking.security.otpKey
+     * @throws IllegalStateException if it is not set
+     */
+    private static byte[] loadKey() {
+        String secret = System.getProperty("banking.security.otpKey");
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalStateException("banking.security.otpKey must be set for the jdbc OTP store");
+        }
+        return secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Hex HMAC-SHA256 of the account number and OTP
+     */
+    private String digest(String accountNo, String otp) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            byte[] hash = mac.doFinal((accountNo + ':' + otp).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
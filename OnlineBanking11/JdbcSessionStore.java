@@ -0,0 +1,302 @@
+/*
+ * Online Banking System - JDBC Session Store
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Session store shared by every node through the security_session table.
+ * Validity checks read the row by primary key, but activity is not written on
+ * every check: the latest activity per account is buffered and written in one
+ * batched UPDATE per flush interval. A check also honours activity still in
+ * this node's buffer, so a session never times out because of the delay; the
+ * interval only has to stay well below the session timeout for other nodes to
+ * see the activity in time. Expired rows are swept periodically.
+ *
+ * The same table layout, under http_session and keyed by bearer token, holds
+ * the sessions of the HTTP API.
+ */
+public class JdbcSessionStore implements SessionStore {
+
+    private static final Logger LOGGER = Logger.getLogger(JdbcSessionStore.class.getName());
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 5_000;
+    private static final int FLUSHES_PER_SWEEP = 12;
+
+    static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS %s (" +
+            "%s VARCHAR(%d) NOT NULL PRIMARY KEY, " +
+            "created_at BIGINT NOT NULL, " +
+            "expires_at BIGINT NOT NULL)";
+
+    private final ConnectionPool pool;
+    private final String table;
+    private final String keyColumn;
+    private final long ttlMillis;
+    private final long flushIntervalMillis;
+    private final Map<String, Long> pendingActivity = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private int flushesSinceSweep;
+    private long lastSweepAt = System.currentTimeMillis();
+    private volatile double expiredPerSecond;
+
+    private final LongAdder touches = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LatencyHistogram flushLatency = new LatencyHistogram("security.session.flush");
+
+    /**
+     * @param pool Pool of the shared database
+     * @param ttlMillis Idle time after which a session expires
+     * @param flushIntervalMillis How often buffered activity is written
+     */
+    public JdbcSessionStore(ConnectionPool pool, long ttlMillis, long flushIntervalMillis) {
+        this(pool, "security_session", "account_no", 30, ttlMillis, flushIntervalMillis);
+    }
+
+    /**
+     * @param pool Pool of the shared database
+     * @param table Session table, created if missing
+     * @param keyColumn Primary key column holding the session key
+     * @param keyLength Longest session key
+     * @param ttlMillis Idle time after which a session expires
+     * @param flushIntervalMillis How often buffered activity is written
+     */
+    JdbcSessionStore(ConnectionPool pool, String table, String keyColumn, int keyLength, long ttlMillis,
+                     long flushIntervalMillis) {
+        this.pool = pool;
+        this.table = table;
+        this.keyColumn = keyColumn;
+        this.ttlMillis = ttlMillis;
+        this.flushIntervalMillis = flushIntervalMillis;
+
+        try (Connection connection = pool.getConnection()) {
+            ensureTable(connection, table, keyColumn, keyLength);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Could not verify the " + table + " table", e);
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, table + "-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAndSweep, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates the session table and its expiry index if they do not exist yet
+     * @param connection Open database connection
+     * @throws SQLException if the DDL fails
+     */
+    public static void ensureTable(Connection connection) throws SQLException {
+        ensureTable(connection, "security_session", "account_no", 30);
+    }
+
+    private static void ensureTable(Connection connection, String table, String keyColumn, int keyLength)
+            throws SQLException {
+        String expiryIndex = "idx_" + table + "_expires";
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate(String.format(CREATE_TABLE, table, keyColumn, keyLength));
+            if (!LedgerSchema.existingIndexes(connection, table).contains(expiryIndex)) {
+                st.executeUpdate("CREATE INDEX " + expiryIndex + " ON " + table + " (expires_at)");
+            }
+        }
+    }
+
+    @Override
+    public void create(String accountNo) {
+        long now = System.currentTimeMillis();
+        pendingActivity.remove(accountNo);
+        try (Connection connection = pool.getConnection()) {
+            if (updateSession(connection, accountNo, now) == 0) {
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "INSERT INTO " + table + " (" + keyColumn + ", created_at, expires_at) VALUES (?, ?, ?)")) {
+                    ps.setString(1, accountNo);
+                    ps.setLong(2, now);
+                    ps.setLong(3, now + ttlMillis);
+                    ps.executeUpdate();
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    // Another node created it between our UPDATE and INSERT
+                    updateSession(connection, accountNo, now);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to create session for account " + accountNo, e);
+        }
+    }
+
+    @Override
+    public boolean touch(String accountNo) {
+        long now = System.currentTimeMillis();
+        long expiresAt;
+        try (Connection connection = pool.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT expires_at FROM " + table + " WHERE " + keyColumn + " = ?")) {
+            ps.setString(1, accountNo);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    pendingActivity.remove(accountNo);
+                    return false;
+                }
+                expiresAt = rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Session lookup failed for account " + accountNo, e);
+            return false;
+        }
+
+        Long buffered = pendingActivity.get(accountNo);
+        if (buffered != null) {
+            expiresAt = Math.max(expiresAt, buffered + ttlMillis);
+        }
+        if (expiresAt <= now) {
+            return false;
+        }
+        pendingActivity.merge(accountNo, now, Math::max);
+        touches.increment();
+        return true;
+    }
+
+    @Override
+    public void end(String accountNo) {
+        pendingActivity.remove(accountNo);
+        try (Connection connection = pool.getConnection();
+             PreparedStatement ps = connection.prepareStatement("DELETE FROM " + table + " WHERE " + keyColumn + " = ?")) {
+            ps.setString(1, accountNo);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to end session for account " + accountNo, e);
+        }
+    }
+
+    @Override
+    public int getLiveCount() {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT COUNT(*) FROM " + table + " WHERE expires_at > ?")) {
+            ps.setLong(1, System.currentTimeMillis());
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to count live sessions", e);
+            return 0;
+        }
+    }
+
+    @Override
+    public double getExpiredPerSecond() {
+        return expiredPerSecond;
+    }
+
+    /**
+     * Writes all buffered activity in one batch
+     * @return Sessions updated
+     */
+    int flush() {
+        if (pendingActivity.isEmpty()) {
+            return 0;
+        }
+        List<String> accounts = new ArrayList<>();
+        List<Long> activity = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : pendingActivity.entrySet()) {
+            // Only take entries nobody touched meanwhile; newer activity waits for the next flush
+            if (pendingActivity.remove(entry.getKey(), entry.getValue())) {
+                accounts.add(entry.getKey());
+                activity.add(entry.getValue());
+            }
+        }
+
+        long start = System.nanoTime();
+        try (Connection connection = pool.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "UPDATE " + table + " SET expires_at = GREATEST(expires_at, ?) WHERE " + keyColumn + " = ?")) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < accounts.size(); i++) {
+                ps.setLong(1, activity.get(i) + ttlMillis);
+                ps.setString(2, accounts.get(i));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            connection.commit();
+            flushedRows.add(accounts.size());
+            return accounts.size();
+        } catch (SQLException e) {
+            flushFailures.increment();
+            LOGGER.log(Level.WARNING, "Failed to flush activity of " + accounts.size() + " sessions", e);
+            // Put the activity back so the next flush retries it
+            for (int i = 0; i < accounts.size(); i++) {
+                pendingActivity.merge(accounts.get(i), activity.get(i), Math::max);
+            }
+            return 0;
+        } finally {
+            flushLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    @Override
+    public String toString() {
+        return "JdbcSessionStore{buffered=" + pendingActivity.size() + ", touches=" + touches.sum() +
+               ", flushedRows=" + flushedRows.sum() + ", flushFailures=" + flushFailures.sum() +
+               ", expiredPerSecond=" + String.format("%.1f", expiredPerSecond) + ", " + flushLatency + "}";
+    }
+
+    private int updateSession(Connection connection, String accountNo, long now) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE " + table + " SET created_at = ?, expires_at = ? WHERE " + keyColumn + " = ?")) {
+            ps.setLong(1, now);
+            ps.setLong(2, now + ttlMillis);
+            ps.setString(3, accountNo);
+            return ps.executeUpdate();
+        }
+    }
+
+    private void flushAndSweep() {
+        flush();
+        if (++flushesSinceSweep < FLUSHES_PER_SWEEP) {
+            return;
+        }
+        flushesSinceSweep = 0;
+        long now = System.currentTimeMillis();
+        try (Connection connection = pool.getConnection();
+             PreparedStatement ps = connection.prepareStatement("DELETE FROM " + table + " WHERE expires_at <= ?")) {
+            // Leave a grace of two flush intervals for activity other nodes have not written yet
+            ps.setLong(1, now - 2 * flushIntervalMillis);
+            int deleted = ps.executeUpdate();
+            expiredPerSecond = deleted * 1000.0 / Math.max(1, now - lastSweepAt);
+            lastSweepAt = now;
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to sweep expired sessions", e);
+        }
+    }
+}
@@ -0,0 +1,632 @@
+/*
+ * Online Banking System - Journal Ledger
+ */
+package banking.management.system;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Optional ledger engine (banking.ledger.mode=journal) that keeps every account
+ * balance in memory and records each deposit and transfer in a LedgerJournal
+ * before applying it. A balance read is a field read. A write is one journal
+ * append under the account locks, with no database round trip. The bank and
+ * account_balance tables are brought up to date afterwards by a LedgerProjector.
+ *
+ * An account is taken over from SQL the first time it is used: its
+ * account_balance is read once and journaled as an OPEN record. From then on
+ * the journal is the source of truth for it, so in this mode AccountService
+ * and TransferService must be the only writers of the ledger.
+ *
+ * A checksummed snapshot of all balances and recent transfer references is
+ * written every snapshotEvery records. Startup loads the newest valid snapshot
+ * and replays the journal after it, which also recovers from a crash. Journal
+ * segments are deleted once both a snapshot and the projector have passed them.
+ *
+ * Transfer references are held in memory for the last referenceWindow journal
+ * records. Older ones are dropped at a snapshot once the projector has written
+ * them to transfer_request; after the first drop, a reference not in memory
+ * costs one primary-key read of transfer_request to rule out a late retry.
+ *
+ * Settings: banking.ledger.mode (sql or journal, default sql),
+ * banking.journal.dir (ledger-journal), banking.journal.segmentBytes (64 MB),
+ * banking.journal.forceEachAppend (false), banking.journal.syncMillis (100),
+ * banking.journal.snapshotEvery (100000), banking.journal.referenceWindow
+ * (1000000), banking.journal.projectBatch (500),
+ * banking.journal.projectPollMillis (20).
+ */
+public final class JournalLedger {
+
+    private static final Logger LOGGER = Logger.getLogger(JournalLedger.class.getName());
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final int SNAPSHOT_MAGIC_V1 = 0x4C474A31;
+    private static final int SNAPSHOT_MAGIC = 0x4C474A32;
+    private static final int SNAPSHOTS_KEPT = 2;
+    private static final Long PENDING = Long.MAX_VALUE;
+
+    private static volatile JournalLedger instance;
+
+    /**
+     * In-memory state of one account. Writers hold the account's monitor;
+     * readers just read the volatile balance.
+     */
+    private static final class Account {
+        private volatile long balance;
+
+        Account(long balance) {
+            this.balance = balance;
+        }
+    }
+
+    private final Path directory;
+    private final LedgerJournal journal;
+    private final LedgerProjector projector;
+    private final long snapshotEvery;
+    private final long referenceWindow;
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    // Reference to the sequence of its TRANSFER record, or PENDING while it is being journaled
+    private final Map<String, Long> references = new ConcurrentHashMap<>();
+    // Operations share the read lock; a snapshot takes the write lock while it copies the state
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private final Object openLock = new Object();
+    private ScheduledExecutorService housekeeper;
+    private volatile long snapshotSeq;
+    // References of records up to this sequence may only be in transfer_request
+    private volatile long evictedThrough;
+
+    private final LatencyHistogram depositLatency = new LatencyHistogram("journal.deposit");
+    private final LatencyHistogram transferLatency = new LatencyHistogram("journal.transfer");
+    private final LatencyHistogram recoveryLatency = new LatencyHistogram("journal.recovery");
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    /**
+     * Rebuilds the in-memory state from the newest valid snapshot and the journal
+     * @param directory Directory holding the snapshots
+     * @param journal Opened journal
+     * @param projector Projector following the journal, or null
+     * @param snapshotEvery Journal records between snapshots
+     * @param referenceWindow Journal records whose transfer references stay in memory
+     * @throws IOException if no snapshot and journal combination covers the history
+     */
+    JournalLedger(Path directory, LedgerJournal journal, LedgerProjector projector, long snapshotEvery,
+                  long referenceWindow) throws IOException {
+        this.directory = directory;
+        this.journal = journal;
+        this.projector = projector;
+        this.snapshotEvery = snapshotEvery;
+        this.referenceWindow = referenceWindow;
+        recover();
+    }
+
+    /**
+     * @return true if banking.ledger.mode selects the journal engine
+     */
+    public static boolean isEnabled() {
+        return "journal".equalsIgnoreCase(System.getProperty("banking.ledger.mode", "sql"));
+    }
+
+    /**
+     * @return The process-wide journal ledger if banking.ledger.mode=journal, otherwise null
+     */
+    public static JournalLedger fromSystemProperties() {
+        return isEnabled() ? getInstance() : null;
+    }
+
+    /**
+     * @return The process-wide journal ledger, recovered and started on first use
+     */
+    public static JournalLedger getInstance() {
+        JournalLedger result = instance;
+        if (result == null) {
+            synchronized (JournalLedger.class) {
+                result = instance;
+                if (result == null) {
+                    Path directory = Paths.get(System.getProperty("banking.journal.dir", "ledger-journal"));
+                    try {
+                        LedgerJournal journal = LedgerJournal.open(directory,
+                                Integer.getInteger("banking.journal.segmentBytes", 64 * 1024 * 1024),
+                                Boolean.getBoolean("banking.journal.forceEachAppend"));
+                        LedgerProjector projector = new LedgerProjector(journal,
+                                Integer.getInteger("banking.journal.projectBatch", 500),
+                                Long.getLong("banking.journal.projectPollMillis", 20));
+                        result = new JournalLedger(directory, journal, projector,
+                                Long.getLong("banking.journal.snapshotEvery", 100_000),
+                                Long.getLong("banking.journal.referenceWindow", 1_000_000));
+                        projector.start();
+                        result.startHousekeeping(Long.getLong("banking.journal.syncMillis", 100));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Cannot open ledger journal in " + directory, e);
+                    }
+                    instance = result;
+                    final JournalLedger created = result;
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> created.shutdown(5_000), "journal-shutdown"));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param accountNo Account number
+     * @return Current balance, including writes the projector has not reached yet
+     * @throws SQLException if the account is new to the journal and its SQL balance cannot be read
+     */
+    public Money getBalance(String accountNo) throws SQLException {
+        Account account = accounts.get(accountNo);
+        if (account == null) {
+            stateLock.readLock().lock();
+            try {
+                account = account(accountNo);
+            } finally {
+                stateLock.readLock().unlock();
+            }
+        }
+        return Money.ofMinor(account.balance);
+    }
+
+    /**
+     * Journals a deposit and applies it
+     * @param accountNo Account to credit
+     * @param amount Positive amount
+     * @param timestamp Ledger timestamp (yyyy-MM-dd HH:mm:ss)
+     * @param reference Deposit reference
+     * @return Balance after the deposit
+     * @throws SQLException if the account cannot be taken over from SQL or the journal write fails
+     */
+    public Money deposit(String accountNo, Money amount, String timestamp, String reference) throws SQLException {
+        long start = System.nanoTime();
+        stateLock.readLock().lock();
+        try {
+            Account account = account(accountNo);
+            synchronized (account) {
+                append(new LedgerJournal.Record(0, LedgerJournal.Kind.DEPOSIT, accountNo, "", amount.getMinorUnits(),
+                        timestamp, "", reference));
+                account.balance += amount.getMinorUnits();
+                return Money.ofMinor(account.balance);
+            }
+        } finally {
+            stateLock.readLock().unlock();
+            depositLatency.recordSince(start);
+        }
+    }
+
+    /**
+     * Executes a transfer against the in-memory balances. Both accounts are
+     * locked in account-number order, as TransferEngine locks their rows.
+     * @param request Transfer to execute
+     * @return Transfer result; never throws for business or journal failures
+     */
+    public TransferEngine.TransferResult transfer(TransferEngine.TransferRequest request) {
+        String invalid = TransferEngine.validate(request);
+        if (invalid != null) {
+            rejected.increment();
+            return new TransferEngine.TransferResult(TransferEngine.Status.INVALID, request.getReference(), null,
+                    Money.ZERO, invalid);
+        }
+
+        long start = System.nanoTime();
+        stateLock.readLock().lock();
+        try {
+            if (isEvictedReference(request.getReference())) {
+                duplicates.increment();
+                return new TransferEngine.TransferResult(TransferEngine.Status.DUPLICATE, request.getReference(), null,
+                        Money.ZERO, "Transfer " + request.getReference() + " was already processed");
+            }
+            Account from = account(request.getFromAccount());
+            Account to = account(request.getToAccount());
+            boolean fromFirst = request.getFromAccount().compareTo(request.getToAccount()) < 0;
+            synchronized (fromFirst ? from : to) {
+                synchronized (fromFirst ? to : from) {
+                    return execute(request, from, to);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Transfer failed: " + request.getReference(), e);
+            return new TransferEngine.TransferResult(TransferEngine.Status.FAILED, request.getReference(), null,
+                    Money.ZERO, "Transfer failed: " + e.getMessage());
+        } finally {
+            stateLock.readLock().unlock();
+            transferLatency.recordSince(start);
+        }
+    }
+
+    /**
+     * Claims the reference, checks funds, journals and applies the transfer;
+     * the caller holds both account monitors
+     */
+    private TransferEngine.TransferResult execute(TransferEngine.TransferRequest request, Account from, Account to)
+            throws SQLException {
+        String reference = request.getReference();
+        if (references.putIfAbsent(reference, PENDING) != null) {
+            duplicates.increment();
+            return new TransferEngine.TransferResult(TransferEngine.Status.DUPLICATE, reference, null, Money.ZERO,
+                    "Transfer " + reference + " was already processed");
+        }
+
+        long amount = request.getAmount().getMinorUnits();
+        if (amount > from.balance) {
+            references.remove(reference);
+            rejected.increment();
+            return new TransferEngine.TransferResult(TransferEngine.Status.INSUFFICIENT_FUNDS, reference, null,
+                    Money.ofMinor(from.balance), "Insufficient funds");
+        }
+
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+        try {
+            LedgerJournal.Record record = append(new LedgerJournal.Record(0, LedgerJournal.Kind.TRANSFER,
+                    request.getFromAccount(), request.getToAccount(), amount, timestamp, request.getDescription(),
+                    reference));
+            references.put(reference, record.getSeq());
+        } catch (SQLException | RuntimeException e) {
+            references.remove(reference);
+            throw e;
+        }
+        from.balance -= amount;
+        to.balance += amount;
+        completed.increment();
+        return new TransferEngine.TransferResult(TransferEngine.Status.COMPLETED, reference, timestamp,
+                Money.ofMinor(from.balance), "Transfer completed");
+    }
+
+    /**
+     * Checks transfer_request for a reference that may have left the in-memory window;
+     * the caller holds the read lock, so no snapshot evicts concurrently
+     * @return true if the reference was used by a transfer no longer held in memory
+     */
+    private boolean isEvictedReference(String reference) throws SQLException {
+        if (evictedThrough == 0 || references.containsKey(reference)) {
+            return false;
+        }
+        try (Connection connection = ConnectionPool.borrow();
+             PreparedStatement ps = connection.prepareStatement("SELECT 1 FROM transfer_request WHERE reference = ?")) {
+            ps.setString(1, reference);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot of every balance and of the transfer references in the
+     * window if the journal has moved since the last one, dropping the older
+     * references the projector has already written to transfer_request, then
+     * deletes the journal segments that neither recovery nor the projector
+     * needs any more
+     * @return Sequence number the newest snapshot covers
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized long snapshot() throws IOException {
+        long seq;
+        Map<String, Long> balances;
+        Map<String, Long> referenceCopy;
+        long evictedCopy;
+        stateLock.writeLock().lock();
+        try {
+            seq = journal.getLastSeq();
+            if (seq == snapshotSeq) {
+                return seq;
+            }
+            balances = new HashMap<>(accounts.size() * 2);
+            for (Map.Entry<String, Account> entry : accounts.entrySet()) {
+                balances.put(entry.getKey(), entry.getValue().balance);
+            }
+            long cutoff = projector == null ? 0 : Math.min(seq - referenceWindow, projector.getProjectedSeq());
+            if (cutoff > evictedThrough) {
+                int before = references.size();
+                references.values().removeIf(referenceSeq -> referenceSeq <= cutoff);
+                evicted.add(before - references.size());
+                evictedThrough = cutoff;
+            }
+            referenceCopy = new HashMap<>(references);
+            evictedCopy = evictedThrough;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+
+        long start = System.nanoTime();
+        Path target = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, seq, SNAPSHOT_SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream raw = Channels.newOutputStream(channel);
+            CheckedOutputStream checked = new CheckedOutputStream(raw, new CRC32());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, 64 * 1024));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(seq);
+            out.writeInt(balances.size());
+            for (Map.Entry<String, Long> entry : balances.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            out.writeLong(evictedCopy);
+            out.writeInt(referenceCopy.size());
+            for (Map.Entry<String, Long> entry : referenceCopy.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            out.flush();
+            raw.write(ByteBuffer.allocate(8).putLong(checked.getChecksum().getValue()).array());
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        snapshotSeq = seq;
+
+        List<Path> snapshots = snapshotFiles();
+        for (int i = SNAPSHOTS_KEPT; i < snapshots.size(); i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        long needed = projector == null ? seq : Math.min(seq, projector.getProjectedSeq());
+        int deleted = journal.deleteThrough(needed);
+        LOGGER.info("Wrote ledger snapshot through sequence " + seq + " (" + balances.size() + " accounts, " +
+                    referenceCopy.size() + " references) in " +
+                    (System.nanoTime() - start) / 1_000_000 + " ms, deleted " + deleted + " journal segments");
+        return seq;
+    }
+
+    /**
+     * Stops the projector after it has caught up, syncs the journal and writes a final snapshot
+     * @param timeoutMillis Maximum time to wait for the projector
+     */
+    public void shutdown(long timeoutMillis) {
+        if (housekeeper != null) {
+            housekeeper.shutdownNow();
+        }
+        if (projector != null) {
+            projector.shutdown(timeoutMillis);
+        }
+        journal.close();
+        try {
+            snapshot();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Final ledger snapshot failed; the journal still covers it", e);
+        }
+        LOGGER.info(toString());
+    }
+
+    public LedgerJournal getJournal() {
+        return journal;
+    }
+
+    public LedgerProjector getProjector() {
+        return projector;
+    }
+
+    public LatencyHistogram getDepositLatency() {
+        return depositLatency;
+    }
+
+    public LatencyHistogram getTransferLatency() {
+        return transferLatency;
+    }
+
+    /**
+     * @return Number of accounts held in memory
+     */
+    public int getAccountCount() {
+        return accounts.size();
+    }
+
+    @Override
+    public String toString() {
+        return "JournalLedger{accounts=" + accounts.size() + ", lastSeq=" + journal.getLastSeq() +
+               ", snapshotSeq=" + snapshotSeq + ", completed=" + completed.sum() + ", duplicates=" + duplicates.sum() +
+               ", rejected=" + rejected.sum() + ", opened=" + opened.sum() + ", references=" + references.size() +
+               ", evictedReferences=" + evicted.sum() + ", " + depositLatency + ", " +
+               transferLatency + ", " + recoveryLatency + (projector == null ? "" : ", " + projector) + "}";
+    }
+
+    /**
+     * Returns the in-memory account, taking it over from SQL on first use;
+     * the caller holds the read lock
+     */
+    private Account account(String accountNo) throws SQLException {
+        Account account = accounts.get(accountNo);
+        if (account != null) {
+            return account;
+        }
+        synchronized (openLock) {
+            account = accounts.get(accountNo);
+            if (account == null) {
+                Money opening;
+                try (Connection connection = ConnectionPool.borrow()) {
+                    opening = AccountBalanceStore.getBalance(connection, accountNo);
+                }
+                String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+                append(new LedgerJournal.Record(0, LedgerJournal.Kind.OPEN, accountNo, "", opening.getMinorUnits(),
+                        timestamp, "", ""));
+                account = new Account(opening.getMinorUnits());
+                accounts.put(accountNo, account);
+                opened.increment();
+            }
+        }
+        return account;
+    }
+
+    private LedgerJournal.Record append(LedgerJournal.Record record) throws SQLException {
+        try {
+            return journal.append(record);
+        } catch (IOException e) {
+            throw new SQLException("Ledger journal write failed", e);
+        }
+    }
+
+    /**
+     * Loads the newest snapshot that passes its checksum, then replays the journal after it
+     */
+    private void recover() throws IOException {
+        long start = System.nanoTime();
+        for (Path path : snapshotFiles()) {
+            try {
+                loadSnapshot(path);
+                break;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Skipping unreadable ledger snapshot " + path, e);
+                accounts.clear();
+                references.clear();
+                snapshotSeq = 0;
+                evictedThrough = 0;
+            }
+        }
+
+        if (journal.getLastSeq() < snapshotSeq || journal.getFirstSeq() > snapshotSeq + 1) {
+            throw new IOException("Journal " + journal + " does not continue snapshot at sequence " + snapshotSeq);
+        }
+        long replayed = journal.replay(snapshotSeq, this::apply);
+        recoveryLatency.recordSince(start);
+        LOGGER.info("Recovered " + accounts.size() + " accounts from snapshot " + snapshotSeq + " and " + replayed +
+                    " journal records in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private void loadSnapshot(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length < 8) {
+            throw new IOException("Truncated snapshot");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        if (crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - 8, 8).getLong()) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 8))) {
+            int magic = in.readInt();
+            if (magic != SNAPSHOT_MAGIC && magic != SNAPSHOT_MAGIC_V1) {
+                throw new IOException("Not a ledger snapshot");
+            }
+            long seq = in.readLong();
+            int accountCount = in.readInt();
+            for (int i = 0; i < accountCount; i++) {
+                accounts.put(in.readUTF(), new Account(in.readLong()));
+            }
+            // Version 1 snapshots kept every reference without its sequence
+            long evictedSeq = magic == SNAPSHOT_MAGIC ? in.readLong() : 0;
+            int referenceCount = in.readInt();
+            for (int i = 0; i < referenceCount; i++) {
+                references.put(in.readUTF(), magic == SNAPSHOT_MAGIC ? in.readLong() : seq);
+            }
+            snapshotSeq = seq;
+            evictedThrough = evictedSeq;
+        }
+    }
+
+    /**
+     * Applies one replayed record; runs before the ledger is shared
+     */
+    private void apply(LedgerJournal.Record record) {
+        switch (record.getKind()) {
+            case OPEN:
+                accounts.put(record.getAccount(), new Account(record.getAmountMinor()));
+                break;
+            case DEPOSIT:
+                replayed(record.getAccount(), record).balance += record.getAmountMinor();
+                break;
+            case TRANSFER:
+                references.put(record.getReference(), record.getSeq());
+                replayed(record.getAccount(), record).balance -= record.getAmountMinor();
+                replayed(record.getToAccount(), record).balance += record.getAmountMinor();
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal record kind " + record.getKind());
+        }
+    }
+
+    private Account replayed(String accountNo, LedgerJournal.Record record) {
+        Account account = accounts.get(accountNo);
+        if (account == null) {
+            throw new IllegalStateException("Journal record " + record.getSeq() + " uses account " + accountNo +
+                                            " before its OPEN record");
+        }
+        return account;
+    }
+
+    /**
+     * @return Snapshot files, newest first
+     */
+    private List<Path> snapshotFiles() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            files.forEach(paths::add);
+        }
+        paths.sort(Collections.reverseOrder());
+        return paths;
+    }
+
+    private void startHousekeeping(long syncMillis) {
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(() -> {
+            try {
+                journal.sync();
+                if (journal.getLastSeq() - snapshotSeq >= snapshotEvery) {
+                    snapshot();
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Ledger journal housekeeping failed", e);
+            }
+        }, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Recovers a journal directory offline and prints the result; use it to
+     * check a journal after a crash without starting the application
+     * @param args Journal directory, default banking.journal.dir
+     */
+    public static void main(String[] args) {
+        Path directory = Paths.get(args.length > 0 ? args[0] : System.getProperty("banking.journal.dir", "ledger-journal"));
+        try (LedgerJournal journal = LedgerJournal.open(directory,
+                Integer.getInteger("banking.journal.segmentBytes", 64 * 1024 * 1024), false)) {
+            JournalLedger ledger = new JournalLedger(directory, journal, null, Long.MAX_VALUE, Long.MAX_VALUE);
+            long total = 0;
+            for (Account account : ledger.accounts.values()) {
+                total += account.balance;
+            }
+            LOGGER.info("Journal " + journal + " recovers " + ledger.getAccountCount() + " accounts holding " +
+                        Money.format(total) + " in total; " + ledger.recoveryLatency);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Ledger journal recovery failed", e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Online Banking System - Latency Histogram
+ */
+package banking.management.system;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets.
+ * Recording is a couple of atomic increments, so it is safe to call on hot paths
+ * from any number of threads. Percentiles are accurate to within one bucket.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 40;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * @param name Metric name used in snapshots and log lines
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records one observation
+     * @param nanos Elapsed time in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        int bucket = micros == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        totalNanos.add(nanos);
+    }
+
+    /**
+     * Records the time elapsed since a System.nanoTime() start mark
+     * @param startNanos Value of System.nanoTime() taken before the operation
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return Mean latency in microseconds, 0 if nothing was recorded
+     */
+    public double getMeanMicros() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1000.0 / n;
+    }
+
+    /**
+     * Returns the upper bound of the bucket containing the given percentile
+     * @param percentile Percentile between 0 and 100
+     * @return Latency in microseconds
+     */
+    public long getPercentileMicros(double percentile) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+
+        long target = (long) Math.ceil(n * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                return i == 0 ? 1 : 1L << i;
+            }
+        }
+        return 1L << (BUCKETS - 1);
+    }
+
+    /**
+     * Clears all recorded values
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return name + "{count=" + getCount() +
+               ", mean=" + String.format("%.1f", getMeanMicros()) + "us" +
+               ", p50=" + getPercentileMicros(50) + "us" +
+               ", p99=" + getPercentileMicros(99) + "us" +
+               ", p999=" + getPercentileMicros(99.9) + "us}";
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Online Banking System - Ledger Amount Migration
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Backfills bank.amount_minor from the legacy text amount column and clears
+ * the plaintext PIN that earlier writers copied into Login_Password. Rows are
+ * converted in chunks walked along idx_bank_date: each chunk finds the date of
+ * its last row, updates the rows up to that date in its own short transaction
+ * and pauses, so the live ledger never waits long on a row lock. Only rows that
+ * still need either change are touched, so the job can be stopped and rerun at
+ * any time.
+ * Readers fall back to the text column for rows not reached yet, so it can run
+ * while the application is live, after the new writer is deployed.
+ *
+ * Before that, dates the original deposit screen wrote with Date.toString()
+ * ("Sun Oct 18 11:35:24 UTC 2026") are rewritten as yyyy-MM-dd HH:mm:ss, the
+ * format every date range, snapshot and index walk relies on. A date in neither
+ * format is left alone and logged, and the run reports how many remain.
+ *
+ * Settings: banking.migration.chunkSize (default 5000),
+ * banking.migration.pauseMillis (50).
+ */
+public final class LedgerAmountMigration {
+
+    private static final Logger LOGGER = Logger.getLogger(LedgerAmountMigration.class.getName());
+
+    private static final String CONVERT =
+            "amount_minor = COALESCE(amount_minor, ROUND(CAST(amount AS DECIMAL(19,2)) * 100)), Login_Password = ''";
+    private static final String PENDING = "(amount_minor IS NULL OR Login_Password <> '')";
+    static final String LEGACY_DATE = "date NOT LIKE '____-__-__ __:__:__'";
+    private static final String LEGACY_DATE_PATTERN = "EEE MMM dd HH:mm:ss zzz yyyy";
+    private static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    private final int chunkSize;
+    private final long pauseMillis;
+
+    /**
+     * @param chunkSize Rows per chunk
+     * @param pauseMillis Pause between chunks
+     */
+    public LedgerAmountMigration(int chunkSize, long pauseMillis) {
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    /**
+     * Converts every row whose amount_minor is still NULL or that still holds a PIN
+     * @param connection Open database connection in autocommit mode
+     * @return Rows converted
+     * @throws SQLException if a chunk fails; earlier chunks stay committed
+     * @throws InterruptedException if interrupted between chunks
+     */
+    public long migrate(Connection connection) throws SQLException, InterruptedException {
+        LedgerSchema.ensureAmountColumn(connection);
+        long converted = normalizeDates(connection);
+        String after = null;
+        while (true) {
+            String upTo = chunkEnd(connection, after);
+            if (upTo == null) {
+                break;
+            }
+            converted += convertRange(connection, after, upTo);
+            after = upTo;
+            Thread.sleep(pauseMillis);
+        }
+        // Rows written with an earlier date while the walk was running
+        converted += convertStragglers(connection);
+        return converted;
+    }
+
+    /**
+     * Rewrites legacy Date.toString() dates, one distinct value at a time in date order
+     * @return Rows rewritten
+     * @throws InterruptedException if interrupted between chunks
+     */
+    long normalizeDates(Connection connection) throws SQLException, InterruptedException {
+        SimpleDateFormat legacy = new SimpleDateFormat(LEGACY_DATE_PATTERN, Locale.US);
+        legacy.setLenient(false);
+        SimpleDateFormat iso = new SimpleDateFormat(DATE_PATTERN);
+        long rewritten = 0;
+        int unparseable = 0;
+        String after = "";
+        try (PreparedStatement select = connection.prepareStatement(
+                     "SELECT DISTINCT date FROM bank WHERE " + LEGACY_DATE + " AND date > ? ORDER BY date LIMIT ?");
+             PreparedStatement update = connection.prepareStatement("UPDATE bank SET date = ? WHERE date = ?")) {
+            while (true) {
+                select.setString(1, after);
+                select.setInt(2, chunkSize);
+                int seen = 0;
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        seen++;
+                        after = rs.getString(1);
+                        try {
+                            update.setString(1, iso.format(legacy.parse(after)));
+                            update.setString(2, after);
+                            rewritten += update.executeUpdate();
+                        } catch (ParseException e) {
+                            unparseable++;
+                            LOGGER.warning("Ledger date in an unknown format left as is: '" + after + "'");
+                        }
+                    }
+                }
+                if (seen < chunkSize) {
+                    break;
+                }
+                Thread.sleep(pauseMillis);
+            }
+        }
+        if (rewritten > 0 || unparseable > 0) {
+            LOGGER.info("Rewrote " + rewritten + " legacy ledger dates; " + unparseable +
+                        " distinct dates could not be parsed and are excluded from date ranges");
+        }
+        return rewritten;
+    }
+
+    /**
+     * @return Date of the last row of the chunk after the given date, or null past the end
+     */
+    private String chunkEnd(Connection connection, String after) throws SQLException {
+        String sql = "SELECT date FROM bank" + (after != null ? " WHERE date > ?" : "") +
+                     " ORDER BY date LIMIT 1 OFFSET ?";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int i = 1;
+            if (after != null) {
+                ps.setString(i++, after);
+            }
+            ps.setInt(i, chunkSize - 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getString(1);
+                }
+            }
+        }
+        // Fewer than a full chunk left: finish with whatever is after the last date
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT MAX(date) FROM bank" + (after != null ? " WHERE date > ?" : ""))) {
+            if (after != null) {
+                ps.setString(1, after);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private static int convertRange(Connection connection, String after, String upTo) throws SQLException {
+        String sql = "UPDATE bank SET " + CONVERT + " WHERE " + (after != null ? "date > ? AND " : "") +
+                     "date <= ? AND " + PENDING;
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int i = 1;
+            if (after != null) {
+                ps.setString(i++, after);
+            }
+            ps.setString(i, upTo);
+            return ps.executeUpdate();
+        }
+    }
+
+    private long convertStragglers(Connection connection) throws SQLException {
+        long converted = 0;
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE bank SET " + CONVERT + " WHERE " + PENDING + " AND amount IS NOT NULL LIMIT ?")) {
+            ps.setInt(1, chunkSize);
+            int updated;
+            while ((updated = ps.executeUpdate()) > 0) {
+                converted += updated;
+            }
+        }
+        return converted;
+    }
+
+    /**
+     * Runs the backfill and logs its throughput
+     * @param args Unused
+     */
+    public static void main(String[] args) {
+        LedgerAmountMigration migration = new LedgerAmountMigration(
+                Integer.getInteger("banking.migration.chunkSize", 5_000),
+                Long.getLong("banking.migration.pauseMillis", 50));
+        try (Connection connection = ConnectionPool.borrow()) {
+            long start = System.nanoTime();
+            long converted = migration.migrate(connection);
+            long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            LOGGER.info("Converted " + converted + " ledger amounts in " + millis + " ms (" +
+                        converted * 1000 / millis + " rows/s)");
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Ledger amount migration failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warning("Ledger amount migration interrupted; rerun to continue");
+        }
+    }
+}
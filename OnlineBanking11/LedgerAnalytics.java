@@ -0,0 +1,139 @@
+/*
+ * Online Banking System - Ledger Analytics
+ */
+package banking.management.system;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running per-day, per-type totals of committed ledger rows, fed by the
+ * analytics consumer of LedgerEventBus. Only that consumer thread writes, so
+ * each rollup is a pair of plain counters published through volatile fields.
+ * Any thread may read them. Days older than banking.analytics.days (default 7)
+ * are dropped as new days arrive. Events the bus dropped never reach the
+ * rollups, which are therefore lower bounds; getDroppedCount says by how many
+ * rows.
+ */
+public final class LedgerAnalytics implements LedgerEventBus.Handler {
+
+    private static volatile LedgerAnalytics instance;
+
+    /**
+     * Count and total amount of one row type on one day
+     */
+    public static final class Rollup {
+        private volatile long count;
+        private volatile long amountMinor;
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return Sum of the unsigned amounts in minor units
+         */
+        public long getAmountMinor() {
+            return amountMinor;
+        }
+
+        @Override
+        public String toString() {
+            return count + " rows, " + Money.format(amountMinor);
+        }
+    }
+
+    private final int daysKept;
+    private final Map<String, Map<String, Rollup>> days = new ConcurrentHashMap<>();
+    private volatile String latestDay = "";
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param daysKept Number of most recent days to keep
+     */
+    public LedgerAnalytics(int daysKept) {
+        this.daysKept = daysKept;
+    }
+
+    /**
+     * @return The process-wide rollups
+     */
+    public static LedgerAnalytics getInstance() {
+        LedgerAnalytics result = instance;
+        if (result == null) {
+            synchronized (LedgerAnalytics.class) {
+                result = instance;
+                if (result == null) {
+                    instance = result = new LedgerAnalytics(Integer.getInteger("banking.analytics.days", 7));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void onEvent(LedgerEvent event) {
+        String timestamp = event.getTimestamp();
+        String day = timestamp != null && timestamp.length() >= 10 ? timestamp.substring(0, 10) : "unknown";
+        Rollup rollup = days.computeIfAbsent(day, d -> new ConcurrentHashMap<>())
+                            .computeIfAbsent(event.getType(), t -> new Rollup());
+        // Single writer, so read-modify-write on the volatiles is safe
+        rollup.count = rollup.count + 1;
+        rollup.amountMinor = rollup.amountMinor + event.getAmountMinor();
+
+        if (day.compareTo(latestDay) > 0) {
+            latestDay = day;
+            evictOldDays();
+        }
+    }
+
+    @Override
+    public void onDropped() {
+        dropped.increment();
+    }
+
+    /**
+     * @return Ledger rows missing from the rollups because the bus dropped their events
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @param day Day as yyyy-MM-dd
+     * @param type Ledger row type
+     * @return The rollup, or null if no such row was seen that day
+     */
+    public Rollup getRollup(String day, String type) {
+        Map<String, Rollup> byType = days.get(day);
+        return byType == null ? null : byType.get(type);
+    }
+
+    /**
+     * @return Rollups by day and type, oldest day first
+     */
+    public Map<String, Map<String, Rollup>> snapshot() {
+        Map<String, Map<String, Rollup>> copy = new TreeMap<>();
+        for (Map.Entry<String, Map<String, Rollup>> entry : days.entrySet()) {
+            copy.put(entry.getKey(), new TreeMap<>(entry.getValue()));
+        }
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "LedgerAnalytics{dropped=" + dropped.sum() + ", days=" + snapshot() + "}";
+    }
+
+    private void evictOldDays() {
+        if (days.size() <= daysKept) {
+            return;
+        }
+        TreeMap<String, Map<String, Rollup>> ordered = new TreeMap<>(days);
+        while (ordered.size() > daysKept) {
+            days.remove(ordered.pollFirstEntry().getKey());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Online Banking System - Ledger Entry
+ */
+package banking.management.system;
+
+/**
+ * One row of the bank ledger
+ */
+public class LedgerEntry {
+
+    private final String accountNo;
+    private final String timestamp;
+    private final String type;
+    private final Money amount;
+    private final String description;
+    private final String reference;
+
+    /**
+     * @param accountNo Account number
+     * @param timestamp Row timestamp formatted as yyyy-MM-dd HH:mm:ss
+     * @param type Row type (Deposit, Withdrawal, Transfer-In, Transfer-Out)
+     * @param amount Unsigned amount
+     * @param description Description, may be empty
+     * @param reference Transaction reference
+     */
+    public LedgerEntry(String accountNo, String timestamp, String type, Money amount, String description,
+                       String reference) {
+        this.accountNo = accountNo;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.amount = amount;
+        this.description = description == null ? "" : description;
+        this.reference = reference;
+    }
+
+    public String getAccountNo() {
+        return accountNo;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    /**
+     * @return Effect of this row on the account balance, in minor units
+     */
+    public long getSignedMinorUnits() {
+        return Money.signedMinor(type, amount.getMinorUnits());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Online Banking System - Ledger Event
+ */
+package banking.management.system;
+
+/**
+ * One committed ledger row as seen by LedgerEventBus consumers. Events live in
+ * the bus's pre-allocated ring and are overwritten once every consumer has
+ * passed them, so a consumer must copy any field it keeps beyond onEvent.
+ */
+public final class LedgerEvent {
+
+    /** Balance value for events whose writer does not know the balance after the row */
+    public static final long UNKNOWN_BALANCE = Long.MIN_VALUE;
+
+    private String type;
+    private String accountNo;
+    private long amountMinor;
+    private long balanceMinor;
+    private String reference;
+    private String timestamp;
+
+    LedgerEvent() {
+    }
+
+    void set(String type, String accountNo, long amountMinor, long balanceMinor, String reference, String timestamp) {
+        this.type = type;
+        this.accountNo = accountNo;
+        this.amountMinor = amountMinor;
+        this.balanceMinor = balanceMinor;
+        this.reference = reference;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return Ledger row type (Deposit, Withdrawal, Transfer-In, Transfer-Out)
+     */
+    public String getType() {
+        return type;
+    }
+
+    public String getAccountNo() {
+        return accountNo;
+    }
+
+    /**
+     * @return Unsigned amount in minor units
+     */
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    /**
+     * @return Account balance after the row in minor units, or UNKNOWN_BALANCE
+     */
+    public long getBalanceMinor() {
+        return balanceMinor;
+    }
+
+    public boolean hasBalance() {
+        return balanceMinor != UNKNOWN_BALANCE;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean isCredit() {
+        return AccountBalanceStore.isCredit(type);
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Online Banking System - Ledger Event Bus
+ */
+package banking.management.system;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-process fan-out of committed ledger rows. Events are written into a
+ * pre-allocated power-of-two ring of LedgerEvent slots. Each consumer runs on
+ * its own thread with its own sequence and sees every event in order,
+ * independently of the others. A publisher claims a slot with one CAS and
+ * never waits: if the slowest consumer is a whole ring behind, the event is
+ * dropped and counted instead. A consumer's lag is the number of published
+ * events it has not processed yet.
+ *
+ * The process-wide bus feeds the analytics consumer, which keeps the
+ * LedgerAnalytics rollups and reports the events it never saw next to them.
+ * Nothing that must see every row rides on the bus, because a dropped or
+ * unprocessed event is lost: writers invalidate AccountService's cached
+ * balances themselves after commit, and notifications go through
+ * NotificationOutbox.
+ *
+ * Settings: banking.events.capacity (default 65536).
+ */
+public final class LedgerEventBus {
+
+    private static final Logger LOGGER = Logger.getLogger(LedgerEventBus.class.getName());
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int MAX_BATCH = 1_024;
+
+    private static volatile LedgerEventBus instance;
+
+    /**
+     * Processes events on a consumer thread
+     */
+    public interface Handler {
+        /**
+         * @param event Event; valid only until this method returns
+         * @throws Exception if handling fails; the failure is counted and the consumer moves on
+         */
+        void onEvent(LedgerEvent event) throws Exception;
+
+        /**
+         * Called on the publishing thread for each event the bus dropped, so it must be thread-safe
+         */
+        default void onDropped() {
+        }
+    }
+
+    /**
+     * One consumer: its handler, thread, sequence and metrics
+     */
+    private final class Consumer implements Runnable {
+        private final String name;
+        private final Handler handler;
+        private final Thread thread;
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LatencyHistogram latency;
+        private volatile long sequence;
+        private volatile boolean waiting;
+
+        Consumer(String name, Handler handler, long sequence) {
+            this.name = name;
+            this.handler = handler;
+            this.sequence = sequence;
+            this.latency = new LatencyHistogram("events." + name);
+            this.thread = new Thread(this, "ledger-events-" + name);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                long next = sequence + 1;
+                long available = highestPublished(next);
+                if (available < next) {
+                    if (!running && cursor.get() < next) {
+                        return;
+                    }
+                    waiting = true;
+                    if (highestPublished(next) < next) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    waiting = false;
+                    continue;
+                }
+                for (long s = next; s <= available; s++) {
+                    long start = System.nanoTime();
+                    try {
+                        handler.onEvent(slots[(int) (s & mask)]);
+                    } catch (Exception e) {
+                        failed.increment();
+                        LOGGER.log(Level.WARNING, "Ledger event consumer " + name + " failed", e);
+                    }
+                    latency.recordSince(start);
+                }
+                processed.add(available - next + 1);
+                sequence = available; // hands the slots back to publishers
+            }
+        }
+
+        long lag() {
+            return Math.max(0, cursor.get() - sequence);
+        }
+
+        @Override
+        public String toString() {
+            return name + "{lag=" + lag() + ", processed=" + processed.sum() + ", failed=" + failed.sum() +
+                   ", " + latency + "}";
+        }
+    }
+
+    private final LedgerEvent[] slots;
+    private final AtomicLongArray publishedSequences;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+    private volatile long gatingSequence = -1;
+    private volatile boolean running = true;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param capacity Ring slots, rounded up to a power of two
+     */
+    public LedgerEventBus(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new LedgerEvent[size];
+        this.publishedSequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new LedgerEvent();
+            publishedSequences.set(i, -1);
+        }
+    }
+
+    /**
+     * @return The process-wide bus with the standard consumers, created on first use
+     */
+    public static LedgerEventBus getInstance() {
+        LedgerEventBus result = instance;
+        if (result == null) {
+            synchronized (LedgerEventBus.class) {
+                result = instance;
+                if (result == null) {
+                    result = new LedgerEventBus(Integer.getInteger("banking.events.capacity", 65_536));
+                    result.register("analytics", LedgerAnalytics.getInstance());
+                    instance = result;
+                    final LedgerEventBus created = result;
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> created.shutdown(5_000), "ledger-events-shutdown"));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds a consumer that receives every event published from now on
+     * @param name Consumer name, used for its thread and metrics
+     * @param handler Event handler
+     */
+    public synchronized void register(String name, Handler handler) {
+        Consumer consumer = new Consumer(name, handler, cursor.get());
+        consumers.add(consumer);
+        consumer.thread.start();
+    }
+
+    /**
+     * Publishes a committed ledger row
+     * @param entry Ledger row
+     * @param balanceMinor Balance after the row, or LedgerEvent.UNKNOWN_BALANCE
+     * @return true if published, false if dropped because a consumer is a full ring behind
+     */
+    public boolean publish(LedgerEntry entry, long balanceMinor) {
+        return publish(entry.getType(), entry.getAccountNo(), entry.getAmount().getMinorUnits(), balanceMinor,
+                entry.getReference(), entry.getTimestamp());
+    }
+
+    /**
+     * Publishes a committed ledger row; safe to call from any number of threads
+     * @param type Ledger row type
+     * @param accountNo Account number
+     * @param amountMinor Unsigned amount in minor units
+     * @param balanceMinor Balance after the row, or LedgerEvent.UNKNOWN_BALANCE
+     * @param reference Transaction reference
+     * @param timestamp Row timestamp (yyyy-MM-dd HH:mm:ss)
+     * @return true if published, false if dropped because a consumer is a full ring behind
+     */
+    public boolean publish(String type, String accountNo, long amountMinor, long balanceMinor,
+                           String reference, String timestamp) {
+        if (!running) {
+            drop();
+            return false;
+        }
+        long next;
+        while (true) {
+            long current = cursor.get();
+            next = current + 1;
+            long wrapPoint = next - slots.length;
+            if (wrapPoint > gatingSequence) {
+                long slowest = slowestSequence(current);
+                gatingSequence = slowest;
+                if (wrapPoint > slowest) {
+                    drop();
+                    LOGGER.fine("Ledger event ring full, dropped event for " + accountNo);
+                    return false;
+                }
+            }
+            if (cursor.compareAndSet(current, next)) {
+                break;
+            }
+        }
+
+        int index = (int) (next & mask);
+        slots[index].set(type, accountNo, amountMinor, balanceMinor, reference, timestamp);
+        publishedSequences.set(index, next);
+        published.increment();
+        for (Consumer consumer : consumers) {
+            if (consumer.waiting) {
+                LockSupport.unpark(consumer.thread);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param name Consumer name
+     * @return Events published but not yet processed by that consumer, or -1 if there is no such consumer
+     */
+    public long getLag(String name) {
+        for (Consumer consumer : consumers) {
+            if (consumer.name.equals(name)) {
+                return consumer.lag();
+            }
+        }
+        return -1;
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops accepting events and waits for every consumer to finish the published ones
+     * @param timeoutMillis Maximum time to wait per consumer
+     */
+    public void shutdown(long timeoutMillis) {
+        running = false;
+        for (Consumer consumer : consumers) {
+            LockSupport.unpark(consumer.thread);
+        }
+        for (Consumer consumer : consumers) {
+            try {
+                consumer.thread.join(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (consumer.thread.isAlive()) {
+                LOGGER.warning("Ledger event consumer did not drain in " + timeoutMillis + " ms: " + consumer);
+            }
+        }
+        LOGGER.info(toString());
+    }
+
+    @Override
+    public String toString() {
+        return "LedgerEventBus{capacity=" + slots.length + ", published=" + published.sum() +
+               ", dropped=" + dropped.sum() + ", consumers=" + consumers + "}";
+    }
+
+    /**
+     * @param from First sequence to check
+     * @return Last sequence of the unbroken run of published events starting at from
+     *         (at most MAX_BATCH of them), or from - 1
+     */
+    private long highestPublished(long from) {
+        long limit = Math.min(cursor.get(), from + MAX_BATCH - 1);
+        long s = from;
+        while (s <= limit && publishedSequences.get((int) (s & mask)) == s) {
+            s++;
+        }
+        return s - 1;
+    }
+
+    private void drop() {
+        dropped.increment();
+        for (Consumer consumer : consumers) {
+            consumer.handler.onDropped();
+        }
+    }
+
+    private long slowestSequence(long current) {
+        long slowest = current;
+        for (Consumer consumer : consumers) {
+            slowest = Math.min(slowest, consumer.sequence);
+        }
+        return slowest;
+    }
+}
@@ -0,0 +1,516 @@
+/*
+ * Online Banking System - Ledger Journal
+ */
+package banking.management.system;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of ledger operations in memory-mapped segment files.
+ * Each record is [payload length][CRC32 of payload][payload] and carries a
+ * sequence number one above the previous record's. Segments are pre-sized
+ * and zero filled, so a zero length marks the end of the written data.
+ *
+ * Appends are serialized. A record survives a crash of the process as soon as
+ * append returns, because it is already in the page cache. It reaches the disk
+ * on the next sync(), or before append returns when forceEachAppend is set.
+ * When a journal is opened, the tail of the last segment is checked, and a
+ * torn or corrupt record there is zeroed along with everything after it.
+ *
+ * Readers use a Cursor and see only records whose append has completed, so
+ * the projector can follow the journal while it is being written.
+ */
+public final class LedgerJournal implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(LedgerJournal.class.getName());
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_PAYLOAD_BYTES = 64 * 1024;
+
+    /**
+     * Kind of a journal record
+     */
+    public enum Kind {
+        /** Balance of an account when the journal first took it over from SQL */
+        OPEN,
+        /** Credit to one account */
+        DEPOSIT,
+        /** Debit of one account and credit of another under one reference */
+        TRANSFER
+    }
+
+    /**
+     * One journaled ledger operation. For OPEN the amount is the opening
+     * balance, which may be negative; otherwise it is the unsigned amount moved.
+     */
+    public static final class Record {
+        private final long seq;
+        private final Kind kind;
+        private final String account;
+        private final String toAccount;
+        private final long amountMinor;
+        private final String timestamp;
+        private final String description;
+        private final String reference;
+
+        /**
+         * @param seq Sequence number, 0 for a record not yet appended
+         * @param kind Operation
+         * @param account Account credited by a deposit, debited by a transfer or opened
+         * @param toAccount Account credited by a transfer, empty otherwise
+         * @param amountMinor Amount in minor units
+         * @param timestamp Ledger timestamp (yyyy-MM-dd HH:mm:ss)
+         * @param description Description, may be empty
+         * @param reference Transaction reference
+         */
+        public Record(long seq, Kind kind, String account, String toAccount, long amountMinor, String timestamp,
+                      String description, String reference) {
+            this.seq = seq;
+            this.kind = kind;
+            this.account = account;
+            this.toAccount = toAccount == null ? "" : toAccount;
+            this.amountMinor = amountMinor;
+            this.timestamp = timestamp == null ? "" : timestamp;
+            this.description = description == null ? "" : description;
+            this.reference = reference == null ? "" : reference;
+        }
+
+        Record withSeq(long newSeq) {
+            return new Record(newSeq, kind, account, toAccount, amountMinor, timestamp, description, reference);
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getAccount() {
+            return account;
+        }
+
+        public String getToAccount() {
+            return toAccount;
+        }
+
+        public long getAmountMinor() {
+            return amountMinor;
+        }
+
+        public String getTimestamp() {
+            return timestamp;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public String getReference() {
+            return reference;
+        }
+    }
+
+    /**
+     * One mapped segment file. Only the appender writes to the buffer; readers
+     * use absolute reads and stop at the published limit.
+     */
+    private static final class Segment {
+        private final Path path;
+        private final long firstSeq;
+        private final MappedByteBuffer buffer;
+        private volatile int limit;
+
+        Segment(Path path, long firstSeq, MappedByteBuffer buffer) {
+            this.path = path;
+            this.firstSeq = firstSeq;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Read position of one reader; not thread-safe
+     */
+    public final class Cursor {
+        private Segment segment;
+        private int offset;
+        private long lastSeq;
+
+        private Cursor(long afterSeq) {
+            this.lastSeq = afterSeq;
+        }
+
+        /**
+         * @return Sequence number of the last record read, or the starting point
+         */
+        public long getLastSeq() {
+            return lastSeq;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean forceEachAppend;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final CRC32 crc = new CRC32();
+    private volatile long lastSeq;
+    private int syncedUpTo;
+
+    private LedgerJournal(Path directory, int segmentBytes, boolean forceEachAppend) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.forceEachAppend = forceEachAppend;
+    }
+
+    /**
+     * Opens or creates a journal and repairs a torn tail
+     * @param directory Directory holding the segment files
+     * @param segmentBytes Size of each segment file
+     * @param forceEachAppend Force every record to disk before append returns
+     * @return The opened journal
+     * @throws IOException if a segment cannot be mapped or an earlier segment is corrupt
+     */
+    public static LedgerJournal open(Path directory, int segmentBytes, boolean forceEachAppend) throws IOException {
+        if (segmentBytes < HEADER_BYTES + MAX_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentBytes);
+        }
+        Files.createDirectories(directory);
+        LedgerJournal journal = new LedgerJournal(directory, segmentBytes, forceEachAppend);
+        journal.recover();
+        return journal;
+    }
+
+    /**
+     * Appends a record and assigns its sequence number
+     * @param record Record to append; its sequence number is ignored
+     * @return The record as appended, with its sequence number
+     * @throws IOException if a new segment cannot be created
+     */
+    public synchronized Record append(Record record) throws IOException {
+        Record sequenced = record.withSeq(lastSeq + 1);
+        byte[] payload = encode(sequenced);
+        if (payload.length > MAX_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("Journal record too large: " + payload.length + " bytes");
+        }
+
+        Segment segment = segments.get(segments.size() - 1);
+        if (segment.limit + HEADER_BYTES + payload.length > segmentBytes) {
+            sync();
+            segment = createSegment(sequenced.getSeq());
+        }
+
+        crc.reset();
+        crc.update(payload);
+        MappedByteBuffer buffer = segment.buffer;
+        int position = segment.limit;
+        buffer.put(position + HEADER_BYTES, payload);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        // The length goes in last, so a reader or a restart never sees a half-written record as complete
+        buffer.putInt(position, payload.length);
+        if (forceEachAppend) {
+            buffer.force(position, HEADER_BYTES + payload.length);
+        }
+        segment.limit = position + HEADER_BYTES + payload.length;
+        lastSeq = sequenced.getSeq();
+        return sequenced;
+    }
+
+    /**
+     * Forces everything appended so far to disk
+     */
+    public synchronized void sync() {
+        if (segments.isEmpty()) {
+            return;
+        }
+        Segment segment = segments.get(segments.size() - 1);
+        if (segment.limit > syncedUpTo) {
+            segment.buffer.force(syncedUpTo, segment.limit - syncedUpTo);
+        }
+        syncedUpTo = segment.limit;
+    }
+
+    /**
+     * @return Sequence number the oldest kept segment starts at
+     */
+    public long getFirstSeq() {
+        return segments.get(0).firstSeq;
+    }
+
+    /**
+     * @return Sequence number of the last appended record, 0 if the journal is empty
+     */
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * @param afterSeq Sequence number the reader has already seen
+     * @return A cursor positioned before the first record above afterSeq
+     */
+    public Cursor cursor(long afterSeq) {
+        Cursor cursor = new Cursor(afterSeq);
+        for (Segment segment : segments) {
+            if (cursor.segment == null || segment.firstSeq <= afterSeq + 1) {
+                cursor.segment = segment;
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * Reads the records that follow the cursor and advances it
+     * @param cursor Reader position
+     * @param max Most records to read
+     * @param out Receives the records in sequence order
+     * @return Number of records read
+     */
+    public int read(Cursor cursor, int max, List<Record> out) {
+        int read = 0;
+        while (read < max) {
+            Segment segment = cursor.segment;
+            if (cursor.offset >= segment.limit) {
+                // A segment is only followed by another once it is full, so its limit is final by then
+                Segment next = following(segment);
+                if (next == null) {
+                    break;
+                }
+                cursor.segment = next;
+                cursor.offset = 0;
+                continue;
+            }
+            int length = segment.buffer.getInt(cursor.offset);
+            Record record = decode(segment.buffer, cursor.offset + HEADER_BYTES, length);
+            cursor.offset += HEADER_BYTES + length;
+            if (record.getSeq() > cursor.lastSeq) {
+                out.add(record);
+                cursor.lastSeq = record.getSeq();
+                read++;
+            }
+        }
+        return read;
+    }
+
+    private Segment following(Segment segment) {
+        for (Segment candidate : segments) {
+            if (candidate.firstSeq > segment.firstSeq) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Passes every record above afterSeq to the consumer, in order
+     * @param afterSeq Sequence number already covered, e.g. by a snapshot
+     * @param consumer Receives the records
+     * @return Number of records replayed
+     */
+    public long replay(long afterSeq, Consumer<Record> consumer) {
+        Cursor cursor = cursor(afterSeq);
+        List<Record> batch = new ArrayList<>(1_024);
+        long replayed = 0;
+        while (read(cursor, 1_024, batch) > 0) {
+            batch.forEach(consumer);
+            replayed += batch.size();
+            batch.clear();
+        }
+        return replayed;
+    }
+
+    /**
+     * Deletes segments whose records are all at or below the given sequence
+     * number. The active segment is always kept.
+     * @param seq Highest sequence number no longer needed for recovery or projection
+     * @return Number of segments deleted
+     */
+    public synchronized int deleteThrough(long seq) {
+        int deleted = 0;
+        while (segments.size() > 1 && segments.get(1).firstSeq - 1 <= seq) {
+            Segment segment = segments.remove(0);
+            try {
+                Files.deleteIfExists(segment.path);
+                deleted++;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not delete journal segment " + segment.path, e);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Forces the journal to disk. The mappings stay valid until they are collected.
+     */
+    @Override
+    public void close() {
+        sync();
+    }
+
+    @Override
+    public String toString() {
+        return "LedgerJournal{directory=" + directory + ", segments=" + segments.size() + ", lastSeq=" + lastSeq + "}";
+    }
+
+    /**
+     * Maps the existing segments in order, validates every record and zeroes a
+     * torn tail in the last segment
+     */
+    private void recover() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            files.forEach(paths::add);
+        }
+        paths.sort(null); // the zero-padded first sequence number sorts by name
+
+        long expected = paths.isEmpty() ? 1 : firstSeqOf(paths.get(0));
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            if (firstSeqOf(path) != expected) {
+                throw new IOException("Journal segment " + path + " does not start at sequence " + expected);
+            }
+            Segment segment = new Segment(path, expected, map(path));
+            boolean last = i == paths.size() - 1;
+            int offset = 0;
+            while (offset + HEADER_BYTES <= segmentBytes) {
+                int length = segment.buffer.getInt(offset);
+                if (length == 0) {
+                    break;
+                }
+                Record record = validRecord(segment.buffer, offset, length, expected);
+                if (record == null) {
+                    if (!last) {
+                        throw new IOException("Corrupt record in journal segment " + path + " at offset " + offset);
+                    }
+                    LOGGER.warning("Discarding torn journal tail in " + path + " from offset " + offset);
+                    zero(segment.buffer, offset);
+                    break;
+                }
+                offset += HEADER_BYTES + length;
+                expected++;
+            }
+            segment.limit = offset;
+            segments.add(segment);
+        }
+
+        lastSeq = expected - 1;
+        if (segments.isEmpty()) {
+            createSegment(1);
+        }
+        syncedUpTo = segments.get(segments.size() - 1).limit;
+        LOGGER.info("Opened " + this);
+    }
+
+    private Record validRecord(MappedByteBuffer buffer, int offset, int length, long expectedSeq) {
+        if (length < 0 || length > MAX_PAYLOAD_BYTES || offset + HEADER_BYTES + length > segmentBytes) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(offset + HEADER_BYTES, payload);
+        CRC32 check = new CRC32();
+        check.update(payload);
+        if ((int) check.getValue() != buffer.getInt(offset + 4)) {
+            return null;
+        }
+        Record record;
+        try {
+            record = decode(buffer, offset + HEADER_BYTES, length);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        return record.getSeq() == expectedSeq ? record : null;
+    }
+
+    private Segment createSegment(long firstSeq) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        Segment segment = new Segment(path, firstSeq, map(path));
+        segments.add(segment);
+        syncedUpTo = 0;
+        return segment;
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+             FileChannel channel = file.getChannel()) {
+            if (file.length() < segmentBytes) {
+                file.setLength(segmentBytes);
+            }
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    private static void zero(MappedByteBuffer buffer, int from) {
+        for (int i = from; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.force();
+    }
+
+    private static long firstSeqOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] encode(Record record) {
+        byte[][] strings = {
+            utf8(record.account), utf8(record.toAccount), utf8(record.timestamp), utf8(record.description),
+            utf8(record.reference)
+        };
+        int size = 8 + 1 + 8;
+        for (byte[] s : strings) {
+            size += 2 + s.length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putLong(record.seq);
+        out.put((byte) record.kind.ordinal());
+        out.putLong(record.amountMinor);
+        for (byte[] s : strings) {
+            out.putShort((short) s.length);
+            out.put(s);
+        }
+        return out.array();
+    }
+
+    private static Record decode(MappedByteBuffer buffer, int offset, int length) {
+        ByteBuffer in = buffer.duplicate().position(offset).limit(offset + length).slice();
+        long seq = in.getLong();
+        Kind kind = Kind.values()[in.get()];
+        long amountMinor = in.getLong();
+        String account = string(in);
+        String toAccount = string(in);
+        String timestamp = string(in);
+        String description = string(in);
+        String reference = string(in);
+        return new Record(seq, kind, account, toAccount, amountMinor, timestamp, description, reference);
+    }
+
+    private static byte[] utf8(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal field too long: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    private static String string(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Online Banking System - Ledger Projector
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the SQL ledger in step with a LedgerJournal. A single background thread
+ * follows the journal and writes each batch of records in one transaction: the
+ * bank rows through LedgerWriter (which also updates account_balance), the
+ * transfer_request rows, and the sequence number the batch ends at in
+ * ledger_projection. Because the position commits with the rows, each record
+ * is projected exactly once across restarts. A failed batch is rolled back and
+ * retried.
+ *
+ * The history screens, statements and exports read the SQL ledger, so they
+ * trail the journal by the projector lag.
+ */
+public final class LedgerProjector {
+
+    private static final Logger LOGGER = Logger.getLogger(LedgerProjector.class.getName());
+
+    static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS ledger_projection (" +
+            "id INT NOT NULL PRIMARY KEY, " +
+            "last_seq BIGINT NOT NULL)";
+
+    private static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LedgerJournal journal;
+    private final int batchSize;
+    private final long pollNanos;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private volatile long projectedSeq = -1;
+
+    private final LongAdder projected = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LatencyHistogram batchLatency = new LatencyHistogram("journal.project");
+
+    /**
+     * @param journal Journal to follow
+     * @param batchSize Most journal records per transaction
+     * @param pollMillis Wait between polls once the projector has caught up
+     */
+    public LedgerProjector(LedgerJournal journal, int batchSize, long pollMillis) {
+        this.journal = journal;
+        this.batchSize = batchSize;
+        this.pollNanos = TimeUnit.MILLISECONDS.toNanos(pollMillis);
+        this.worker = new Thread(this::run, "ledger-projector");
+        worker.setDaemon(true);
+    }
+
+    /**
+     * Creates the position table if it does not exist yet
+     * @param connection Open database connection
+     * @throws SQLException if the DDL fails
+     */
+    public static void ensureTable(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate(CREATE_TABLE);
+            st.executeUpdate("INSERT IGNORE INTO ledger_projection (id, last_seq) VALUES (1, 0)");
+        }
+    }
+
+    /**
+     * Starts the background thread; it reads its position from the database first
+     */
+    public void start() {
+        worker.start();
+    }
+
+    /**
+     * @return Sequence number of the last record committed to SQL, -1 until it is known
+     */
+    public long getProjectedSeq() {
+        return projectedSeq;
+    }
+
+    /**
+     * @return Journal records not yet in SQL, -1 until the position is known
+     */
+    public long getLag() {
+        long seq = projectedSeq;
+        return seq < 0 ? -1 : journal.getLastSeq() - seq;
+    }
+
+    /**
+     * Stops following the journal once everything appended so far is projected
+     * @param timeoutMillis Maximum time to wait
+     */
+    public void shutdown(long timeoutMillis) {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            LOGGER.warning("Ledger projector did not catch up in " + timeoutMillis + " ms: " + this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LedgerProjector{projectedSeq=" + projectedSeq + ", lag=" + getLag() + ", projected=" +
+               projected.sum() + ", failedBatches=" + failedBatches.sum() + ", " + batchLatency + "}";
+    }
+
+    private void run() {
+        long start = loadPosition();
+        if (start < 0) {
+            return;
+        }
+        projectedSeq = start;
+        LedgerJournal.Cursor cursor = journal.cursor(start);
+        List<LedgerJournal.Record> batch = new ArrayList<>(batchSize);
+        while (true) {
+            if (batch.isEmpty() && journal.read(cursor, batchSize, batch) == 0) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(pollNanos);
+                continue;
+            }
+            try {
+                write(batch);
+                projected.add(batch.size());
+                projectedSeq = batch.get(batch.size() - 1).getSeq();
+                batch.clear();
+            } catch (SQLException e) {
+                failedBatches.increment();
+                LOGGER.log(Level.WARNING, "Ledger projection failed after sequence " + projectedSeq + ", retrying", e);
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(RETRY_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Reads the committed position, retrying until the database answers
+     * @return Last projected sequence number, or -1 if stopped before it was read
+     */
+    private long loadPosition() {
+        while (running) {
+            try (Connection connection = ConnectionPool.borrow()) {
+                ensureTable(connection);
+                try (Statement st = connection.createStatement();
+                     ResultSet rs = st.executeQuery("SELECT last_seq FROM ledger_projection WHERE id = 1")) {
+                    rs.next();
+                    long seq = rs.getLong(1);
+                    if (seq > journal.getLastSeq()) {
+                        LOGGER.severe("SQL ledger is projected through sequence " + seq + " but the journal ends at " +
+                                      journal.getLastSeq() + "; not projecting");
+                        return -1;
+                    }
+                    return seq;
+                }
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Cannot read ledger projection position, retrying", e);
+                LockSupport.parkNanos(RETRY_NANOS);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes one batch and the new position in a single transaction
+     */
+    private void write(List<LedgerJournal.Record> batch) throws SQLException {
+        long start = System.nanoTime();
+        List<LedgerEntry> entries = new ArrayList<>(batch.size() * 2);
+        List<LedgerJournal.Record> transfers = new ArrayList<>();
+        for (LedgerJournal.Record record : batch) {
+            Money amount = Money.ofMinor(record.getAmountMinor());
+            switch (record.getKind()) {
+                case DEPOSIT:
+                    entries.add(new LedgerEntry(record.getAccount(), record.getTimestamp(), "Deposit",
+                            amount, record.getDescription(), record.getReference()));
+                    break;
+                case TRANSFER:
+                    entries.add(new LedgerEntry(record.getAccount(), record.getTimestamp(),
+                            "Transfer-Out", amount, record.getDescription(), record.getReference()));
+                    entries.add(new LedgerEntry(record.getToAccount(), record.getTimestamp(), "Transfer-In",
+                            amount, record.getDescription(), record.getReference()));
+                    transfers.add(record);
+                    break;
+                default:
+                    break; // OPEN records describe SQL state that is already there
+            }
+        }
+
+        try (Connection connection = ConnectionPool.borrow()) {
+            connection.setAutoCommit(false);
+            try {
+                LedgerWriter.appendAll(connection, entries);
+                if (!transfers.isEmpty()) {
+                    try (PreparedStatement ps = connection.prepareStatement(
+                            "INSERT IGNORE INTO transfer_request (reference, from_account, to_account, amount, created_at) " +
+                            "VALUES (?, ?, ?, ?, ?)")) {
+                        for (LedgerJournal.Record record : transfers) {
+                            ps.setString(1, record.getReference());
+                            ps.setString(2, record.getAccount());
+                            ps.setString(3, record.getToAccount());
+                            ps.setBigDecimal(4, Money.ofMinor(record.getAmountMinor()).toBigDecimal());
+                            ps.setString(5, record.getTimestamp());
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "UPDATE ledger_projection SET last_seq = ? WHERE id = 1")) {
+                    ps.setLong(1, batch.get(batch.size() - 1).getSeq());
+                    ps.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            batchLatency.recordSince(start);
+        }
+    }
+}
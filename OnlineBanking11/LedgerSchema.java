@@ -0,0 +1,124 @@
+/*
+ * Online Banking System - Ledger Schema
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates the indexes and columns the ledger queries rely on.
+ * idx_bank_account_date serves the unfiltered history (equality on Account_No,
+ * range and ORDER BY on date, keyset tie-break on reference) and
+ * idx_bank_account_type_date serves the history filtered by type.
+ * idx_bank_date serves the per-day scans of the balance snapshot build.
+ * amount_minor holds each row's amount as a BIGINT of minor units, so sums and
+ * range filters run on integers instead of casting the legacy text column;
+ * see {@link LedgerAmountMigration} for backfilling existing rows.
+ */
+public final class LedgerSchema {
+
+    private static final Logger LOGGER = Logger.getLogger(LedgerSchema.class.getName());
+
+    static final String[][] BANK_INDEXES = {
+        {"idx_bank_account_date", "CREATE INDEX idx_bank_account_date ON bank (Account_No, date, reference)"},
+        {"idx_bank_account_type_date", "CREATE INDEX idx_bank_account_type_date ON bank (Account_No, type, date)"},
+        {"idx_bank_date", "CREATE INDEX idx_bank_date ON bank (date)"}
+    };
+
+    /** Row amount in minor units; rows the migration has not reached yet fall back to the text column */
+    static final String AMOUNT_MINOR = "COALESCE(amount_minor, ROUND(CAST(amount AS DECIMAL(19,2)) * 100))";
+
+    /** Signed effect of a row on the balance in minor units; credits add, everything else subtracts */
+    static final String SIGNED_AMOUNT_MINOR =
+            "CASE WHEN type IN ('Deposit', 'Transfer-In') THEN " + AMOUNT_MINOR + " ELSE -" + AMOUNT_MINOR + " END";
+
+    private LedgerSchema() {
+    }
+
+    /**
+     * Creates any missing ledger index
+     * @param connection Open database connection
+     * @throws SQLException if an index cannot be created
+     */
+    public static void ensureIndexes(Connection connection) throws SQLException {
+        Set<String> existing = existingIndexes(connection, "bank");
+        try (Statement st = connection.createStatement()) {
+            for (String[] index : BANK_INDEXES) {
+                if (!existing.contains(index[0].toLowerCase())) {
+                    LOGGER.info("Creating index " + index[0]);
+                    st.executeUpdate(index[1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the bank.amount_minor column if it is missing. The column is nullable
+     * and appended last, which MySQL 8 adds in place without rebuilding the table.
+     * @param connection Open database connection
+     * @throws SQLException if the lookup or ALTER fails
+     */
+    public static void ensureAmountColumn(Connection connection) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        for (String[] names : new String[][]{{"bank", "amount_minor"}, {"BANK", "AMOUNT_MINOR"}}) {
+            try (ResultSet rs = meta.getColumns(connection.getCatalog(), null, names[0], names[1])) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+        LOGGER.info("Adding column bank.amount_minor");
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate("ALTER TABLE bank ADD COLUMN amount_minor BIGINT NULL");
+        }
+    }
+
+    /**
+     * @param connection Open database connection
+     * @param table Table name
+     * @return Lower-case names of the table's indexes
+     * @throws SQLException if the metadata lookup fails
+     */
+    static Set<String> existingIndexes(Connection connection, String table) throws SQLException {
+        Set<String> names = new HashSet<>();
+        DatabaseMetaData meta = connection.getMetaData();
+        for (String candidate : new String[]{table, table.toUpperCase()}) {
+            try (ResultSet rs = meta.getIndexInfo(connection.getCatalog(), null, candidate, false, true)) {
+                while (rs.next()) {
+                    String name = rs.getString("INDEX_NAME");
+                    if (name != null) {
+                        names.add(name.toLowerCase());
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Entry point for applying the schema from a deployment script
+     * @param args Unused
+     */
+    public static void main(String[] args) {
+        try (Connection connection = ConnectionPool.borrow()) {
+            ensureIndexes(connection);
+            ensureAmountColumn(connection);
+            AccountBalanceStore.ensureTable(connection);
+            TransferEngine.ensureTable(connection);
+            CredentialStore.ensureSchema(connection);
+            BalanceSnapshotStore.ensureTable(connection);
+            NotificationOutbox.ensureTable(connection);
+            LOGGER.info("Ledger schema is up to date");
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to apply ledger schema", e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Online Banking System - Ledger Writer
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single entry point for writing rows to the bank ledger.
+ * Each append inserts the bank row, updates the materialized balance and
+ * queues a notification in {@link NotificationOutbox} on the caller's
+ * connection, so all three land in the caller's transaction. Amounts are
+ * written as exact minor units to amount_minor, which the migration adds.
+ * Login_Password is written empty: PINs are kept only as hashes in login.
+ */
+public final class LedgerWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO bank (Login_Password, Account_No, date, type, amount, amount_minor, description, reference) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private LedgerWriter() {
+    }
+
+    /**
+     * Appends one ledger row and applies its effect to account_balance
+     * @param connection Connection holding the caller's transaction (auto-commit off)
+     * @param accountNo Account number
+     * @param timestamp Row timestamp formatted as yyyy-MM-dd HH:mm:ss
+     * @param type Row type (Deposit, Withdrawal, Transfer-In, Transfer-Out)
+     * @param amount Unsigned amount
+     * @param description Description, may be empty
+     * @param reference Transaction reference
+     * @throws SQLException if any write fails
+     */
+    public static void append(Connection connection, String accountNo, String timestamp, String type, Money amount,
+                              String description, String reference) throws SQLException {
+        append(connection, new LedgerEntry(accountNo, timestamp, type, amount, description, reference));
+    }
+
+    /**
+     * Appends one ledger row and applies its effect to account_balance
+     * @param connection Connection holding the caller's transaction (auto-commit off)
+     * @param entry Row to write
+     * @throws SQLException if any write fails
+     */
+    public static void append(Connection connection, LedgerEntry entry) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            bind(ps, entry);
+            ps.executeUpdate();
+        }
+        AccountBalanceStore.applyDelta(connection, entry.getAccountNo(), entry.getSignedMinorUnits());
+        NotificationOutbox.add(connection, entry);
+    }
+
+    /**
+     * Appends many ledger rows with one JDBC batch and one batched balance update
+     * per distinct account
+     * @param connection Connection holding the caller's transaction (auto-commit off)
+     * @param entries Rows to write
+     * @throws SQLException if any write fails
+     */
+    public static void appendAll(Connection connection, List<LedgerEntry> entries) throws SQLException {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            for (LedgerEntry entry : entries) {
+                bind(ps, entry);
+                ps.addBatch();
+                deltas.merge(entry.getAccountNo(), entry.getSignedMinorUnits(), Long::sum);
+            }
+            ps.executeBatch();
+        }
+        AccountBalanceStore.applyDeltas(connection, deltas);
+        NotificationOutbox.addAll(connection, entries);
+    }
+
+    private static void bind(PreparedStatement ps, LedgerEntry entry) throws SQLException {
+        ps.setString(1, "");
+        ps.setString(2, entry.getAccountNo());
+        ps.setString(3, entry.getTimestamp());
+        ps.setString(4, entry.getType());
+        // The text column is still written for readers that predate amount_minor
+        ps.setString(5, entry.getAmount().toString());
+        ps.setLong(6, entry.getAmount().getMinorUnits());
+        ps.setString(7, entry.getDescription());
+        ps.setString(8, entry.getReference());
+    }
+}
@@ -4,8 +4,6 @@
 package banking.management.system;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -20,23 +18,20 @@ import javax.swing.JOptionPane;
  */
 public class LoginModel {
     
-    private Connection connection;
-    private static final int MAX_LOGIN_ATTEMPTS = 3;
     private static final Logger LOGGER = Logger.getLogger(LoginModel.class.getName());
     private static final long SESSION_TIMEOUT_MINUTES = 15;
+    private static final AuthenticationService AUTHENTICATION = new AuthenticationService();
     
     private LocalDateTime lastActivityTime;
     private String currentAccountNo;
-    private int loginAttempts;
+    private LoginPrincipal currentPrincipal;
     
     public LoginModel() {
-        connection = ConnectionSql.Connector();
-        if (connection == null) {
+        if (!isDbConnected()) {
             LOGGER.severe("Database connection failed");
             JOptionPane.showMessageDialog(null, "Database connection failed", "Connection Error", JOptionPane.ERROR_MESSAGE);
             System.exit(1);
         }
-        loginAttempts = 0;
     }
     
     /**
@@ -44,7 +39,7 @@ public class LoginModel {
      * @return true if connected, false otherwise
      */
     public boolean isDbConnected() {
-        try {
+        try (Connection connection = ConnectionPool.borrow()) {
             return !connection.isClosed();
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Database connection check failed", ex);
@@ -53,80 +48,64 @@ public class LoginModel {
     }
     
     /**
-     * Authenticates a user with account number and password
+     * Authenticates a user and resolves their role in a single query. The
+     * desktop client has no remote address, so only the per-account limit applies.
+     * @param accountNo the account number
+     * @param password the password
+     * @return the principal, which is rejected or locked if login failed
+     */
+    public LoginPrincipal authenticate(String accountNo, String password) {
+        return authenticate(accountNo, password, null);
+    }
+    
+    /**
+     * Authenticates a user and resolves their role in a single query.
+     * The attempt is written to login_activity asynchronously.
+     * @param accountNo the account number
+     * @param password the password
+     * @param ipAddress the address the attempt came from, or null if unknown
+     * @return the principal, which is rejected or locked if login failed
+     */
+    public LoginPrincipal authenticate(String accountNo, String password, String ipAddress) {
+        LoginPrincipal principal = AUTHENTICATION.authenticate(accountNo, password, ipAddress);
+        if (principal.isAuthenticated()) {
+            currentAccountNo = accountNo;
+            currentPrincipal = principal;
+            lastActivityTime = LocalDateTime.now();
+        }
+        return principal;
+    }
+    
+    /**
+     * Authenticates a user with account number and password.
+     * Prefer {@link #authenticate(String, String)}, which also returns the role.
      * @param accountNo the account number
      * @param password the password
      * @return true if authentication successful, false otherwise
      * @throws SQLException if database error occurs
      */
     public boolean isLogin(String accountNo, String password) throws SQLException {
-        PreparedStatement preparedStatement = null;
-        ResultSet resultSet = null;
-        String query = "SELECT * FROM login WHERE Account_No=? AND Login_Password=?";
-        
-        try {
-            // Check for too many failed login attempts
-            if (loginAttempts >= MAX_LOGIN_ATTEMPTS) {
-                LOGGER.warning("Account locked due to too many failed login attempts: " + accountNo);
-                JOptionPane.showMessageDialog(null, "Account temporarily locked. Please contact customer support.", 
-                        "Security Alert", JOptionPane.WARNING_MESSAGE);
-                return false;
-            }
-            
-            preparedStatement = connection.prepareStatement(query);
-            preparedStatement.setString(1, accountNo);
-            preparedStatement.setString(2, password); // In production, use hashed password comparison
-            
-            resultSet = preparedStatement.executeQuery();
-            
-            if (resultSet.next()) {
-                // Successful login
-                currentAccountNo = accountNo;
-                loginAttempts = 0;
-                lastActivityTime = LocalDateTime.now();
-                logLoginActivity(accountNo, true);
-                return true;
-            } else {
-                // Failed login
-                loginAttempts++;
-                logLoginActivity(accountNo, false);
-                return false;
-            }
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Login authentication error", e);
-            return false;
-        } finally {
-            if (preparedStatement != null) preparedStatement.close();
-            if (resultSet != null) resultSet.close();
+        LoginPrincipal principal = authenticate(accountNo, password);
+        if (principal.isLocked()) {
+            JOptionPane.showMessageDialog(null, "Account temporarily locked. Please contact customer support.", 
+                    "Security Alert", JOptionPane.WARNING_MESSAGE);
         }
+        return principal.isAuthenticated();
     }
     
     /**
-     * Checks if the user has admin privileges
+     * Checks if the user has admin privileges, from the role resolved when this
+     * model authenticated the account. No PIN is verified here, so this is not a
+     * way around the login throttle; call {@link #authenticate(String, String)}
+     * or {@link #isLogin(String, String)} first.
      * @param accountNo the account number
-     * @param password the password
-     * @return true if user is admin, false otherwise
-     * @throws SQLException if database error occurs
+     * @param password unused; the PIN was verified by the login
+     * @return true if the account is logged in on this model as an admin, false otherwise
+     * @throws SQLException never; kept for existing callers
      */
     public boolean isAdmin(String accountNo, String password) throws SQLException {
-        PreparedStatement preparedStatement = null;
-        ResultSet resultSet = null;
-        String query = "SELECT * FROM login WHERE Account_No=? AND Login_Password=? AND user_type='ADMIN'";
-        
-        try {
-            preparedStatement = connection.prepareStatement(query);
-            preparedStatement.setString(1, accountNo);
-            preparedStatement.setString(2, password);
-            
-            resultSet = preparedStatement.executeQuery();
-            return resultSet.next();
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Admin verification error", e);
-            return false;
-        } finally {
-            if (preparedStatement != null) preparedStatement.close();
-            if (resultSet != null) resultSet.close();
-        }
+        LoginPrincipal principal = currentPrincipal;
+        return principal != null && accountNo != null && accountNo.equals(currentAccountNo) && principal.isAdmin();
     }
     
     /**
@@ -156,6 +135,7 @@ public class LoginModel {
      */
     public void logout() {
         currentAccountNo = null;
+        currentPrincipal = null;
         lastActivityTime = null;
         LOGGER.info("User logged out");
     }
@@ -172,25 +152,6 @@ public class LoginModel {
         return password.matches(passwordPattern);
     }
     
-    /**
-     * Logs login activity for security auditing
-     * @param accountNo the account number
-     * @param success whether the login was successful
-     */
-    private void logLoginActivity(String accountNo, boolean success) {
-        try {
-            String query = "INSERT INTO login_activity (account_no, login_time, success, ip_address) VALUES (?, NOW(), ?, ?)";
-            PreparedStatement ps = connection.prepareStatement(query);
-            ps.setString(1, accountNo);
-            ps.setBoolean(2, success);
-            ps.setString(3, "127.0.0.1"); // In a real app, get actual IP
-            ps.executeUpdate();
-            ps.close();
-        } catch (SQLException e) {
-            LOGGER.log(Level.WARNING, "Failed to log login activity", e);
-        }
-    }
-    
     /**
      * Gets the current account number of the logged-in user
      * @return the account number or null if not logged in
@@ -199,6 +160,13 @@ public class LoginModel {
         return currentAccountNo;
     }
     
+    /**
+     * @return Latency of authenticate() calls in this process
+     */
+    public static LatencyHistogram getLoginLatency() {
+        return AuthenticationService.getLoginLatency();
+    }
+    
     /**
      * Updates the last activity time to prevent session timeout
      */
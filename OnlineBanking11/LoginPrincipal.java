@@ -0,0 +1,98 @@
+/*
+ * Online Banking System - Login Principal
+ */
+package banking.management.system;
+
+import java.security.Principal;
+
+/**
+ * Outcome of one login attempt: the account, the role it was granted and
+ * whether the attempt succeeded, failed or was refused because the account is
+ * locked. The role is only known for authenticated principals.
+ */
+public final class LoginPrincipal implements Principal {
+
+    public static final String ADMIN_ROLE = "ADMIN";
+    public static final String DEFAULT_ROLE = "USER";
+
+    /**
+     * How a login attempt ended
+     */
+    public enum Status {
+        AUTHENTICATED,
+        REJECTED,
+        LOCKED
+    }
+
+    private final String accountNo;
+    private final String role;
+    private final Status status;
+
+    private LoginPrincipal(String accountNo, String role, Status status) {
+        this.accountNo = accountNo;
+        this.role = role;
+        this.status = status;
+    }
+
+    /**
+     * @param accountNo Account number
+     * @param role user_type of the account, or null for the default role
+     * @return Principal of a successful login
+     */
+    public static LoginPrincipal authenticated(String accountNo, String role) {
+        return new LoginPrincipal(accountNo, role == null ? DEFAULT_ROLE : role, Status.AUTHENTICATED);
+    }
+
+    /**
+     * @param accountNo Account number
+     * @return Principal of a login with an unknown account or wrong PIN
+     */
+    public static LoginPrincipal rejected(String accountNo) {
+        return new LoginPrincipal(accountNo, null, Status.REJECTED);
+    }
+
+    /**
+     * @param accountNo Account number
+     * @return Principal of a login refused without checking the PIN
+     */
+    public static LoginPrincipal locked(String accountNo) {
+        return new LoginPrincipal(accountNo, null, Status.LOCKED);
+    }
+
+    @Override
+    public String getName() {
+        return accountNo;
+    }
+
+    public String getAccountNo() {
+        return accountNo;
+    }
+
+    /**
+     * @return Role of an authenticated principal, otherwise null
+     */
+    public String getRole() {
+        return role;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isAuthenticated() {
+        return status == Status.AUTHENTICATED;
+    }
+
+    public boolean isLocked() {
+        return status == Status.LOCKED;
+    }
+
+    public boolean isAdmin() {
+        return isAuthenticated() && ADMIN_ROLE.equalsIgnoreCase(role);
+    }
+
+    @Override
+    public String toString() {
+        return "LoginPrincipal{accountNo=" + accountNo + ", role=" + role + ", status=" + status + "}";
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * Online Banking System - Login Throttle
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Rate limits failed logins per account and per source address with a sliding
+ * window counter: the failures of the current fixed window plus the previous
+ * window's failures weighted by how much of it still overlaps the sliding window.
+ * The check runs entirely in memory, so it sits in front of the credential query
+ * and turns credential stuffing away before it reaches the database. Attempts
+ * without a known source address, such as those from the desktop client, are
+ * limited per account only.
+ *
+ * Failures are persisted asynchronously to the login_throttle table as additive
+ * per-window deltas, and every sync pulls back the rows other nodes changed, so a
+ * lockout holds across nodes within one sync interval and survives a restart.
+ * Only counts of at least half the limit are pulled, which keeps the sync small
+ * while thousands of accounts each see a single failure. Counters live in an
+ * ExpiringMap and disappear once both of their windows have passed.
+ *
+ * Settings: banking.throttle.account.limit (default 3) and
+ * banking.throttle.account.windowSeconds (900), banking.throttle.address.limit
+ * (30) and banking.throttle.address.windowSeconds (60), banking.throttle.syncMillis (2000).
+ */
+public final class LoginThrottle {
+
+    private static final Logger LOGGER = Logger.getLogger(LoginThrottle.class.getName());
+
+    private static final int SYNCS_PER_SWEEP = 30;
+
+    static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS login_throttle (" +
+            "throttle_key VARCHAR(100) NOT NULL, " +
+            "window_start BIGINT NOT NULL, " +
+            "failures INT NOT NULL, " +
+            "updated_at BIGINT NOT NULL, " +
+            "PRIMARY KEY (throttle_key, window_start))";
+    private static final String UPDATED_INDEX = "idx_login_throttle_updated";
+
+    private static volatile LoginThrottle instance;
+
+    /**
+     * Limit and window for one kind of key
+     */
+    static final class Policy {
+        private final String prefix;
+        private final int limit;
+        private final long windowMillis;
+        private final ExpiringMap<String, Counter> counters;
+
+        Policy(String prefix, int limit, long windowMillis) {
+            this.prefix = prefix;
+            this.limit = limit;
+            this.windowMillis = windowMillis;
+            // A counter whose previous window has passed holds nothing
+            this.counters = new ExpiringMap<>("throttle." + prefix, 2 * windowMillis);
+        }
+
+        private static Policy fromSystemProperties(String name, String prefix, int limit, long windowSeconds) {
+            return new Policy(prefix,
+                    Integer.getInteger("banking.throttle." + name + ".limit", limit),
+                    TimeUnit.SECONDS.toMillis(Long.getLong("banking.throttle." + name + ".windowSeconds", windowSeconds)));
+        }
+
+        private Counter counter(String key, boolean create) {
+            Counter counter = counters.touch(key);
+            if (counter == null && create) {
+                Counter created = new Counter();
+                counter = counters.putIfAbsent(key, created);
+                if (counter == null) {
+                    counter = created;
+                }
+            }
+            return counter;
+        }
+
+        private int syncThreshold() {
+            return Math.max(1, (limit + 1) / 2);
+        }
+    }
+
+    /**
+     * Failures in the current and previous window, as seen locally and as last read from the table
+     */
+    private static final class Counter {
+        private long window = Long.MIN_VALUE;
+        private int localCurrent;
+        private int localPrevious;
+        private int storedCurrent;
+        private int storedPrevious;
+
+        synchronized double estimate(long now, long windowMillis) {
+            roll(now / windowMillis);
+            double overlap = 1.0 - (double) (now % windowMillis) / windowMillis;
+            return Math.max(localPrevious, storedPrevious) * overlap + Math.max(localCurrent, storedCurrent);
+        }
+
+        synchronized long increment(long now, long windowMillis) {
+            roll(now / windowMillis);
+            localCurrent++;
+            return window;
+        }
+
+        synchronized void stored(long rowWindow, int failures, long now, long windowMillis) {
+            roll(now / windowMillis);
+            if (rowWindow == window) {
+                storedCurrent = Math.max(storedCurrent, failures);
+            } else if (rowWindow == window - 1) {
+                storedPrevious = Math.max(storedPrevious, failures);
+            }
+        }
+
+        synchronized void reset() {
+            localCurrent = localPrevious = storedCurrent = storedPrevious = 0;
+        }
+
+        private void roll(long nowWindow) {
+            if (nowWindow == window) {
+                return;
+            }
+            boolean adjacent = nowWindow == window + 1;
+            localPrevious = adjacent ? localCurrent : 0;
+            storedPrevious = adjacent ? storedCurrent : 0;
+            localCurrent = storedCurrent = 0;
+            window = nowWindow;
+        }
+    }
+
+    private final Policy accountPolicy;
+    private final Policy addressPolicy;
+    private final long syncMillis;
+    private final Map<String, Integer> pendingFailures = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> pendingResets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService syncer;
+    private long lastSyncAt;
+    private int syncsSinceSweep;
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder syncFailures = new LongAdder();
+    private final LatencyHistogram syncLatency = new LatencyHistogram("login.throttle.sync");
+
+    /**
+     * @param accountPolicy Limit per account
+     * @param addressPolicy Limit per source address
+     * @param syncMillis How often failures are written and other nodes' counts read
+     */
+    LoginThrottle(Policy accountPolicy, Policy addressPolicy, long syncMillis) {
+        this.accountPolicy = accountPolicy;
+        this.addressPolicy = addressPolicy;
+        this.syncMillis = syncMillis;
+
+        try (Connection connection = ConnectionPool.borrow()) {
+            ensureTable(connection);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Could not verify the login_throttle table", e);
+        }
+
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "login-throttle-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        // Start with a full read so lockouts survive a restart
+        syncer.scheduleWithFixedDelay(this::sync, 0, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return The process-wide throttle, created on first use from system properties
+     */
+    public static LoginThrottle getInstance() {
+        LoginThrottle result = instance;
+        if (result == null) {
+            synchronized (LoginThrottle.class) {
+                result = instance;
+                if (result == null) {
+                    instance = result = new LoginThrottle(
+                            Policy.fromSystemProperties("account", "acct:", 3, 900),
+                            Policy.fromSystemProperties("address", "ip:", 30, 60),
+                            Long.getLong("banking.throttle.syncMillis", 2_000));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates the throttle table and its index if they do not exist yet
+     * @param connection Open database connection
+     * @throws SQLException if the DDL fails
+     */
+    public static void ensureTable(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate(CREATE_TABLE);
+            if (!LedgerSchema.existingIndexes(connection, "login_throttle").contains(UPDATED_INDEX)) {
+                st.executeUpdate("CREATE INDEX " + UPDATED_INDEX + " ON login_throttle (updated_at)");
+            }
+        }
+    }
+
+    /**
+     * Checks whether a login may go ahead; does not touch the database
+     * @param accountNo Account number
+     * @param ipAddress Source address, or null if unknown
+     * @return true if the account or the address is over its limit
+     */
+    public boolean isBlocked(String accountNo, String ipAddress) {
+        checks.increment();
+        long now = System.currentTimeMillis();
+        if (over(accountPolicy, accountNo, now) || (ipAddress != null && over(addressPolicy, ipAddress, now))) {
+            blocked.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Counts a failed login against the account and the address
+     * @param accountNo Account number
+     * @param ipAddress Source address, or null if unknown
+     */
+    public void recordFailure(String accountNo, String ipAddress) {
+        failures.increment();
+        long now = System.currentTimeMillis();
+        increment(accountPolicy, accountNo, now);
+        if (ipAddress != null) {
+            increment(addressPolicy, ipAddress, now);
+        }
+    }
+
+    /**
+     * Clears the account's failures after a successful login; the address keeps its count
+     * @param accountNo Account number
+     */
+    public void recordSuccess(String accountNo) {
+        String key = accountPolicy.prefix + accountNo;
+        Counter counter = accountPolicy.counter(key, false);
+        if (counter != null) {
+            counter.reset();
+            long window = System.currentTimeMillis() / accountPolicy.windowMillis;
+            pendingFailures.remove(key + '|' + window * accountPolicy.windowMillis);
+            pendingFailures.remove(key + '|' + (window - 1) * accountPolicy.windowMillis);
+            pendingResets.put(key, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Stops the sync thread after writing pending failures
+     */
+    public void shutdown() {
+        syncer.shutdown();
+        try {
+            syncer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sync();
+    }
+
+    @Override
+    public String toString() {
+        return "LoginThrottle{checks=" + checks.sum() + ", blocked=" + blocked.sum() + ", failures=" + failures.sum() +
+               ", pending=" + pendingFailures.size() + ", accounts=" + accountPolicy.counters.size() +
+               ", addresses=" + addressPolicy.counters.size() + ", syncFailures=" + syncFailures.sum() +
+               ", " + syncLatency + "}";
+    }
+
+    private static boolean over(Policy policy, String id, long now) {
+        Counter counter = policy.counter(policy.prefix + id, false);
+        return counter != null && counter.estimate(now, policy.windowMillis) >= policy.limit;
+    }
+
+    private void increment(Policy policy, String id, long now) {
+        String key = policy.prefix + id;
+        long window = policy.counter(key, true).increment(now, policy.windowMillis);
+        pendingFailures.merge(key + '|' + window * policy.windowMillis, 1, Integer::sum);
+    }
+
+    /**
+     * Writes pending resets and failures, then reads what changed since the last sync; runs on the sync thread
+     */
+    private void sync() {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        try (Connection connection = ConnectionPool.borrow()) {
+            writeResets(connection);
+            writeFailures(connection, now);
+            // Overlap the previous read so rows committed while it ran are not missed
+            readChanges(connection, accountPolicy, lastSyncAt - syncMillis, now);
+            readChanges(connection, addressPolicy, lastSyncAt - syncMillis, now);
+            lastSyncAt = now;
+            if (++syncsSinceSweep >= SYNCS_PER_SWEEP) {
+                syncsSinceSweep = 0;
+                sweep(connection, now);
+            }
+        } catch (SQLException | RuntimeException e) {
+            syncFailures.increment();
+            LOGGER.log(Level.WARNING, "Login throttle sync failed", e);
+        } finally {
+            syncLatency.recordSince(start);
+        }
+    }
+
+    private void writeResets(Connection connection) throws SQLException {
+        if (pendingResets.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM login_throttle WHERE throttle_key = ?")) {
+            for (String key : new ArrayList<>(pendingResets.keySet())) {
+                pendingResets.remove(key);
+                ps.setString(1, key);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void writeFailures(Connection connection, long now) throws SQLException {
+        List<String> keys = new ArrayList<>();
+        List<Long> windows = new ArrayList<>();
+        List<Integer> deltas = new ArrayList<>();
+        for (String pending : new ArrayList<>(pendingFailures.keySet())) {
+            Integer delta = pendingFailures.remove(pending);
+            if (delta != null) {
+                int separator = pending.lastIndexOf('|');
+                keys.add(pending.substring(0, separator));
+                windows.add(Long.parseLong(pending.substring(separator + 1)));
+                deltas.add(delta);
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement update = connection.prepareStatement(
+                     "UPDATE login_throttle SET failures = failures + ?, updated_at = ? " +
+                     "WHERE throttle_key = ? AND window_start = ?");
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO login_throttle (throttle_key, window_start, failures, updated_at) VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < keys.size(); i++) {
+                update.setInt(1, deltas.get(i));
+                update.setLong(2, now);
+                update.setString(3, keys.get(i));
+                update.setLong(4, windows.get(i));
+                update.addBatch();
+            }
+            int[] updated = update.executeBatch();
+            for (int i = 0; i < keys.size(); i++) {
+                if (updated[i] != 0) {
+                    continue;
+                }
+                insert.setString(1, keys.get(i));
+                insert.setLong(2, windows.get(i));
+                insert.setInt(3, deltas.get(i));
+                insert.setLong(4, now);
+                try {
+                    insert.executeUpdate();
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    // Another node inserted the window first; add to its row
+                    update.setInt(1, deltas.get(i));
+                    update.setLong(2, now);
+                    update.setString(3, keys.get(i));
+                    update.setLong(4, windows.get(i));
+                    update.executeUpdate();
+                }
+            }
+        } catch (SQLException e) {
+            // Put the failures back so the next sync retries them
+            for (int i = 0; i < keys.size(); i++) {
+                pendingFailures.merge(keys.get(i) + '|' + windows.get(i), deltas.get(i), Integer::sum);
+            }
+            throw e;
+        }
+    }
+
+    private void readChanges(Connection connection, Policy policy, long since, long now) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT throttle_key, window_start, failures FROM login_throttle " +
+                "WHERE updated_at > ? AND window_start >= ? AND failures >= ? AND throttle_key LIKE ?")) {
+            ps.setLong(1, since);
+            ps.setLong(2, (now / policy.windowMillis - 1) * policy.windowMillis);
+            ps.setInt(3, policy.syncThreshold());
+            ps.setString(4, policy.prefix + "%");
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    policy.counter(rs.getString(1), true)
+                          .stored(rs.getLong(2) / policy.windowMillis, rs.getInt(3), now, policy.windowMillis);
+                }
+            }
+        }
+    }
+
+    private void sweep(Connection connection, long now) throws SQLException {
+        long longestWindow = Math.max(accountPolicy.windowMillis, addressPolicy.windowMillis);
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM login_throttle WHERE updated_at < ?")) {
+            ps.setLong(1, now - 2 * longestWindow);
+            ps.executeUpdate();
+        }
+    }
+}
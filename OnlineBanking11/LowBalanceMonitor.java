@@ -0,0 +1,298 @@
+/*
+ * Online Banking System - Low Balance Monitor
+ */
+package banking.management.system;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decides when an account's balance warrants a low-balance alert, without
+ * touching the ledger. Every relayed ledger row carries the balance after it,
+ * which is compared with the account's threshold in an in-memory index. Only
+ * accounts whose preferences differ from the default (enabled, 100.00) are
+ * held in it, next to a sorted count of the distinct thresholds, so the
+ * highest threshold in force is always known.
+ *
+ * An alert fires when the balance is at or below the threshold and the
+ * account is armed. The account then stays disarmed, and further debits stay
+ * quiet, until a balance above the threshold plus a hysteresis band re-arms
+ * it. Disarmed accounts are recorded in low_balance_alert, whose primary key
+ * also settles races between relay workers and processes.
+ *
+ * The nightly sweep is one range scan of the balance index of
+ * account_balance, bounded by the highest threshold, with each row checked
+ * against the in-memory index; accounts already alerted are skipped by the
+ * same rule.
+ *
+ * Settings: banking.notify.lowBalance.rearmPercent (default 10).
+ */
+public final class LowBalanceMonitor {
+
+    private static final Logger LOGGER = Logger.getLogger(LowBalanceMonitor.class.getName());
+
+    static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS low_balance_alert (" +
+            "account_no VARCHAR(30) NOT NULL PRIMARY KEY, " +
+            "balance_minor BIGINT NOT NULL, " +
+            "alerted_at TIMESTAMP NOT NULL)";
+
+    /** Index value for accounts that turned low-balance alerts off */
+    private static final long DISABLED = Long.MIN_VALUE;
+
+    private static volatile LowBalanceMonitor instance;
+
+    /**
+     * Receives the alerts found by a sweep
+     */
+    public interface Alert {
+        void send(String accountNo, long balanceMinor);
+    }
+
+    private final long defaultThresholdMinor;
+    private final int rearmPercent;
+    private final Map<String, Long> thresholds = new ConcurrentHashMap<>();
+    private final TreeMap<Long, Integer> thresholdCounts = new TreeMap<>();
+    private final Set<String> alerted = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder alerts = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder rearmed = new LongAdder();
+
+    /**
+     * @param defaultThresholdMinor Threshold of accounts without their own, in minor units
+     * @param rearmPercent Hysteresis band above the threshold, in percent of it
+     */
+    public LowBalanceMonitor(long defaultThresholdMinor, int rearmPercent) {
+        this.defaultThresholdMinor = defaultThresholdMinor;
+        this.rearmPercent = rearmPercent;
+    }
+
+    /**
+     * @return The process-wide monitor, loaded from the database on first use
+     */
+    public static LowBalanceMonitor getInstance() {
+        LowBalanceMonitor result = instance;
+        if (result == null) {
+            synchronized (LowBalanceMonitor.class) {
+                result = instance;
+                if (result == null) {
+                    result = new LowBalanceMonitor(toMinor(NotificationService.DEFAULT_LOW_BALANCE),
+                            Integer.getInteger("banking.notify.lowBalance.rearmPercent", 10));
+                    try (Connection connection = ConnectionPool.borrow()) {
+                        result.load(connection);
+                    } catch (SQLException e) {
+                        LOGGER.log(Level.WARNING, "Could not load low-balance thresholds, using the default for all accounts", e);
+                    }
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates the alert state table if it does not exist yet
+     * @param connection Open database connection
+     * @throws SQLException if the DDL fails
+     */
+    public static void ensureTable(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate(CREATE_TABLE);
+        }
+    }
+
+    /**
+     * Loads the non-default thresholds and the disarmed accounts, one query each
+     * @param connection Open database connection
+     * @throws SQLException if a query fails
+     */
+    public void load(Connection connection) throws SQLException {
+        ensureTable(connection);
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT account_no, enable_low_balance, low_balance_threshold FROM notification_preferences " +
+                "WHERE enable_low_balance = FALSE OR low_balance_threshold <> ?")) {
+            ps.setDouble(1, NotificationService.DEFAULT_LOW_BALANCE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    setThreshold(rs.getString(1), rs.getBoolean(2), rs.getDouble(3));
+                }
+            }
+        }
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT account_no FROM low_balance_alert")) {
+            while (rs.next()) {
+                alerted.add(rs.getString(1));
+            }
+        }
+        LOGGER.info("Loaded " + thresholds.size() + " low-balance preferences and " + alerted.size() + " open alerts");
+    }
+
+    /**
+     * Records an account's low-balance preference; call whenever it changes
+     * @param accountNo Account number
+     * @param enabled Whether the account wants low-balance alerts
+     * @param threshold Threshold in major units
+     */
+    public void setThreshold(String accountNo, boolean enabled, double threshold) {
+        long value = enabled ? toMinor(threshold) : DISABLED;
+        Long previous = value == defaultThresholdMinor ? thresholds.remove(accountNo) : thresholds.put(accountNo, value);
+        synchronized (thresholdCounts) {
+            if (previous != null && previous != DISABLED) {
+                thresholdCounts.computeIfPresent(previous, (t, count) -> count == 1 ? null : count - 1);
+            }
+            if (value != defaultThresholdMinor && value != DISABLED) {
+                thresholdCounts.merge(value, 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * @return Highest threshold of any account in minor units
+     */
+    public long getMaxThresholdMinor() {
+        synchronized (thresholdCounts) {
+            return thresholdCounts.isEmpty() ? defaultThresholdMinor
+                                             : Math.max(defaultThresholdMinor, thresholdCounts.lastKey());
+        }
+    }
+
+    /**
+     * Evaluates an account's balance after a ledger write
+     * @param accountNo Account number
+     * @param balanceMinor Balance after the write in minor units
+     * @return True if a low-balance alert should be sent now
+     */
+    public boolean onBalance(String accountNo, long balanceMinor) {
+        evaluated.increment();
+        Long own = thresholds.get(accountNo);
+        long threshold = own != null ? own : defaultThresholdMinor;
+        if (threshold == DISABLED) {
+            return false;
+        }
+
+        if (balanceMinor <= threshold) {
+            if (alerted.contains(accountNo) || !disarm(accountNo, balanceMinor)) {
+                alerted.add(accountNo);
+                suppressed.increment();
+                return false;
+            }
+            alerted.add(accountNo);
+            alerts.increment();
+            return true;
+        }
+        if (balanceMinor > threshold + threshold * rearmPercent / 100 && alerted.remove(accountNo)) {
+            rearm(accountNo);
+            rearmed.increment();
+        }
+        return false;
+    }
+
+    /**
+     * Re-arms an account whose alert, due per {@link #onBalance}, could not be sent,
+     * so the next evaluation of the same balance fires it again
+     * @param accountNo Account number
+     */
+    public void retract(String accountNo) {
+        if (alerted.remove(accountNo)) {
+            alerts.decrement();
+            rearm(accountNo);
+        }
+    }
+
+    /**
+     * Runs the bank-wide low-balance check
+     * @param alert Receives each account that should be alerted
+     * @return Number of alerts sent
+     * @throws SQLException if the balance scan fails
+     */
+    public int sweep(Alert alert) throws SQLException {
+        long start = System.currentTimeMillis();
+        int scanned = 0;
+        int sent = 0;
+        try (Connection connection = ConnectionPool.borrow();
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT Account_No, balance FROM account_balance WHERE balance <= ?")) {
+            ps.setBigDecimal(1, BigDecimal.valueOf(getMaxThresholdMinor(), Money.SCALE));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    scanned++;
+                    String accountNo = rs.getString(1);
+                    long balanceMinor = Money.of(rs.getBigDecimal(2)).getMinorUnits();
+                    if (onBalance(accountNo, balanceMinor)) {
+                        alert.send(accountNo, balanceMinor);
+                        sent++;
+                    }
+                }
+            }
+        }
+        LOGGER.info("Low-balance sweep checked " + scanned + " balances and sent " + sent + " alerts in " +
+                    (System.currentTimeMillis() - start) + " ms");
+        return sent;
+    }
+
+    @Override
+    public String toString() {
+        return "LowBalanceMonitor{thresholds=" + thresholds.size() + ", openAlerts=" + alerted.size() +
+               ", evaluated=" + evaluated.sum() + ", alerts=" + alerts.sum() + ", suppressed=" + suppressed.sum() +
+               ", rearmed=" + rearmed.sum() + "}";
+    }
+
+    /**
+     * Records the alert unless another worker or process already did
+     * @return True if this call recorded it, or if the state table is unavailable
+     */
+    private boolean disarm(String accountNo, long balanceMinor) {
+        try (Connection connection = ConnectionPool.borrow();
+             PreparedStatement ps = connection.prepareStatement(
+                     "INSERT IGNORE INTO low_balance_alert (account_no, balance_minor, alerted_at) VALUES (?, ?, NOW())")) {
+            ps.setString(1, accountNo);
+            ps.setLong(2, balanceMinor);
+            return ps.executeUpdate() > 0;
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Could not record low-balance alert for " + accountNo, e);
+            return true;
+        }
+    }
+
+    private void rearm(String accountNo) {
+        try (Connection connection = ConnectionPool.borrow();
+             PreparedStatement ps = connection.prepareStatement("DELETE FROM low_balance_alert WHERE account_no = ?")) {
+            ps.setString(1, accountNo);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Could not re-arm low-balance alert for " + accountNo, e);
+        }
+    }
+
+    private static long toMinor(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * Entry point for the nightly sweep
+     * @param args Unused
+     */
+    public static void main(String[] args) {
+        NotificationService notifications = new NotificationService();
+        try {
+            int sent = notifications.sweepLowBalances();
+            LOGGER.info(sent + " low-balance alerts queued");
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Low-balance sweep failed", e);
+        }
+        NotificationDispatcher.getInstance().shutdown(30_000);
+    }
+}
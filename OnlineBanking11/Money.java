@@ -0,0 +1,134 @@
+/*
+ * Online Banking System - Money
+ */
+package banking.management.system;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amount of money held as a whole number of minor units (paise / cents).
+ * Arithmetic on minor units is exact, unlike double, and needs no parsing once
+ * the amount is in the ledger's amount_minor column. Hot loops that only add up
+ * amounts can use the static helpers on plain longs and skip the object.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0);
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    /**
+     * @param minorUnits Amount in minor units
+     * @return The amount
+     */
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * @param amount Decimal amount with at most two decimal places
+     * @return The amount
+     * @throws ArithmeticException if the amount has more than two decimal places or does not fit
+     */
+    public static Money of(BigDecimal amount) {
+        return ofMinor(amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Parses user input or a legacy ledger string such as "250", "99.5" or "1.0E7"
+     * @param text Amount text
+     * @return The amount
+     * @throws NumberFormatException if the text is not an amount with at most two decimal places
+     */
+    public static Money parse(String text) {
+        if (text == null) {
+            throw new NumberFormatException("Amount is missing");
+        }
+        try {
+            return of(new BigDecimal(text.trim()));
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount must have at most " + SCALE + " decimal places: " + text);
+        }
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    public boolean isGreaterThan(Money other) {
+        return minorUnits > other.minorUnits;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    /**
+     * @return Approximate value, for display code that still works in double
+     */
+    public double toDouble() {
+        return minorUnits / 100.0;
+    }
+
+    /**
+     * Effect of a ledger row on the balance, in minor units
+     * @param type Ledger row type
+     * @param minorUnits Unsigned row amount
+     * @return minorUnits for credits, -minorUnits for debits
+     */
+    public static long signedMinor(String type, long minorUnits) {
+        return AccountBalanceStore.isCredit(type) ? minorUnits : -minorUnits;
+    }
+
+    /**
+     * Formats minor units as a plain decimal string ("-12.05")
+     * @param minorUnits Amount in minor units
+     * @return Decimal string with two places
+     */
+    public static String format(long minorUnits) {
+        long abs = Math.abs(minorUnits);
+        long fraction = abs % 100;
+        return (minorUnits < 0 ? "-" : "") + (abs / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money && ((Money) o).minorUnits == minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    /**
+     * @return Plain decimal string with two places, as written to the ledger's amount column
+     */
+    @Override
+    public String toString() {
+        return format(minorUnits);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Online Banking System - MPSC Ring Buffer
+ */
+package banking.management.system;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer. Slots form a
+ * power-of-two ring, each with a sequence number that says whose turn it is:
+ * a producer claims the next position with one CAS on the tail and publishes the
+ * element by advancing the slot's sequence; the consumer takes elements in order
+ * and hands each slot back by moving its sequence one lap ahead. Producers never
+ * block each other on a lock, and a full buffer is reported instead of waited on.
+ *
+ * @param <E> Element type
+ */
+public final class MpscRingBuffer<E> {
+
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * @param capacity Number of slots, rounded up to a power of two
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds an element; safe to call from any number of threads
+     * @param element Element, not null
+     * @return true if added, false if the buffer was full
+     */
+    public boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false; // the consumer has not freed this slot yet
+            } else {
+                position = tail.get(); // another producer took it
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest element; only the consumer thread may call this
+     * @return The element, or null if none is published yet
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = (E) elements[index];
+        elements[index] = null;
+        sequences.lazySet(index, position + mask + 1);
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * Moves published elements into a collection; only the consumer thread may call this
+     * @param target Collection to add to
+     * @param maxElements Maximum number of elements to move
+     * @return Number of elements moved
+     */
+    public int drainTo(Collection<? super E> target, int maxElements) {
+        int moved = 0;
+        E element;
+        while (moved < maxElements && (element = poll()) != null) {
+            target.add(element);
+            moved++;
+        }
+        return moved;
+    }
+
+    /**
+     * @return Elements claimed but not yet taken; approximate while producers are active
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,507 @@
+/*
+ * Online Banking System - Notification Dispatcher
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous notification pipeline shared by every NotificationService.
+ * Callers hand work to a bounded intake stage and return immediately; the intake
+ * resolves preferences and contact details and fans the message out to one
+ * bounded queue per delivery channel, each drained by its own worker pool, so a
+ * slow SMTP server only backs up the EMAIL queue. Failed deliveries are retried
+ * with exponential backoff and jitter; deliveries that exhaust their attempts or
+ * cannot be queued are written to the notification_dead_letter table. Each
+ * delivery's outcome completes once it is sent or dead-lettered, so a caller
+ * that must not lose it, like OutboxRelay, can wait for a durable result.
+ */
+public final class NotificationDispatcher {
+
+    private static final Logger LOGGER = Logger.getLogger(NotificationDispatcher.class.getName());
+
+    static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS notification_dead_letter (" +
+            "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+            "channel VARCHAR(10) NOT NULL, " +
+            "account_no VARCHAR(30) NOT NULL, " +
+            "notification_type VARCHAR(40) NOT NULL, " +
+            "recipient VARCHAR(255), " +
+            "subject VARCHAR(255), " +
+            "message TEXT NOT NULL, " +
+            "attempts INT NOT NULL, " +
+            "last_error VARCHAR(500), " +
+            "created_at DATETIME NOT NULL)";
+
+    private static volatile NotificationDispatcher instance;
+
+    /**
+     * What a producer does when a queue is full
+     */
+    public enum BackpressurePolicy {
+        /** Wait up to offerTimeoutMillis for space, then dead-letter */
+        BLOCK,
+        /** Dead-letter immediately */
+        DROP,
+        /** Run the work on the producer's thread */
+        CALLER_RUNS
+    }
+
+    /**
+     * Delivers one message over a channel; throws to signal a retryable failure
+     */
+    public interface ChannelSender {
+        void send(Delivery delivery) throws Exception;
+    }
+
+    /**
+     * Told the final outcome of each delivery, on a worker thread
+     */
+    public interface DeliveryListener {
+        void onOutcome(Delivery delivery, boolean delivered);
+    }
+
+    /**
+     * Queue settings, read from banking.notify.* system properties by default.
+     * A channel-specific property (banking.notify.EMAIL.workers) overrides the
+     * shared one (banking.notify.workers).
+     */
+    public static class Config {
+        int queueCapacity = 1000;
+        int workers = 2;
+        int maxAttempts = 5;
+        long initialBackoffMillis = 500;
+        long maxBackoffMillis = 60_000;
+        long offerTimeoutMillis = 100;
+        BackpressurePolicy policy = BackpressurePolicy.BLOCK;
+
+        /**
+         * @param stage Channel name, or "intake"
+         * @return Config populated from system properties, falling back to defaults
+         */
+        public static Config fromSystemProperties(String stage) {
+            Config config = new Config();
+            config.queueCapacity = intProperty(stage, "queueCapacity", config.queueCapacity);
+            config.workers = intProperty(stage, "workers", config.workers);
+            config.maxAttempts = intProperty(stage, "maxAttempts", config.maxAttempts);
+            config.initialBackoffMillis = longProperty(stage, "initialBackoffMillis", config.initialBackoffMillis);
+            config.maxBackoffMillis = longProperty(stage, "maxBackoffMillis", config.maxBackoffMillis);
+            config.offerTimeoutMillis = longProperty(stage, "offerTimeoutMillis", config.offerTimeoutMillis);
+            String policy = System.getProperty("banking.notify." + stage + ".policy",
+                    System.getProperty("banking.notify.policy", config.policy.name()));
+            config.policy = BackpressurePolicy.valueOf(policy.toUpperCase());
+            return config;
+        }
+
+        private static int intProperty(String stage, String name, int defaultValue) {
+            return Integer.getInteger("banking.notify." + stage + "." + name,
+                    Integer.getInteger("banking.notify." + name, defaultValue));
+        }
+
+        private static long longProperty(String stage, String name, long defaultValue) {
+            return Long.getLong("banking.notify." + stage + "." + name,
+                    Long.getLong("banking.notify." + name, defaultValue));
+        }
+    }
+
+    /**
+     * One message bound for one channel, with its outcome
+     */
+    public static final class Delivery {
+        private final String channel;
+        private final String accountNo;
+        private final String notificationType;
+        private final String recipient;
+        private final String subject;
+        private final String message;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Boolean> outcome = new CompletableFuture<>();
+        private int attempts;
+        private String lastError;
+
+        public Delivery(String channel, String accountNo, String notificationType,
+                        String recipient, String subject, String message) {
+            this.channel = channel;
+            this.accountNo = accountNo;
+            this.notificationType = notificationType;
+            this.recipient = recipient;
+            this.subject = subject;
+            this.message = message;
+        }
+
+        public String getChannel() {
+            return channel;
+        }
+
+        public String getAccountNo() {
+            return accountNo;
+        }
+
+        public String getNotificationType() {
+            return notificationType;
+        }
+
+        public String getRecipient() {
+            return recipient;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * @return Completes with true once delivered, with false once written to
+         *         notification_dead_letter, and exceptionally if the dead-letter write failed
+         */
+        public CompletableFuture<Boolean> getOutcome() {
+            return outcome;
+        }
+    }
+
+    private final ThreadPoolExecutor intake;
+    private final Config intakeConfig;
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService retryScheduler;
+    private final LongAdder intakeRejected = new LongAdder();
+
+    private NotificationDispatcher() {
+        intakeConfig = Config.fromSystemProperties("intake");
+        intake = newExecutor("notification-intake", intakeConfig, new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+                if (!applyPolicy(task, executor, intakeConfig)) {
+                    intakeRejected.increment();
+                    throw new RejectedExecutionException("Notification intake queue is full");
+                }
+            }
+        });
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "notification-retry");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try (Connection connection = ConnectionPool.borrow()) {
+            ensureTable(connection);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Could not verify the notification_dead_letter table", e);
+        }
+    }
+
+    /**
+     * @return The process-wide dispatcher, created on first use from system properties
+     */
+    public static NotificationDispatcher getInstance() {
+        NotificationDispatcher result = instance;
+        if (result == null) {
+            synchronized (NotificationDispatcher.class) {
+                result = instance;
+                if (result == null) {
+                    instance = result = new NotificationDispatcher();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates the dead-letter table if it does not exist yet
+     * @param connection Open database connection
+     * @throws SQLException if the DDL fails
+     */
+    public static void ensureTable(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate(CREATE_TABLE);
+        }
+    }
+
+    /**
+     * Registers a delivery channel; later registrations of the same name are ignored
+     * @param name Channel name
+     * @param sender Delivers one message
+     * @param listener Told the final outcome of each delivery, may be null
+     */
+    public void register(String name, ChannelSender sender, DeliveryListener listener) {
+        channels.computeIfAbsent(name, n -> new Channel(n, sender, listener, Config.fromSystemProperties(n)));
+    }
+
+    /**
+     * Queues work on the intake stage
+     * @param task Work that resolves a notification and calls {@link #submit(Delivery)}
+     * @return true if accepted, false if the intake queue was full
+     */
+    public boolean accept(Runnable task) {
+        try {
+            intake.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            LOGGER.warning("Notification dropped: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Queues a delivery on its channel
+     * @param delivery Message to deliver
+     */
+    public void submit(Delivery delivery) {
+        Channel channel = channels.get(delivery.channel);
+        if (channel == null) {
+            throw new IllegalArgumentException("Unknown notification channel: " + delivery.channel);
+        }
+        channel.submitted.increment();
+        channel.enqueue(new DeliveryTask(channel, delivery), true);
+    }
+
+    /**
+     * @param name Channel name
+     * @return Deliveries waiting in the channel's queue
+     */
+    public int getQueueDepth(String name) {
+        Channel channel = channels.get(name);
+        return channel == null ? 0 : channel.executor.getQueue().size();
+    }
+
+    /**
+     * @return Notifications waiting to be resolved
+     */
+    public int getIntakeDepth() {
+        return intake.getQueue().size();
+    }
+
+    /**
+     * @param name Channel name
+     * @return Enqueue-to-outcome latency of the channel, or null if unknown
+     */
+    public LatencyHistogram getDispatchLatency(String name) {
+        Channel channel = channels.get(name);
+        return channel == null ? null : channel.dispatchLatency;
+    }
+
+    /**
+     * @return One-line summary of queue depths, counters and latencies
+     */
+    public String metricsSummary() {
+        StringBuilder sb = new StringBuilder("NotificationDispatcher{intakeDepth=").append(getIntakeDepth())
+                .append(", intakeRejected=").append(intakeRejected.sum());
+        for (Channel channel : channels.values()) {
+            sb.append(", ").append(channel.name).append("{depth=").append(channel.executor.getQueue().size())
+              .append(", submitted=").append(channel.submitted.sum())
+              .append(", delivered=").append(channel.delivered.sum())
+              .append(", retried=").append(channel.retried.sum())
+              .append(", deadLettered=").append(channel.deadLettered.sum())
+              .append(", ").append(channel.dispatchLatency)
+              .append(", ").append(channel.sendLatency).append('}');
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Stops accepting work and waits for queued deliveries to finish
+     * @param timeoutMillis Maximum time to wait per stage
+     */
+    public void shutdown(long timeoutMillis) {
+        intake.shutdown();
+        try {
+            intake.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+            retryScheduler.shutdownNow();
+            for (Channel channel : channels.values()) {
+                channel.executor.shutdown();
+            }
+            for (Channel channel : channels.values()) {
+                channel.executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info(metricsSummary());
+    }
+
+    /**
+     * Applies the backpressure policy to work a full executor rejected
+     * @return true if the work was queued or run
+     */
+    private static boolean applyPolicy(Runnable task, ThreadPoolExecutor executor, Config config) {
+        if (executor.isShutdown()) {
+            return false;
+        }
+        switch (config.policy) {
+            case CALLER_RUNS:
+                task.run();
+                return true;
+            case BLOCK:
+                try {
+                    return executor.getQueue().offer(task, config.offerTimeoutMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            default:
+                return false;
+        }
+    }
+
+    private static ThreadPoolExecutor newExecutor(String name, Config config, RejectedExecutionHandler handler) {
+        final AtomicInteger ids = new AtomicInteger();
+        return new ThreadPoolExecutor(config.workers, config.workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.queueCapacity), r -> {
+                    Thread t = new Thread(r, name + "-" + ids.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, handler);
+    }
+
+    /**
+     * A bounded queue, its worker pool and its metrics
+     */
+    private final class Channel {
+        private final String name;
+        private final ChannelSender sender;
+        private final DeliveryListener listener;
+        private final Config config;
+        private final ThreadPoolExecutor executor;
+        private final LatencyHistogram dispatchLatency;
+        private final LatencyHistogram sendLatency;
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder retried = new LongAdder();
+        private final LongAdder deadLettered = new LongAdder();
+
+        Channel(String name, ChannelSender sender, DeliveryListener listener, Config config) {
+            this.name = name;
+            this.sender = sender;
+            this.listener = listener;
+            this.config = config;
+            this.dispatchLatency = new LatencyHistogram("notify." + name + ".dispatch");
+            this.sendLatency = new LatencyHistogram("notify." + name + ".send");
+            this.executor = newExecutor("notification-" + name.toLowerCase(), config, new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        /**
+         * @param task Delivery to queue
+         * @param producer true on a producer thread, where the backpressure policy applies;
+         *                 retries never block or run on the retry scheduler
+         */
+        void enqueue(DeliveryTask task, boolean producer) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                if (!producer || !applyPolicy(task, executor, config)) {
+                    deadLetter(task.delivery, "Queue full or closed");
+                }
+            }
+        }
+
+        void deadLetter(Delivery delivery, String reason) {
+            deadLettered.increment();
+            dispatchLatency.recordSince(delivery.enqueuedAt);
+            String error = delivery.lastError != null ? reason + ": " + delivery.lastError : reason;
+            try (Connection connection = ConnectionPool.borrow();
+                 PreparedStatement ps = connection.prepareStatement(
+                         "INSERT INTO notification_dead_letter (channel, account_no, notification_type, recipient, " +
+                         "subject, message, attempts, last_error, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, NOW())")) {
+                ps.setString(1, name);
+                ps.setString(2, delivery.accountNo);
+                ps.setString(3, delivery.notificationType);
+                ps.setString(4, delivery.recipient);
+                ps.setString(5, delivery.subject);
+                ps.setString(6, delivery.message);
+                ps.setInt(7, delivery.attempts);
+                ps.setString(8, error.length() > 500 ? error.substring(0, 500) : error);
+                ps.executeUpdate();
+                delivery.outcome.complete(false);
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "Failed to dead-letter " + name + " notification for account " +
+                           delivery.accountNo + " (" + error + ")", e);
+                delivery.outcome.completeExceptionally(e);
+            }
+            notifyListener(delivery, false);
+        }
+
+        void notifyListener(Delivery delivery, boolean success) {
+            if (listener != null) {
+                try {
+                    listener.onOutcome(delivery, success);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Notification listener failed", e);
+                }
+            }
+        }
+
+        long backoffMillis(int attempts) {
+            long delay = config.initialBackoffMillis << Math.min(attempts - 1, 20);
+            delay = Math.min(delay, config.maxBackoffMillis);
+            // Half fixed, half random, so retries after a shared outage spread out
+            return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        }
+    }
+
+    /**
+     * One delivery attempt on a channel worker
+     */
+    private final class DeliveryTask implements Runnable {
+        private final Channel channel;
+        private final Delivery delivery;
+
+        DeliveryTask(Channel channel, Delivery delivery) {
+            this.channel = channel;
+            this.delivery = delivery;
+        }
+
+        @Override
+        public void run() {
+            delivery.attempts++;
+            long start = System.nanoTime();
+            try {
+                channel.sender.send(delivery);
+                channel.sendLatency.recordSince(start);
+                channel.dispatchLatency.recordSince(delivery.enqueuedAt);
+                channel.delivered.increment();
+                delivery.outcome.complete(true);
+                channel.notifyListener(delivery, true);
+            } catch (Exception e) {
+                channel.sendLatency.recordSince(start);
+                delivery.lastError = e.toString();
+                if (delivery.attempts >= channel.config.maxAttempts) {
+                    channel.deadLetter(delivery, "Gave up after " + delivery.attempts + " attempts");
+                    return;
+                }
+                long delay = channel.backoffMillis(delivery.attempts);
+                LOGGER.fine(channel.name + " delivery to account " + delivery.accountNo + " failed (attempt " +
+                            delivery.attempts + "), retrying in " + delay + " ms: " + e);
+                channel.retried.increment();
+                try {
+                    retryScheduler.schedule(() -> channel.enqueue(this, false), delay, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException shutdown) {
+                    channel.deadLetter(delivery, "Dispatcher shut down before retry");
+                }
+            }
+        }
+    }
+}
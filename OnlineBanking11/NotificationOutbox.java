@@ -0,0 +1,247 @@
+/*
+ * Online Banking System - Notification Outbox
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transactional outbox for notifications about money movement. LedgerWriter
+ * inserts one notification_outbox row per ledger row on the caller's
+ * connection, so the row commits or rolls back with the ledger write and a
+ * crash can never lose a notification for a committed row. The balance after
+ * the write is copied from account_balance in the same statement.
+ *
+ * Rows are keyed by reference and account, which every ledger row has
+ * unique. OutboxRelay drains the table. A worker claims a batch by locking the
+ * oldest unclaimed rows with FOR UPDATE SKIP LOCKED, so concurrent workers
+ * never wait on or share a row, and stamps them with a token naming the batch
+ * and a lease expiry before committing. A row is deleted, by its key and the
+ * batch token, only once every delivery it produced is sent or written to
+ * notification_dead_letter, so any row another worker took over in the
+ * meantime is left alone. Rows that could not be resolved or delivered in time,
+ * and rows whose worker died, become claimable again when the lease runs out.
+ */
+public final class NotificationOutbox {
+
+    static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS notification_outbox (" +
+            "reference VARCHAR(64) NOT NULL, " +
+            "account_no VARCHAR(30) NOT NULL, " +
+            "type VARCHAR(20) NOT NULL, " +
+            "amount_minor BIGINT NOT NULL, " +
+            "balance_minor BIGINT NULL, " +
+            "created_at VARCHAR(19) NOT NULL, " +
+            "claimed_by VARCHAR(64) NULL, " +
+            "claimed_until BIGINT NOT NULL, " +
+            "PRIMARY KEY (reference, account_no), " +
+            "INDEX idx_outbox_created (created_at), " +
+            "INDEX idx_outbox_claimed_by (claimed_by))";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO notification_outbox " +
+            "(reference, account_no, type, amount_minor, balance_minor, created_at, claimed_until) " +
+            "VALUES (?, ?, ?, ?, (SELECT ROUND(balance * 100) FROM account_balance WHERE Account_No = ?), ?, 0)";
+
+    /**
+     * One outbox row: a committed ledger row waiting to be notified
+     */
+    public static final class Row {
+        private final String reference;
+        private final String accountNo;
+        private final String type;
+        private final long amountMinor;
+        private final long balanceMinor;
+        private final String createdAt;
+
+        Row(String reference, String accountNo, String type, long amountMinor, long balanceMinor, String createdAt) {
+            this.reference = reference;
+            this.accountNo = accountNo;
+            this.type = type;
+            this.amountMinor = amountMinor;
+            this.balanceMinor = balanceMinor;
+            this.createdAt = createdAt;
+        }
+
+        public String getReference() {
+            return reference;
+        }
+
+        public String getAccountNo() {
+            return accountNo;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public long getAmountMinor() {
+            return amountMinor;
+        }
+
+        /**
+         * @return Balance after the ledger write in minor units, or LedgerEvent.UNKNOWN_BALANCE
+         */
+        public long getBalanceMinor() {
+            return balanceMinor;
+        }
+
+        /**
+         * @return Ledger timestamp (yyyy-MM-dd HH:mm:ss)
+         */
+        public String getCreatedAt() {
+            return createdAt;
+        }
+    }
+
+    private NotificationOutbox() {
+    }
+
+    /**
+     * Creates the outbox table if it does not exist yet
+     * @param connection Open database connection
+     * @throws SQLException if the DDL fails
+     */
+    public static void ensureTable(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate(CREATE_TABLE);
+        }
+    }
+
+    /**
+     * Queues a notification for one ledger row; call after its balance update
+     * @param connection Connection holding the caller's transaction
+     * @param entry Ledger row just written
+     * @throws SQLException if the insert fails
+     */
+    static void add(Connection connection, LedgerEntry entry) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            bind(ps, entry);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Queues notifications for many ledger rows with one JDBC batch
+     * @param connection Connection holding the caller's transaction
+     * @param entries Ledger rows just written
+     * @throws SQLException if the insert fails
+     */
+    static void addAll(Connection connection, List<LedgerEntry> entries) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            for (LedgerEntry entry : entries) {
+                bind(ps, entry);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Claims up to max of the oldest claimable rows in a transaction of its own
+     * @param connection Borrowed connection in auto-commit mode
+     * @param token Id of the batch, unique across workers and batches
+     * @param max Most rows to claim
+     * @param leaseMillis How long the claim holds before other workers may take the rows
+     * @return Claimed rows, oldest first, empty if there are none
+     * @throws SQLException if the claim fails; nothing is claimed then
+     */
+    static List<Row> claim(Connection connection, String token, int max, long leaseMillis) throws SQLException {
+        long now = System.currentTimeMillis();
+        List<Row> rows = new ArrayList<>();
+        connection.setAutoCommit(false);
+        try {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT reference, account_no, type, amount_minor, balance_minor, created_at " +
+                    "FROM notification_outbox WHERE claimed_until < ? " +
+                    "ORDER BY created_at LIMIT ? FOR UPDATE SKIP LOCKED")) {
+                ps.setLong(1, now);
+                ps.setInt(2, max);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        long balance = rs.getLong(5);
+                        rows.add(new Row(rs.getString(1), rs.getString(2), rs.getString(3), rs.getLong(4),
+                                rs.wasNull() ? LedgerEvent.UNKNOWN_BALANCE : balance, rs.getString(6)));
+                    }
+                }
+            }
+            if (!rows.isEmpty()) {
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "UPDATE notification_outbox SET claimed_by = ?, claimed_until = ? " +
+                        "WHERE reference = ? AND account_no = ?")) {
+                    for (Row row : rows) {
+                        ps.setString(1, token);
+                        ps.setLong(2, now + leaseMillis);
+                        ps.setString(3, row.getReference());
+                        ps.setString(4, row.getAccountNo());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+            connection.commit();
+            return rows;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Deletes relayed rows of a batch that are still claimed by it
+     * @param connection Borrowed connection in auto-commit mode
+     * @param token Id the batch was claimed with
+     * @param rows Rows of the batch whose notifications reached a durable outcome
+     * @return Rows deleted; fewer than given if a lease ran out and another worker took them
+     * @throws SQLException if the delete fails
+     */
+    static int delete(Connection connection, String token, List<Row> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder(
+                "DELETE FROM notification_outbox WHERE claimed_by = ? AND (reference, account_no) IN (");
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+        }
+        try (PreparedStatement ps = connection.prepareStatement(sql.append(')').toString())) {
+            int index = 1;
+            ps.setString(index++, token);
+            for (Row row : rows) {
+                ps.setString(index++, row.getReference());
+                ps.setString(index++, row.getAccountNo());
+            }
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * @param connection Open database connection
+     * @return Rows waiting in the outbox, claimed or not
+     * @throws SQLException if the count fails
+     */
+    public static long countPending(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM notification_outbox")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void bind(PreparedStatement ps, LedgerEntry entry) throws SQLException {
+        ps.setString(1, entry.getReference());
+        ps.setString(2, entry.getAccountNo());
+        ps.setString(3, entry.getType());
+        ps.setLong(4, entry.getAmount().getMinorUnits());
+        ps.setString(5, entry.getAccountNo());
+        ps.setString(6, entry.getTimestamp());
+    }
+}
@@ -7,11 +7,14 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.mail.Message;
@@ -38,7 +41,7 @@ public class NotificationService {
     
     // Default notification thresholds
     private static final double DEFAULT_LARGE_TRANSACTION = 1000.0;
-    private static final double DEFAULT_LOW_BALANCE = 100.0;
+    static final double DEFAULT_LOW_BALANCE = 100.0;
     private static final int DEFAULT_FAILED_LOGIN_COUNT = 3;
     
     // Delivery channels
@@ -46,77 +49,193 @@ public class NotificationService {
     public static final String CHANNEL_EMAIL = "EMAIL";
     public static final String CHANNEL_APP = "APP";
     
-    private Connection connection;
-    private Map<String, UserNotificationPreferences> userPreferencesCache;
+    // Shared by every service instance; bounded, expiring and single-flight per account
+    private static final int CACHE_MAX_SIZE = Integer.getInteger("banking.notify.cache.maxSize", 100_000);
+    private static final long CACHE_TTL_MILLIS = Long.getLong("banking.notify.cache.ttlMillis", 300_000L);
+    private static final ConcurrentLruCache<String, UserNotificationPreferences> PREFERENCES_CACHE =
+            new ConcurrentLruCache<>("notify.preferences", CACHE_MAX_SIZE, CACHE_TTL_MILLIS);
+    private static final ConcurrentLruCache<String, UserContactInfo> CONTACT_CACHE =
+            new ConcurrentLruCache<>("notify.contacts", CACHE_MAX_SIZE, CACHE_TTL_MILLIS);
+    
+    private final NotificationDispatcher dispatcher;
     
     /**
      * Constructor for Notification Service
      */
     public NotificationService() {
-        connection = ConnectionSql.Connector();
-        if (connection == null) {
-            LOGGER.severe("Database connection failed in NotificationService");
+        try {
+            ConnectionPool.checkHealth();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Database connection failed in NotificationService", e);
             JOptionPane.showMessageDialog(null, "Notification system initialization failed", 
                     "Notification Error", JOptionPane.ERROR_MESSAGE);
         }
-        userPreferencesCache = new HashMap<>();
+        dispatcher = NotificationDispatcher.getInstance();
+        dispatcher.register(CHANNEL_SMS, d -> sendSMS(d.getRecipient(), d.getMessage()), 
+                NotificationService::logNotification);
+        dispatcher.register(CHANNEL_EMAIL, d -> sendEmail(d.getRecipient(), d.getSubject(), d.getMessage()), 
+                NotificationService::logNotification);
+        dispatcher.register(CHANNEL_APP, d -> storeInAppNotification(d.getAccountNo(), d.getNotificationType(), d.getMessage()), 
+                NotificationService::logNotification);
     }
     
     /**
-     * Send a notification based on the type and user preferences
+     * Queue a notification for asynchronous delivery. Preference and contact lookup,
+     * message generation and delivery all happen on the notification dispatcher,
+     * so the caller never waits on the database or a mail server.
      * @param accountNo The account number of the recipient
      * @param notificationType The type of notification
      * @param params Additional parameters needed for the notification
-     * @return True if notification sent successfully, false otherwise
+     * @return True if the notification was queued, false if the intake queue was full
      */
-    public boolean sendNotification(String accountNo, String notificationType, Map<String, Object> params) {
-        try {
-            // Get user notification preferences
-            UserNotificationPreferences prefs = getUserPreferences(accountNo);
-            
-            // Check if this notification type is enabled
-            if (!prefs.isNotificationEnabled(notificationType)) {
-                LOGGER.info("Notification type " + notificationType + " is disabled for account " + accountNo);
-                return false;
-            }
-            
-            // Check notification thresholds
-            if (!checkThresholds(notificationType, prefs, params)) {
-                LOGGER.info("Notification threshold not met for type " + notificationType + ", account " + accountNo);
-                return false;
-            }
-            
-            // Generate notification message
-            String message = generateNotificationMessage(notificationType, params);
-            
-            // Get user contact details
-            UserContactInfo contactInfo = getUserContactInfo(accountNo);
-            
-            // Send notifications through enabled channels
-            boolean success = false;
-            
-            if (prefs.isChannelEnabled(CHANNEL_SMS) && contactInfo.getPhone() != null) {
-                success |= sendSMS(contactInfo.getPhone(), message);
-            }
-            
-            if (prefs.isChannelEnabled(CHANNEL_EMAIL) && contactInfo.getEmail() != null) {
-                success |= sendEmail(contactInfo.getEmail(), 
-                        "Online Banking Notification: " + getNotificationTitle(notificationType), 
-                        message);
-            }
-            
-            if (prefs.isChannelEnabled(CHANNEL_APP)) {
-                success |= storeInAppNotification(accountNo, notificationType, message);
+    public boolean sendNotification(final String accountNo, final String notificationType, Map<String, Object> params) {
+        final Map<String, Object> snapshot = new HashMap<>(params);
+        return dispatcher.accept(() -> dispatchNotification(accountNo, notificationType, snapshot));
+    }
+    
+    /**
+     * Resolves the notifications for one committed ledger row on the calling
+     * thread: every row is a large-transaction candidate, and the balance after
+     * it goes to LowBalanceMonitor, which decides from memory whether a
+     * low-balance alert is due. Called by OutboxRelay workers, which take the
+     * place of the intake stage and wait for the returned deliveries before
+     * deleting the row.
+     * @param accountNo Account of the ledger row
+     * @param type Ledger row type
+     * @param amountMinor Unsigned amount in minor units
+     * @param balanceMinor Balance after the row in minor units, or LedgerEvent.UNKNOWN_BALANCE
+     * @param timestamp Ledger timestamp
+     * @return The queued deliveries, empty if nothing is due
+     * @throws SQLException if the preferences or contact details cannot be loaded; the
+     *         low-balance alert is re-armed then, so a retry of the row sends it
+     */
+    public List<NotificationDispatcher.Delivery> notifyLedgerRow(String accountNo, String type, long amountMinor,
+                                                                 long balanceMinor, String timestamp) throws SQLException {
+        Map<String, Object> large = new HashMap<>();
+        large.put("amount", Money.format(amountMinor));
+        large.put("accountNo", accountNo);
+        large.put("type", type);
+        List<NotificationDispatcher.Delivery> deliveries =
+                new ArrayList<>(resolveNotification(accountNo, NOTIFY_LARGE_TRANSACTION, large));
+
+        if (balanceMinor != LedgerEvent.UNKNOWN_BALANCE && LowBalanceMonitor.getInstance().onBalance(accountNo, balanceMinor)) {
+            try {
+                deliveries.addAll(resolveNotification(accountNo, NOTIFY_LOW_BALANCE,
+                        lowBalanceParams(accountNo, balanceMinor, timestamp)));
+            } catch (SQLException | RuntimeException e) {
+                LowBalanceMonitor.getInstance().retract(accountNo);
+                throw e;
             }
-            
-            // Log the notification
-            logNotification(accountNo, notificationType, message, success);
-            
-            return success;
-            
-        } catch (Exception e) {
+        }
+        return deliveries;
+    }
+    
+    /**
+     * Bank-wide low-balance check, normally run nightly; see {@link LowBalanceMonitor#sweep}
+     * @return Number of alerts queued
+     * @throws SQLException if the balance scan fails
+     */
+    public int sweepLowBalances() throws SQLException {
+        final String time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+        return LowBalanceMonitor.getInstance().sweep(
+                (accountNo, balanceMinor) -> dispatcher.accept(() -> dispatchLowBalance(accountNo, balanceMinor, time)));
+    }
+    
+    private void dispatchLowBalance(String accountNo, long balanceMinor, String time) {
+        dispatchNotification(accountNo, NOTIFY_LOW_BALANCE, lowBalanceParams(accountNo, balanceMinor, time));
+    }
+    
+    private static Map<String, Object> lowBalanceParams(String accountNo, long balanceMinor, String time) {
+        Map<String, Object> low = new HashMap<>();
+        low.put("balance", Money.format(balanceMinor));
+        low.put("accountNo", accountNo);
+        low.put("time", time);
+        return low;
+    }
+    
+    /**
+     * Resolve a notification on the intake stage, logging any failure
+     * @param accountNo The account number of the recipient
+     * @param notificationType The type of notification
+     * @param params Additional parameters needed for the notification
+     */
+    private void dispatchNotification(String accountNo, String notificationType, Map<String, Object> params) {
+        try {
+            resolveNotification(accountNo, notificationType, params);
+        } catch (SQLException | RuntimeException e) {
             LOGGER.log(Level.SEVERE, "Failed to send notification", e);
-            return false;
+        }
+    }
+    
+    /**
+     * Resolve a notification and queue one delivery per enabled channel; runs on the intake stage or a relay worker
+     * @param accountNo The account number of the recipient
+     * @param notificationType The type of notification
+     * @param params Additional parameters needed for the notification
+     * @return The queued deliveries, empty if the type is disabled or its threshold is not met
+     * @throws SQLException if the preferences or contact details cannot be loaded
+     */
+    private List<NotificationDispatcher.Delivery> resolveNotification(String accountNo, String notificationType,
+                                                                      Map<String, Object> params) throws SQLException {
+        List<NotificationDispatcher.Delivery> deliveries = new ArrayList<>(3);
+        
+        // Get user notification preferences
+        UserNotificationPreferences prefs = lookup(PREFERENCES_CACHE, accountNo, this::loadUserPreferences);
+        
+        // Check if this notification type is enabled
+        if (!prefs.isNotificationEnabled(notificationType)) {
+            LOGGER.fine("Notification type " + notificationType + " is disabled for account " + accountNo);
+            return deliveries;
+        }
+        
+        // Check notification thresholds
+        if (!checkThresholds(notificationType, prefs, params)) {
+            LOGGER.fine("Notification threshold not met for type " + notificationType + ", account " + accountNo);
+            return deliveries;
+        }
+        
+        // Generate notification message
+        String message = generateNotificationMessage(notificationType, params);
+        String subject = "Online Banking Notification: " + getNotificationTitle(notificationType);
+        
+        // Get user contact details
+        UserContactInfo contactInfo = lookup(CONTACT_CACHE, accountNo, this::loadUserContactInfo);
+        
+        // Queue one delivery per enabled channel; each channel reports its own outcome
+        if (prefs.isChannelEnabled(CHANNEL_SMS) && contactInfo.getPhone() != null) {
+            deliveries.add(new NotificationDispatcher.Delivery(CHANNEL_SMS, accountNo, notificationType, 
+                    contactInfo.getPhone(), subject, message));
+        }
+        
+        if (prefs.isChannelEnabled(CHANNEL_EMAIL) && contactInfo.getEmail() != null) {
+            deliveries.add(new NotificationDispatcher.Delivery(CHANNEL_EMAIL, accountNo, notificationType, 
+                    contactInfo.getEmail(), subject, message));
+        }
+        
+        if (prefs.isChannelEnabled(CHANNEL_APP)) {
+            deliveries.add(new NotificationDispatcher.Delivery(CHANNEL_APP, accountNo, notificationType, 
+                    null, subject, message));
+        }
+        
+        for (NotificationDispatcher.Delivery delivery : deliveries) {
+            dispatcher.submit(delivery);
+        }
+        return deliveries;
+    }
+    
+    /**
+     * Reads through one of the lookup caches without masking a failed load
+     * @throws SQLException if the load failed
+     */
+    private static <V> V lookup(ConcurrentLruCache<String, V> cache, String accountNo,
+                                ConcurrentLruCache.Loader<String, V> loader) throws SQLException {
+        try {
+            return cache.get(accountNo, loader);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Lookup failed for account " + accountNo, e.getCause());
         }
     }
     
@@ -126,19 +245,30 @@ public class NotificationService {
      * @return The user's notification preferences
      */
     public UserNotificationPreferences getUserPreferences(String accountNo) {
-        // Check cache first
-        if (userPreferencesCache.containsKey(accountNo)) {
-            return userPreferencesCache.get(accountNo);
+        try {
+            return PREFERENCES_CACHE.get(accountNo, this::loadUserPreferences);
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.SEVERE, "Error retrieving notification preferences", e.getCause());
+            return new UserNotificationPreferences(accountNo); // Return default preferences
         }
+    }
+    
+    /**
+     * Load notification preferences from the database, creating defaults if none exist
+     * @param accountNo The account number
+     * @return The user's notification preferences
+     * @throws SQLException if the lookup fails
+     */
+    private UserNotificationPreferences loadUserPreferences(String accountNo) throws SQLException {
+        UserNotificationPreferences prefs = new UserNotificationPreferences(accountNo);
+        boolean missing = false;
         
-        try {
+        try (Connection connection = ConnectionPool.borrow()) {
             String query = "SELECT * FROM notification_preferences WHERE account_no = ?";
             PreparedStatement ps = connection.prepareStatement(query);
             ps.setString(1, accountNo);
             ResultSet rs = ps.executeQuery();
             
-            UserNotificationPreferences prefs = new UserNotificationPreferences(accountNo);
-            
             if (rs.next()) {
                 // Load preferences from database
                 prefs.setLargeTransactionNotification(rs.getBoolean("enable_large_txn"));
@@ -156,22 +286,19 @@ public class NotificationService {
                 prefs.setEmailEnabled(rs.getBoolean("enable_email"));
                 prefs.setAppNotificationsEnabled(rs.getBoolean("enable_app_notifications"));
             } else {
-                // Create default preferences
-                createDefaultPreferences(accountNo);
+                missing = true;
             }
             
             rs.close();
             ps.close();
-            
-            // Cache the preferences
-            userPreferencesCache.put(accountNo, prefs);
-            
-            return prefs;
-            
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error retrieving notification preferences", e);
-            return new UserNotificationPreferences(accountNo); // Return default preferences
         }
+        
+        // Create default preferences once the lookup connection is back in the pool
+        if (missing) {
+            createDefaultPreferences(accountNo);
+        }
+        
+        return prefs;
     }
     
     /**
@@ -180,7 +307,7 @@ public class NotificationService {
      * @return True if update successful, false otherwise
      */
     public boolean updateUserPreferences(UserNotificationPreferences prefs) {
-        try {
+        try (Connection connection = ConnectionPool.borrow()) {
             // Check if preferences exist
             String checkQuery = "SELECT 1 FROM notification_preferences WHERE account_no = ?";
             PreparedStatement checkPs = connection.prepareStatement(checkQuery);
@@ -239,7 +366,9 @@ public class NotificationService {
             ps.close();
             
             // Update cache
-            userPreferencesCache.put(prefs.getAccountNo(), prefs);
+            PREFERENCES_CACHE.put(prefs.getAccountNo(), prefs);
+            LowBalanceMonitor.getInstance().setThreshold(prefs.getAccountNo(),
+                    prefs.isLowBalanceNotificationEnabled(), prefs.getLowBalanceThreshold());
             
             return result > 0;
             
@@ -283,6 +412,21 @@ public class NotificationService {
      */
     private UserContactInfo getUserContactInfo(String accountNo) {
         try {
+            return CONTACT_CACHE.get(accountNo, this::loadUserContactInfo);
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.SEVERE, "Error retrieving user contact info", e.getCause());
+            return new UserContactInfo();
+        }
+    }
+    
+    /**
+     * Load user contact information from the database
+     * @param accountNo The account number
+     * @return The user's contact information
+     * @throws SQLException if the lookup fails
+     */
+    private UserContactInfo loadUserContactInfo(String accountNo) throws SQLException {
+        try (Connection connection = ConnectionPool.borrow()) {
             String query = "SELECT s1.email, up.phone_number " +
                           "FROM signup1 s1 " +
                           "JOIN login l ON s1.form_no = l.form_no " +
@@ -304,13 +448,24 @@ public class NotificationService {
             ps.close();
             
             return contactInfo;
-            
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error retrieving user contact info", e);
-            return new UserContactInfo();
         }
     }
     
+    /**
+     * Drop cached contact details, e.g. after the user changes their email or phone number
+     * @param accountNo The account number
+     */
+    public static void invalidateContactInfo(String accountNo) {
+        CONTACT_CACHE.invalidate(accountNo);
+    }
+    
+    /**
+     * @return Hit, miss and eviction counters of the preference and contact caches
+     */
+    public static String cacheMetricsSummary() {
+        return PREFERENCES_CACHE + ", " + CONTACT_CACHE;
+    }
+    
     /**
      * Generate notification message based on type and parameters
      * @param notificationType The notification type
@@ -432,14 +587,12 @@ public class NotificationService {
      * Send notification via SMS
      * @param phoneNumber The recipient's phone number
      * @param message The message to send
-     * @return True if sent successfully, false otherwise
      */
-    private boolean sendSMS(String phoneNumber, String message) {
+    private static void sendSMS(String phoneNumber, String message) {
         // In a real implementation, this would use an SMS gateway service
         LOGGER.info("SMS would be sent to " + phoneNumber + ": " + message);
         
         // Simulate SMS sending (always succeeds in this demo)
-        return true;
     }
     
     /**
@@ -447,35 +600,28 @@ public class NotificationService {
      * @param email The recipient's email address
      * @param subject The email subject
      * @param message The email body
-     * @return True if sent successfully, false otherwise
+     * @throws MessagingException if the message cannot be built or sent; the dispatcher retries it
      */
-    private boolean sendEmail(String email, String subject, String message) {
+    private static void sendEmail(String email, String subject, String message) throws MessagingException {
         // In a real implementation, this would use JavaMail or similar API
         LOGGER.info("Email would be sent to " + email + " with subject: " + subject + "\nBody: " + message);
         
-        try {
-            // Simulated email sending code (not actually sending)
-            Properties props = new Properties();
-            props.put("mail.smtp.host", "smtp.example.com");
-            props.put("mail.smtp.port", "587");
-            props.put("mail.smtp.auth", "true");
-            props.put("mail.smtp.starttls.enable", "true");
-            
-            Session session = Session.getInstance(props);
-            MimeMessage mimeMessage = new MimeMessage(session);
-            mimeMessage.setFrom(new InternetAddress("banking@example.com"));
-            mimeMessage.setRecipients(Message.RecipientType.TO, InternetAddress.parse(email));
-            mimeMessage.setSubject(subject);
-            mimeMessage.setText(message);
-            
-            // Comment out actual sending for simulation
-            // Transport.send(mimeMessage);
-            
-            return true;
-        } catch (MessagingException e) {
-            LOGGER.log(Level.SEVERE, "Failed to send email", e);
-            return false;
-        }
+        // Simulated email sending code (not actually sending)
+        Properties props = new Properties();
+        props.put("mail.smtp.host", "smtp.example.com");
+        props.put("mail.smtp.port", "587");
+        props.put("mail.smtp.auth", "true");
+        props.put("mail.smtp.starttls.enable", "true");
+        
+        Session session = Session.getInstance(props);
+        MimeMessage mimeMessage = new MimeMessage(session);
+        mimeMessage.setFrom(new InternetAddress("banking@example.com"));
+        mimeMessage.setRecipients(Message.RecipientType.TO, InternetAddress.parse(email));
+        mimeMessage.setSubject(subject);
+        mimeMessage.setText(message);
+        
+        // Comment out actual sending for simulation
+        // Transport.send(mimeMessage);
     }
     
     /**
@@ -483,10 +629,10 @@ public class NotificationService {
      * @param accountNo The account number
      * @param notificationType The notification type
      * @param message The notification message
-     * @return True if stored successfully, false otherwise
+     * @throws SQLException if the row cannot be stored; the dispatcher retries it
      */
-    private boolean storeInAppNotification(String accountNo, String notificationType, String message) {
-        try {
+    private static void storeInAppNotification(String accountNo, String notificationType, String message) throws SQLException {
+        try (Connection connection = ConnectionPool.borrow()) {
             String query = "INSERT INTO app_notifications (account_no, notification_type, message, timestamp, is_read) " +
                           "VALUES (?, ?, ?, NOW(), false)";
             
@@ -495,14 +641,8 @@ public class NotificationService {
             ps.setString(2, notificationType);
             ps.setString(3, message);
             
-            int result = ps.executeUpdate();
+            ps.executeUpdate();
             ps.close();
-            
-            return result > 0;
-            
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Failed to store in-app notification", e);
-            return false;
         }
     }
     
@@ -515,7 +655,7 @@ public class NotificationService {
     public List<Map<String, Object>> getInAppNotifications(String accountNo, boolean includeRead) {
         List<Map<String, Object>> notifications = new ArrayList<>();
         
-        try {
+        try (Connection connection = ConnectionPool.borrow()) {
             StringBuilder queryBuilder = new StringBuilder();
             queryBuilder.append("SELECT * FROM app_notifications WHERE account_no = ?");
             
@@ -557,7 +697,7 @@ public class NotificationService {
      * @return True if marked successfully, false otherwise
      */
     public boolean markNotificationAsRead(int notificationId) {
-        try {
+        try (Connection connection = ConnectionPool.borrow()) {
             String query = "UPDATE app_notifications SET is_read = true WHERE id = ?";
             PreparedStatement ps = connection.prepareStatement(query);
             ps.setInt(1, notificationId);
@@ -574,29 +714,13 @@ public class NotificationService {
     }
     
     /**
-     * Log notification to database for audit trail
-     * @param accountNo The account number
-     * @param notificationType The notification type
-     * @param message The notification message
-     * @param success Whether the notification was sent successfully
+     * Log the final outcome of one channel delivery to the database for audit trail
+     * @param delivery The delivery
+     * @param success Whether the notification was delivered
      */
-    private void logNotification(String accountNo, String notificationType, String message, boolean success) {
-        try {
-            String query = "INSERT INTO notification_log (account_no, notification_type, message, success, timestamp) " +
-                          "VALUES (?, ?, ?, ?, NOW())";
-            
-            PreparedStatement ps = connection.prepareStatement(query);
-            ps.setString(1, accountNo);
-            ps.setString(2, notificationType);
-            ps.setString(3, message);
-            ps.setBoolean(4, success);
-            
-            ps.executeUpdate();
-            ps.close();
-            
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Failed to log notification", e);
-        }
+    private static void logNotification(NotificationDispatcher.Delivery delivery, boolean success) {
+        AuditAppender.getInstance().appendNotification(delivery.getAccountNo(), delivery.getNotificationType(),
+                delivery.getMessage(), success);
     }
     
     /**
@@ -0,0 +1,46 @@
+/*
+ * Online Banking System - OTP Store
+ */
+package banking.management.system;
+
+/**
+ * Where SecurityManager keeps issued one-time passwords until they are used or
+ * expire. An OTP is consumed atomically, so it verifies at most once even when
+ * several nodes or threads try it concurrently. The backend is chosen with
+ * banking.security.store ("memory" or "jdbc"); "jdbc" also needs the shared
+ * banking.security.otpKey (see {@link JdbcOtpStore}).
+ */
+public interface OtpStore extends AutoCloseable {
+
+    /**
+     * Issues an OTP, replacing any earlier one for the account
+     * @param accountNo Account number
+     * @param otp One-time password
+     */
+    void put(String accountNo, String otp);
+
+    /**
+     * Verifies and removes an OTP
+     * @param accountNo Account number
+     * @param otp One-time password entered by the user
+     * @return true if it matched a live OTP, which is now used up
+     */
+    boolean consume(String accountNo, String otp);
+
+    /**
+     * Stops background tasks
+     */
+    @Override
+    void close();
+
+    /**
+     * @param ttlMillis Time an OTP stays valid after it is issued
+     * @return The store selected by banking.security.store
+     */
+    static OtpStore fromSystemProperties(long ttlMillis) {
+        if ("jdbc".equalsIgnoreCase(System.getProperty("banking.security.store", "memory"))) {
+            return new JdbcOtpStore(ConnectionPool.getInstance(), ttlMillis);
+        }
+        return new InMemoryOtpStore(ttlMillis);
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Online Banking System - Outbox Relay
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Drains notification_outbox into NotificationService. Each worker thread
+ * claims a batch (see {@link NotificationOutbox}), resolves and queues the
+ * notifications for every row, waits until each delivery is sent or
+ * dead-lettered, then deletes those rows with one statement. A row whose
+ * preferences or contacts cannot be loaded, or whose deliveries have no durable
+ * outcome before the lease ends, stays in the outbox and is claimed again, as
+ * are the rows of a worker that dies mid-batch. Workers claim disjoint
+ * batches, so adding workers adds throughput without delivering a row twice;
+ * delivery is at least once across crashes and failures and exactly once
+ * otherwise.
+ *
+ * Settings: banking.outbox.workers (default 2, 0 disables the relay),
+ * banking.outbox.batchSize (default 500), banking.outbox.pollMillis
+ * (default 200) and banking.outbox.leaseMillis (default 60000).
+ */
+public final class OutboxRelay {
+
+    private static final Logger LOGGER = Logger.getLogger(OutboxRelay.class.getName());
+
+    private static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static volatile OutboxRelay instance;
+
+    private final NotificationService notifications;
+    private final Thread[] workers;
+    private final int batchSize;
+    private final long pollNanos;
+    private final long leaseMillis;
+    private volatile boolean running = true;
+
+    private final LongAdder relayed = new LongAdder();
+    private final LongAdder lostLeases = new LongAdder();
+    private final LongAdder requeued = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LatencyHistogram batchLatency = new LatencyHistogram("outbox.relay");
+
+    /**
+     * @param notifications Service that resolves and queues each notification
+     * @param workerCount Number of worker threads
+     * @param batchSize Most rows claimed per batch
+     * @param pollMillis Wait between polls once the outbox is empty
+     * @param leaseMillis How long a claimed batch stays with its worker
+     */
+    public OutboxRelay(NotificationService notifications, int workerCount, int batchSize, long pollMillis,
+                       long leaseMillis) {
+        this.notifications = notifications;
+        this.batchSize = batchSize;
+        this.pollNanos = TimeUnit.MILLISECONDS.toNanos(pollMillis);
+        this.leaseMillis = leaseMillis;
+        this.workers = new Thread[workerCount];
+        String prefix = UUID.randomUUID().toString().substring(0, 8);
+        for (int i = 0; i < workerCount; i++) {
+            String owner = prefix + "-" + i;
+            workers[i] = new Thread(() -> run(owner), "outbox-relay-" + i);
+            workers[i].setDaemon(true);
+        }
+    }
+
+    /**
+     * @return The process-wide relay, started on first use, or null if banking.outbox.workers is 0
+     */
+    public static OutboxRelay startFromSystemProperties() {
+        int workerCount = Integer.getInteger("banking.outbox.workers", 2);
+        return workerCount > 0 ? getInstance(workerCount) : null;
+    }
+
+    private static OutboxRelay getInstance(int workerCount) {
+        OutboxRelay result = instance;
+        if (result == null) {
+            synchronized (OutboxRelay.class) {
+                result = instance;
+                if (result == null) {
+                    result = new OutboxRelay(new NotificationService(), workerCount,
+                            Integer.getInteger("banking.outbox.batchSize", 500),
+                            Long.getLong("banking.outbox.pollMillis", 200L),
+                            Long.getLong("banking.outbox.leaseMillis", 60_000L));
+                    result.start();
+                    instance = result;
+                    final OutboxRelay created = result;
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> created.shutdown(5_000), "outbox-relay-shutdown"));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Starts the worker threads
+     */
+    public void start() {
+        for (Thread worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * Stops claiming new batches and waits for the workers to finish their current one.
+     * Unclaimed rows stay in the outbox for the next start.
+     * @param timeoutMillis Maximum time to wait per worker
+     */
+    public void shutdown(long timeoutMillis) {
+        running = false;
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        LOGGER.info(toString());
+    }
+
+    public long getRelayedCount() {
+        return relayed.sum();
+    }
+
+    public LatencyHistogram getBatchLatency() {
+        return batchLatency;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxRelay{workers=" + workers.length + ", relayed=" + relayed.sum() + ", lostLeases=" +
+               lostLeases.sum() + ", requeued=" + requeued.sum() + ", failedBatches=" + failedBatches.sum() + ", " +
+               batchLatency + "}";
+    }
+
+    private void run(String owner) {
+        long batches = 0;
+        while (running) {
+            String token = owner + "-" + batches++;
+            long leaseEnd = System.currentTimeMillis() + leaseMillis;
+            List<NotificationOutbox.Row> batch;
+            try (Connection connection = ConnectionPool.borrow()) {
+                batch = NotificationOutbox.claim(connection, token, batchSize, leaseMillis);
+            } catch (SQLException e) {
+                failedBatches.increment();
+                LOGGER.log(Level.WARNING, "Outbox claim failed, retrying", e);
+                LockSupport.parkNanos(RETRY_NANOS);
+                continue;
+            }
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(pollNanos);
+                continue;
+            }
+
+            long start = System.nanoTime();
+            List<NotificationOutbox.Row> resolved = new ArrayList<>(batch.size());
+            List<CompletableFuture<Void>> outcomes = new ArrayList<>(batch.size());
+            for (NotificationOutbox.Row row : batch) {
+                try {
+                    List<NotificationDispatcher.Delivery> deliveries = notifications.notifyLedgerRow(row.getAccountNo(),
+                            row.getType(), row.getAmountMinor(), row.getBalanceMinor(), row.getCreatedAt());
+                    CompletableFuture<?>[] pending = new CompletableFuture<?>[deliveries.size()];
+                    for (int i = 0; i < pending.length; i++) {
+                        pending[i] = deliveries.get(i).getOutcome();
+                    }
+                    resolved.add(row);
+                    outcomes.add(CompletableFuture.allOf(pending));
+                } catch (SQLException | RuntimeException e) {
+                    // Left claimed; picked up again when the lease ends
+                    requeued.increment();
+                    LOGGER.log(Level.WARNING, "Could not resolve notifications for " + row.getReference() + "/" +
+                               row.getAccountNo() + ", retrying after the lease", e);
+                }
+            }
+
+            // Only rows whose deliveries were all sent or dead-lettered may go
+            List<NotificationOutbox.Row> done = new ArrayList<>(resolved.size());
+            for (int i = 0; i < resolved.size(); i++) {
+                try {
+                    outcomes.get(i).get(Math.max(0, leaseEnd - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                    done.add(resolved.get(i));
+                } catch (ExecutionException | TimeoutException e) {
+                    requeued.increment();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            // Delete on a fresh connection so the pool is not held while preferences load
+            try (Connection connection = ConnectionPool.borrow()) {
+                int deleted = NotificationOutbox.delete(connection, token, done);
+                relayed.add(deleted);
+                lostLeases.add(done.size() - deleted);
+            } catch (SQLException e) {
+                // The rows are claimed again when the lease ends and notified a second time
+                failedBatches.increment();
+                LOGGER.log(Level.WARNING, "Outbox delete failed for " + done.size() + " relayed rows", e);
+            }
+            batchLatency.recordSince(start);
+        }
+    }
+}
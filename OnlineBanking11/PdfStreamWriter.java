@@ -0,0 +1,247 @@
+/*
+ * Online Banking System - PDF Stream Writer
+ */
+package banking.management.system;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Minimal PDF 1.4 writer that emits each page as soon as it is finished.
+ * Only the object offsets and page object numbers are kept until the end,
+ * so a statement of any length is written in constant memory per page.
+ * Text uses the built-in Helvetica fonts (WinAnsiEncoding), which every viewer
+ * provides, so no font data is embedded; the font and resource objects are
+ * written once and shared by every page. Closing without {@link #finish()}
+ * leaves the document incomplete, so a failed render never looks valid.
+ */
+public class PdfStreamWriter implements AutoCloseable {
+
+    public static final float PAGE_WIDTH = 595;   // A4 in points
+    public static final float PAGE_HEIGHT = 842;
+
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FONT_REGULAR = 3;
+    private static final int FONT_BOLD = 4;
+    private static final int RESOURCES = 5;
+
+    private final OutputStream out;
+    private final List<Long> offsets = new ArrayList<>();
+    private final List<Integer> pageObjects = new ArrayList<>();
+    private final StringBuilder content = new StringBuilder(8 * 1024);
+    private long position;
+    private int nextObject = RESOURCES + 1;
+    private boolean pageOpen;
+    private boolean finished;
+
+    /**
+     * Writes the header and shared font/resource objects
+     * @param out Destination; buffered by the caller
+     * @throws IOException if writing fails
+     */
+    public PdfStreamWriter(OutputStream out) throws IOException {
+        this.out = out;
+        write("%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n");
+        writeObject(FONT_REGULAR, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>");
+        writeObject(FONT_BOLD, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>");
+        writeObject(RESOURCES, "<< /Font << /F1 " + FONT_REGULAR + " 0 R /F2 " + FONT_BOLD + " 0 R >> >>");
+    }
+
+    /**
+     * Starts a new page; the previous page is flushed first
+     * @throws IOException if flushing the previous page fails
+     */
+    public void beginPage() throws IOException {
+        if (pageOpen) {
+            endPage();
+        }
+        content.setLength(0);
+        pageOpen = true;
+    }
+
+    /**
+     * Draws text with its left edge at x
+     * @param x Left edge in points
+     * @param y Baseline in points from the bottom of the page
+     * @param size Font size
+     * @param bold true for Helvetica-Bold
+     * @param text Text to draw
+     */
+    public void text(float x, float y, float size, boolean bold, String text) {
+        content.append("BT /").append(bold ? "F2 " : "F1 ");
+        number(size).append(" Tf ");
+        number(x).append(' ');
+        number(y).append(" Td (");
+        escape(text).append(") Tj ET\n");
+    }
+
+    /**
+     * Draws text with its right edge at x
+     */
+    public void textRight(float x, float y, float size, boolean bold, String text) {
+        text(x - textWidth(text, size), y, size, bold, text);
+    }
+
+    /**
+     * Draws a horizontal rule
+     */
+    public void line(float x1, float x2, float y) {
+        content.append("0.5 w ");
+        number(x1).append(' ');
+        number(y).append(" m ");
+        number(x2).append(' ');
+        number(y).append(" l S\n");
+    }
+
+    /**
+     * Writes the current page's content stream and page object
+     * @throws IOException if writing fails
+     */
+    public void endPage() throws IOException {
+        if (!pageOpen) {
+            return;
+        }
+        pageOpen = false;
+
+        byte[] stream = content.toString().getBytes(StandardCharsets.ISO_8859_1);
+        int contentObject = nextObject++;
+        int pageObject = nextObject++;
+
+        beginObject(contentObject);
+        write("<< /Length " + stream.length + " >>\nstream\n");
+        out.write(stream);
+        position += stream.length;
+        write("\nendstream\nendobj\n");
+
+        writeObject(pageObject, "<< /Type /Page /Parent " + PAGES + " 0 R /MediaBox [0 0 " +
+                (int) PAGE_WIDTH + " " + (int) PAGE_HEIGHT + "] /Resources " + RESOURCES +
+                " 0 R /Contents " + contentObject + " 0 R >>");
+        pageObjects.add(pageObject);
+        out.flush();
+    }
+
+    /**
+     * @return Pages written so far
+     */
+    public int getPageCount() {
+        return pageObjects.size();
+    }
+
+    /**
+     * @return Bytes written so far
+     */
+    public long getBytesWritten() {
+        return position;
+    }
+
+    /**
+     * Writes the page tree, catalog, cross-reference table and trailer
+     * @throws IOException if writing fails
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        endPage();
+        if (pageObjects.isEmpty()) {
+            beginPage();
+            endPage();
+        }
+
+        StringBuilder kids = new StringBuilder();
+        for (int page : pageObjects) {
+            kids.append(page).append(" 0 R ");
+        }
+        writeObject(PAGES, "<< /Type /Pages /Kids [" + kids + "] /Count " + pageObjects.size() + " >>");
+        writeObject(CATALOG, "<< /Type /Catalog /Pages " + PAGES + " 0 R >>");
+
+        long xref = position;
+        StringBuilder table = new StringBuilder();
+        table.append("xref\n0 ").append(offsets.size() + 1).append("\n0000000000 65535 f \n");
+        for (long offset : offsets) {
+            table.append(String.format("%010d 00000 n \n", offset));
+        }
+        table.append("trailer\n<< /Size ").append(offsets.size() + 1).append(" /Root ").append(CATALOG)
+             .append(" 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+        write(table.toString());
+        out.flush();
+        finished = true;
+    }
+
+    /**
+     * Closes the stream; call {@link #finish()} first for a complete document
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Approximate Helvetica advance width, used for right alignment of amounts
+     * @param text Text to measure
+     * @param size Font size
+     * @return Width in points
+     */
+    static float textWidth(String text, float size) {
+        int units = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '.' || c == ',' || c == ' ') {
+                units += 278;
+            } else if (c == '-') {
+                units += 333;
+            } else if (c == '+') {
+                units += 584;
+            } else {
+                units += 556;
+            }
+        }
+        return units * size / 1000f;
+    }
+
+    private void writeObject(int number, String body) throws IOException {
+        beginObject(number);
+        write(body + "\nendobj\n");
+    }
+
+    private void beginObject(int number) throws IOException {
+        while (offsets.size() < number) {
+            offsets.add(0L);
+        }
+        offsets.set(number - 1, position);
+        write(number + " 0 obj\n");
+    }
+
+    private void write(String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.ISO_8859_1);
+        out.write(bytes);
+        position += bytes.length;
+    }
+
+    private StringBuilder number(float value) {
+        if (value == (int) value) {
+            return content.append((int) value);
+        }
+        return content.append(String.format(Locale.ROOT, "%.2f", value));
+    }
+
+    private StringBuilder escape(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                content.append('\\').append(c);
+            } else if (c < 32 || c > 255) {
+                content.append('?');
+            } else {
+                content.append(c);
+            }
+        }
+        return content;
+    }
+}
@@ -8,9 +8,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JOptionPane;
@@ -26,54 +24,21 @@ public class SecurityManager {
     private static final long OTP_EXPIRY_MINUTES = 5;
     private static final long SESSION_TIMEOUT_MINUTES = 15;
     
-    private Connection connection;
-    private Map<String, OtpData> activeOtps;
-    private Map<String, SessionData> activeSessions;
-    
-    // Inner class to store OTP data
-    private static class OtpData {
-        private String otp;
-        private LocalDateTime expiryTime;
-        
-        public OtpData(String otp) {
-            this.otp = otp;
-            this.expiryTime = LocalDateTime.now().plusMinutes(OTP_EXPIRY_MINUTES);
-        }
-        
-        public boolean isValid() {
-            return LocalDateTime.now().isBefore(expiryTime);
-        }
-    }
-    
-    // Inner class to store session data
-    private static class SessionData {
-        private String accountNo;
-        private LocalDateTime lastActivityTime;
-        
-        public SessionData(String accountNo) {
-            this.accountNo = accountNo;
-            this.lastActivityTime = LocalDateTime.now();
-        }
-        
-        public void updateActivity() {
-            this.lastActivityTime = LocalDateTime.now();
-        }
-        
-        public boolean isValid() {
-            return LocalDateTime.now().isBefore(lastActivityTime.plusMinutes(SESSION_TIMEOUT_MINUTES));
-        }
-    }
+    // Shared by every screen; in memory or in the shared database (banking.security.store)
+    private static final OtpStore ACTIVE_OTPS =
+            OtpStore.fromSystemProperties(TimeUnit.MINUTES.toMillis(OTP_EXPIRY_MINUTES));
+    private static final SessionStore ACTIVE_SESSIONS =
+            SessionStore.fromSystemProperties(TimeUnit.MINUTES.toMillis(SESSION_TIMEOUT_MINUTES));
     
     public SecurityManager() {
-        connection = ConnectionSql.Connector();
-        if (connection == null) {
-            LOGGER.severe("Database connection failed in SecurityManager");
+        try {
+            ConnectionPool.checkHealth();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Database connection failed in SecurityManager", e);
             JOptionPane.showMessageDialog(null, "Security system initialization failed", 
                     "Security Error", JOptionPane.ERROR_MESSAGE);
             System.exit(1);
         }
-        activeOtps = new HashMap<>();
-        activeSessions = new HashMap<>();
     }
     
     /**
@@ -88,7 +53,7 @@ public class SecurityManager {
             String otp = generateSecureOtp(OTP_LENGTH);
             
             // Store OTP in memory
-            activeOtps.put(accountNo, new OtpData(otp));
+            ACTIVE_OTPS.put(accountNo, otp);
             
             // Deliver OTP via selected method
             boolean delivered = false;
@@ -115,31 +80,16 @@ public class SecurityManager {
      * @return true if OTP is valid, false otherwise
      */
     public boolean verifyOtp(String accountNo, String userEnteredOtp) {
-        OtpData otpData = activeOtps.get(accountNo);
-        
-        if (otpData == null) {
-            LOGGER.warning("No OTP found for account: " + accountNo);
-            return false;
-        }
-        
-        if (!otpData.isValid()) {
-            LOGGER.warning("OTP expired for account: " + accountNo);
-            activeOtps.remove(accountNo); // Remove expired OTP
-            return false;
-        }
-        
-        boolean isValid = otpData.otp.equals(userEnteredOtp);
+        // Consuming the OTP removes it to prevent reuse; only one of several concurrent verifications can win
+        boolean isValid = ACTIVE_OTPS.consume(accountNo, userEnteredOtp);
         
         if (isValid) {
-            // OTP verified successfully, remove it to prevent reuse
-            activeOtps.remove(accountNo);
-            
             // Create a session for the authenticated user
             createSession(accountNo);
             
             LOGGER.info("OTP verified successfully for account: " + accountNo);
         } else {
-            LOGGER.warning("OTP verification failed for account: " + accountNo);
+            LOGGER.warning("OTP verification failed (wrong, expired or missing OTP) for account: " + accountNo);
         }
         
         return isValid;
@@ -150,8 +100,7 @@ public class SecurityManager {
      * @param accountNo the account number
      */
     private void createSession(String accountNo) {
-        SessionData session = new SessionData(accountNo);
-        activeSessions.put(accountNo, session);
+        ACTIVE_SESSIONS.create(accountNo);
         LOGGER.info("Session created for account: " + accountNo);
     }
     
@@ -161,25 +110,13 @@ public class SecurityManager {
      * @return true if session is valid, false if timed out
      */
     public boolean isSessionValid(String accountNo) {
-        SessionData session = activeSessions.get(accountNo);
-        
-        if (session == null) {
-            LOGGER.warning("No active session found for account: " + accountNo);
+        // Update activity time if session is valid; timed out sessions are already gone
+        if (!ACTIVE_SESSIONS.touch(accountNo)) {
+            LOGGER.warning("No active session found for account (or session timed out): " + accountNo);
             return false;
         }
         
-        boolean isValid = session.isValid();
-        
-        if (isValid) {
-            // Update activity time if session is valid
-            session.updateActivity();
-        } else {
-            // Remove timed out session
-            activeSessions.remove(accountNo);
-            LOGGER.info("Session timed out for account: " + accountNo);
-        }
-        
-        return isValid;
+        return true;
     }
     
     /**
@@ -187,11 +124,7 @@ public class SecurityManager {
      * @param accountNo the account number
      */
     public void updateActivityTime(String accountNo) {
-        SessionData session = activeSessions.get(accountNo);
-        
-        if (session != null) {
-            session.updateActivity();
-        }
+        ACTIVE_SESSIONS.touch(accountNo);
     }
     
     /**
@@ -199,10 +132,31 @@ public class SecurityManager {
      * @param accountNo the account number
      */
     public void endSession(String accountNo) {
-        activeSessions.remove(accountNo);
+        ACTIVE_SESSIONS.end(accountNo);
         LOGGER.info("Session ended for account: " + accountNo);
     }
     
+    /**
+     * @return Sessions currently held, a gauge for monitoring
+     */
+    public static int getLiveSessionCount() {
+        return ACTIVE_SESSIONS.getLiveCount();
+    }
+    
+    /**
+     * @return Sessions expired per second over roughly the last second
+     */
+    public static double getExpiredSessionsPerSecond() {
+        return ACTIVE_SESSIONS.getExpiredPerSecond();
+    }
+    
+    /**
+     * @return Live and expiry counters of the session and OTP stores
+     */
+    public static String sessionMetricsSummary() {
+        return ACTIVE_SESSIONS + ", " + ACTIVE_OTPS;
+    }
+    
     /**
      * Generates a secure random OTP
      * @param length the length of the OTP
@@ -277,7 +231,7 @@ public class SecurityManager {
      * @return the phone number or null if not found
      */
     private String getUserPhoneNumber(String accountNo) {
-        try {
+        try (Connection connection = ConnectionPool.borrow()) {
             PreparedStatement ps = connection.prepareStatement(
                     "SELECT phone_number FROM user_contact WHERE account_no = ?");
             ps.setString(1, accountNo);
@@ -300,7 +254,7 @@ public class SecurityManager {
      * @return the email or null if not found
      */
     private String getUserEmail(String accountNo) {
-        try {
+        try (Connection connection = ConnectionPool.borrow()) {
             PreparedStatement ps = connection.prepareStatement(
                     "SELECT s1.email FROM signup1 s1 JOIN login l ON s1.form_no = l.form_no WHERE l.Account_No = ?");
             ps.setString(1, accountNo);
@@ -324,18 +278,8 @@ public class SecurityManager {
      * @param success whether delivery was successful
      */
     private void logOtpGeneration(String accountNo, String deliveryMethod, boolean success) {
-        try {
-            PreparedStatement ps = connection.prepareStatement(
-                    "INSERT INTO security_audit (account_no, action, details, success, timestamp) VALUES (?, ?, ?, ?, NOW())");
-            ps.setString(1, accountNo);
-            ps.setString(2, "OTP_GENERATION");
-            ps.setString(3, "Delivery method: " + deliveryMethod);
-            ps.setBoolean(4, success);
-            ps.executeUpdate();
-            ps.close();
-        } catch (SQLException e) {
-            LOGGER.log(Level.WARNING, "Failed to log OTP generation", e);
-        }
+        AuditAppender.getInstance().appendSecurityEvent(accountNo, "OTP_GENERATION",
+                "Delivery method: " + deliveryMethod, success);
     }
     
     /**
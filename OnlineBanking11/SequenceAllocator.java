@@ -0,0 +1,162 @@
+/*
+ * Online Banking System - Sequence Allocator
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out unique numbers from a named row of number_sequence using hi/lo
+ * allocation. One short transaction reserves a whole block of numbers by
+ * advancing the row under FOR UPDATE; numbers within the block are then
+ * handed out with a single atomic increment and no database work. Only the
+ * thread that finds the block exhausted reserves the next one, while the
+ * others wait for it. Every process reserves its own blocks, so numbers are
+ * unique across processes. Unused numbers of a block are skipped after a
+ * restart, so the sequence has gaps but never repeats.
+ */
+public final class SequenceAllocator {
+
+    static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS number_sequence (" +
+            "name VARCHAR(30) NOT NULL PRIMARY KEY, " +
+            "next_value BIGINT NOT NULL)";
+
+    /**
+     * A reserved range [next, end)
+     */
+    private static final class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    private final String name;
+    private final int blockSize;
+    private final long firstValue;
+    private volatile Block block = new Block(0, 0);
+    private boolean seeded; // guarded by this
+
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder reservations = new LongAdder();
+    private final LatencyHistogram reserveLatency;
+
+    /**
+     * @param name Sequence name, the key of its number_sequence row
+     * @param blockSize Numbers reserved per database round trip
+     * @param firstValue First number handed out when the row does not exist yet
+     */
+    public SequenceAllocator(String name, int blockSize, long firstValue) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.name = name;
+        this.blockSize = blockSize;
+        this.firstValue = firstValue;
+        this.reserveLatency = new LatencyHistogram("sequence." + name + ".reserve");
+    }
+
+    /**
+     * Creates the sequence table if it does not exist yet
+     * @param connection Open database connection
+     * @throws SQLException if the DDL fails
+     */
+    public static void ensureTable(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate(CREATE_TABLE);
+        }
+    }
+
+    /**
+     * @return The next number; never returned again by any allocator of this sequence
+     * @throws SQLException if a new block cannot be reserved
+     */
+    public long next() throws SQLException {
+        while (true) {
+            Block current = block;
+            long value = current.next.getAndIncrement();
+            if (value < current.end) {
+                allocated.increment();
+                return value;
+            }
+            refill(current);
+        }
+    }
+
+    public LatencyHistogram getReserveLatency() {
+        return reserveLatency;
+    }
+
+    @Override
+    public String toString() {
+        return "SequenceAllocator{" + name + ", blockSize=" + blockSize + ", allocated=" + allocated.sum() +
+               ", reservations=" + reservations.sum() + ", " + reserveLatency + "}";
+    }
+
+    private synchronized void refill(Block exhausted) throws SQLException {
+        if (block != exhausted) {
+            return; // another thread already reserved the next block
+        }
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionPool.borrow()) {
+            long first = reserve(connection);
+            block = new Block(first, first + blockSize);
+            reservations.increment();
+        } finally {
+            reserveLatency.recordSince(start);
+        }
+    }
+
+    /**
+     * Advances the sequence row by one block in a transaction of its own
+     * @return First number of the reserved block
+     */
+    private long reserve(Connection connection) throws SQLException {
+        if (!seeded) {
+            ensureTable(connection);
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT IGNORE INTO number_sequence (name, next_value) VALUES (?, ?)")) {
+                ps.setString(1, name);
+                ps.setLong(2, firstValue);
+                ps.executeUpdate();
+            }
+            seeded = true;
+        }
+
+        connection.setAutoCommit(false);
+        try {
+            long first;
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT next_value FROM number_sequence WHERE name = ? FOR UPDATE")) {
+                ps.setString(1, name);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    first = rs.getLong(1);
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "UPDATE number_sequence SET next_value = ? WHERE name = ?")) {
+                ps.setLong(1, first + blockSize);
+                ps.setString(2, name);
+                ps.executeUpdate();
+            }
+            connection.commit();
+            return first;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+}
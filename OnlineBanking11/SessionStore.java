@@ -0,0 +1,73 @@
+/*
+ * Online Banking System - Session Store
+ */
+package banking.management.system;
+
+/**
+ * Where SecurityManager keeps authenticated sessions. A session expires after
+ * a fixed period without activity. The in-memory store serves a single node;
+ * the JDBC store shares sessions between nodes behind a load balancer.
+ * The backend is chosen with banking.security.store ("memory" or "jdbc"),
+ * which also decides where BankingHttpServer keeps its bearer tokens.
+ */
+public interface SessionStore extends AutoCloseable {
+
+    /**
+     * Starts or restarts the session of an account
+     * @param accountNo Account number
+     */
+    void create(String accountNo);
+
+    /**
+     * Checks that the session is live and records activity on it
+     * @param accountNo Account number
+     * @return true if the session exists and has not timed out
+     */
+    boolean touch(String accountNo);
+
+    /**
+     * Ends the session of an account (logout)
+     * @param accountNo Account number
+     */
+    void end(String accountNo);
+
+    /**
+     * @return Sessions currently live
+     */
+    int getLiveCount();
+
+    /**
+     * @return Sessions expired per second, measured over the store's last interval
+     */
+    double getExpiredPerSecond();
+
+    /**
+     * Flushes pending work and stops background tasks
+     */
+    @Override
+    void close();
+
+    /**
+     * @param ttlMillis Idle time after which a session expires
+     * @return The store selected by banking.security.store
+     */
+    static SessionStore fromSystemProperties(long ttlMillis) {
+        if ("jdbc".equalsIgnoreCase(System.getProperty("banking.security.store", "memory"))) {
+            return new JdbcSessionStore(ConnectionPool.getInstance(), ttlMillis,
+                    Long.getLong("banking.security.flushIntervalMillis", JdbcSessionStore.DEFAULT_FLUSH_INTERVAL_MILLIS));
+        }
+        return new InMemorySessionStore(ttlMillis);
+    }
+
+    /**
+     * @param ttlMillis Idle time after which a token expires
+     * @return Store for the bearer tokens of the HTTP API, on the backend selected by banking.security.store
+     */
+    static SessionStore tokensFromSystemProperties(long ttlMillis) {
+        if ("jdbc".equalsIgnoreCase(System.getProperty("banking.security.store", "memory"))) {
+            return new JdbcSessionStore(ConnectionPool.getInstance(), "http_session", "token_key", 96, ttlMillis,
+                    Long.getLong("banking.security.flushIntervalMillis", JdbcSessionStore.DEFAULT_FLUSH_INTERVAL_MILLIS));
+        }
+        return new InMemorySessionStore("http.tokens", ttlMillis);
+    }
+}
@@ -4,6 +4,9 @@ import javax.swing.*;
 import java.awt.*;
 import java.util.*;
 import java.awt.event.*;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 
 /**
  *
@@ -13,6 +16,7 @@ import java.awt.event.*;
 public class Signup1 extends JFrame implements ActionListener{
     
     long fnum;
+    boolean formAllocated;
     JTextField nameTextField, fnameTextField, mnameTextField, dobTextField, emailTextField, addressTextField, cityTextField, stateTextField, natTextField;
     JButton next;
     JRadioButton male, female, other, married, unmarried;
@@ -24,8 +28,11 @@ public class Signup1 extends JFrame implements ActionListener{
         setLayout(null);
        // setUndecorated(true);
         
-        Random ran = new Random();
-        fnum = (Math.abs(ran.nextLong()%900L + 100000L));
+        if (!allocateFormNumber()) {
+            // Nothing has been shown yet; without a form number there is no application to fill in
+            dispose();
+            return;
+        }
         
         JLabel fromno = new JLabel("APPLICATION FORM NO:" + fnum);
         fromno.setFont(new Font("Raleway", Font.BOLD, 40));
@@ -172,6 +179,33 @@ public class Signup1 extends JFrame implements ActionListener{
         setSize(850,850);
         setVisible(true);
     }
+    @Override
+    public void setVisible(boolean visible) {
+        // Callers may show the frame again after the constructor; a cancelled signup stays closed
+        super.setVisible(visible && formAllocated);
+    }
+
+    /**
+     * Reserves the application form number, offering a retry while the database is unavailable
+     * @return false if the user gave up
+     */
+    private boolean allocateFormNumber() {
+        while (true) {
+            try {
+                fnum = AccountNumbers.newFormNumber();
+                formAllocated = true;
+                return true;
+            } catch (SQLException e) {
+                int choice = JOptionPane.showConfirmDialog(null,
+                        "Could not allocate an application form number. Try again?", "Signup",
+                        JOptionPane.YES_NO_OPTION, JOptionPane.ERROR_MESSAGE);
+                if (choice != JOptionPane.YES_OPTION) {
+                    return false;
+                }
+            }
+        }
+    }
+
       public void actionPerformed(final ActionEvent ae) {
       
       String formno = "" + fnum;
@@ -204,9 +238,15 @@ public class Signup1 extends JFrame implements ActionListener{
          if (name.equals("")) {
              JOptionPane.showMessageDialog(null, "Name is must be Required");
          } else{
-             ConnectionSql c = new ConnectionSql();
-             String query = "Insert into signup1 value('"+formno+"','" + name + "','" + fname + "','" + mname + "','" + dob + "','" + gender + "','" + email + "','" + marital + "','" + address + "','" + city + "','" + state + "','" + nat + "')";
-             c.s.executeUpdate(query); 
+             try (Connection connection = ConnectionPool.borrow();
+                  PreparedStatement ps = connection.prepareStatement(
+                          "insert into signup1 values(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                 String[] values = {formno, name, fname, mname, dob, gender, email, marital, address, city, state, nat};
+                 for (int i = 0; i < values.length; i++) {
+                     ps.setString(i + 1, values[i]);
+                 }
+                 ps.executeUpdate();
+             }
              setVisible(false);
               new Signup2(formno).setVisible(true);
             }
@@ -4,6 +4,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.util.*;
 import java.awt.event.*;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 
 
 public class Signup2 extends JFrame implements ActionListener {
@@ -212,9 +214,15 @@ public class Signup2 extends JFrame implements ActionListener {
       if (t2.getText().equals("")) {
         javax.swing.JOptionPane.showMessageDialog(null, "Fill all the required fields");
       } else {
-        ConnectionSql c = new ConnectionSql();
-        String q1 = "insert into signup2 values('" +formno+ "','" +sreligion + "','" + scategory + "','" + sincome + "','" + seducation + "','" + soccupation + "','" + pan + "','" + aadhar + "','" + scitizen + "','" + eaccount + "')";
-        c.s.executeUpdate(q1);
+        try (Connection connection = ConnectionPool.borrow();
+             PreparedStatement ps = connection.prepareStatement(
+                     "insert into signup2 values(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+          String[] values = {formno, sreligion, scategory, sincome, seducation, soccupation, pan, aadhar, scitizen, eaccount};
+          for (int i = 0; i < values.length; i++) {
+            ps.setString(i + 1, values[i]);
+          }
+          ps.executeUpdate();
+        }
         
         setVisible(false);
         new Signup3(formno).setVisible(true);
@@ -4,6 +4,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.util.*;
 import java.awt.event.*;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 
 /**
  *
@@ -197,13 +199,6 @@ public class Signup3 extends JFrame implements ActionListener
       atype = "Recurring Deposit Account";
     }
     
-    Random ran = new Random();
-    long first7 = ran.nextLong() % 90000000L + 35406000000000L;
-    String Accountno = "" + Math.abs(first7);
-    
-    long first5 = ran.nextLong() % 90000L + 100000L;
-    String pin = "" + Math.abs(first5);
-    
     String facility = "";
     if (c1.isSelected()) {
       facility = facility + " ATM Card";
@@ -230,12 +225,28 @@ public class Signup3 extends JFrame implements ActionListener
         if (atype.equals("")) {
           JOptionPane.showMessageDialog(null, "Fill all the required fields");
         } else {
-          ConnectionSql c = new ConnectionSql();
-          String q1 = "insert into signup3 values('"+formno+"','" + atype + "','"+Accountno+"','"+pin+"','" +facility+"')";
-          c.s.executeUpdate(q1);
+          String Accountno = AccountNumbers.newAccountNumber();
+          String pin = AccountNumbers.newPin();
           
-          String q2 = "insert into login values('"+formno+"','" + Accountno + "','" + pin + "')";
-          c.s.executeUpdate(q2);
+          try (Connection connection = ConnectionPool.borrow()) {
+            // Only the login table can verify the PIN, and it keeps a salted hash; never store it in the clear
+            try (PreparedStatement ps = connection.prepareStatement("insert into signup3 values(?, ?, ?, '****', ?)")) {
+              ps.setString(1, formno);
+              ps.setString(2, atype);
+              ps.setString(3, Accountno);
+              ps.setString(4, facility);
+              ps.executeUpdate();
+            }
+            
+            // Older schemas cannot hold the encoded hash until the column is widened
+            CredentialStore.ensureSchema(connection);
+            try (PreparedStatement ps = connection.prepareStatement("insert into login values(?, ?, ?)")) {
+              ps.setString(1, formno);
+              ps.setString(2, Accountno);
+              ps.setString(3, CredentialStore.hash(pin));
+              ps.executeUpdate();
+            }
+          }
           
           JOptionPane.showMessageDialog(null,"Congratulation!!\n Dear Customer, your Account are Successfully Opened." + "\n Account Number: " + Accountno + "\n Password:" + pin +"\n Thank You For Opening Account.");
           
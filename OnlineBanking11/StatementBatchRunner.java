@@ -0,0 +1,175 @@
+/*
+ * Online Banking System - Statement Batch Runner
+ */
+package banking.management.system;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Month-end job that renders a statement for every account in parallel.
+ * Each worker borrows its own pooled connection per account and streams the
+ * statement to {@code <dir>/<account>-<yyyy-MM>.pdf}; a failed account is logged
+ * and skipped. Throughput is reported as pages/sec and bytes/sec.
+ *
+ * Usage: StatementBatchRunner [yyyy-MM] [outputDir] (default: previous month, ./statements).
+ * The worker count is read from banking.statement.threads (default: available processors)
+ * and capped at the connection pool size (banking.pool.maxSize), since every worker
+ * holds a connection for its whole statement.
+ */
+public class StatementBatchRunner {
+
+    private static final Logger LOGGER = Logger.getLogger(StatementBatchRunner.class.getName());
+
+    private final int threads;
+    private final StatementRenderer renderer = new StatementRenderer();
+
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder pages = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LatencyHistogram renderLatency = new LatencyHistogram("statement.render");
+
+    public StatementBatchRunner() {
+        this(Integer.getInteger("banking.statement.threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param threads Statements rendered concurrently; capped at the connection pool size
+     */
+    public StatementBatchRunner(int threads) {
+        int poolSize = ConnectionPool.getInstance().getMaxSize();
+        if (threads > poolSize) {
+            LOGGER.info("Capping statement workers at the pool size: " + threads + " -> " + poolSize);
+        }
+        this.threads = Math.max(1, Math.min(threads, poolSize));
+    }
+
+    /**
+     * Renders the statement of every account for one month
+     * @param month Statement month
+     * @param outputDir Directory for the PDF files, created if missing
+     * @return Number of statements written
+     * @throws SQLException if the account list cannot be read
+     * @throws IOException if the output directory cannot be created
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public long run(YearMonth month, Path outputDir) throws SQLException, IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+        List<String> accounts = loadAccounts();
+        final String fromDate = month.atDay(1).toString();
+        final String toDate = month.atEndOfMonth() + " 23:59:59";
+        final String suffix = "-" + month + ".pdf";
+
+        LOGGER.info("Rendering " + accounts.size() + " statements for " + month + " with " + threads + " threads");
+        final AtomicInteger workerIds = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "statement-worker-" + workerIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        long start = System.nanoTime();
+        try {
+            for (final String accountNo : accounts) {
+                workers.execute(() -> renderOne(accountNo, fromDate, toDate, outputDir.resolve(accountNo + suffix)));
+            }
+        } finally {
+            workers.shutdown();
+        }
+        while (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            LOGGER.info("Statements written so far: " + statements.sum() + "/" + accounts.size());
+        }
+
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        LOGGER.info(String.format("Statement run %s: %d statements, %d failed, %d rows, %d pages, %d bytes in %.1fs " +
+                                  "(%.1f pages/sec, %.0f bytes/sec, render %s)",
+                month, statements.sum(), failures.sum(), rows.sum(), pages.sum(), bytes.sum(), seconds,
+                pages.sum() / seconds, bytes.sum() / seconds, renderLatency));
+        return statements.sum();
+    }
+
+    private void renderOne(String accountNo, String fromDate, String toDate, Path target) {
+        long start = System.nanoTime();
+        try {
+            StatementRenderer.RenderResult result = renderer.render(accountNo, fromDate, toDate, target);
+            statements.increment();
+            pages.add(result.getPages());
+            bytes.add(result.getBytes());
+            rows.add(result.getRows());
+        } catch (SQLException | IOException | RuntimeException e) {
+            failures.increment();
+            LOGGER.log(Level.WARNING, "Failed to render statement for account " + accountNo, e);
+        } finally {
+            renderLatency.recordSince(start);
+        }
+    }
+
+    private static List<String> loadAccounts() throws SQLException {
+        List<String> accounts = new ArrayList<>();
+        try (Connection connection = ConnectionPool.borrow();
+             PreparedStatement ps = connection.prepareStatement("SELECT DISTINCT Account_No FROM login ORDER BY Account_No");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                accounts.add(rs.getString(1));
+            }
+        }
+        return accounts;
+    }
+
+    public long getStatementCount() {
+        return statements.sum();
+    }
+
+    public long getPageCount() {
+        return pages.sum();
+    }
+
+    public long getByteCount() {
+        return bytes.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    public LatencyHistogram getRenderLatency() {
+        return renderLatency;
+    }
+
+    /**
+     * Entry point for the month-end scheduler
+     * @param args [yyyy-MM] [outputDir]
+     */
+    public static void main(String[] args) {
+        YearMonth month = args.length > 0 ? YearMonth.parse(args[0]) : YearMonth.now().minusMonths(1);
+        Path outputDir = Paths.get(args.length > 1 ? args[1] : "statements");
+        try {
+            new StatementBatchRunner().run(month, outputDir);
+        } catch (SQLException | IOException e) {
+            LOGGER.log(Level.SEVERE, "Statement run for " + month + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warning("Statement run for " + month + " interrupted");
+        } finally {
+            ConnectionPool.getInstance().shutdown();
+        }
+    }
+}
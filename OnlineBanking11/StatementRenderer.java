@@ -0,0 +1,252 @@
+/*
+ * Online Banking System - Statement Renderer
+ */
+package banking.management.system;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Renders an account statement to PDF straight from the ledger.
+ * Rows are read oldest-first with a forward-only cursor and written page by page
+ * through {@link PdfStreamWriter}, so only the current page is ever held in memory;
+ * on MySQL that relies on the useCursorFetch=true ConnectionPool adds to the URL.
+ * A file is written under a temporary name and renamed into place only once the
+ * document is complete, so a failed render leaves no partial statement behind.
+ * A statement always covers every row of the account in the date window; the
+ * type and amount filters of the history screen do not apply, because the
+ * running balance would not add up without the rows they hide.
+ */
+public class StatementRenderer {
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Page layout, shared by every statement
+    private static final float MARGIN_LEFT = 40;
+    private static final float MARGIN_RIGHT = PdfStreamWriter.PAGE_WIDTH - 40;
+    private static final float HEADER_TOP = PdfStreamWriter.PAGE_HEIGHT - 50;
+    private static final float BODY_TOP = PdfStreamWriter.PAGE_HEIGHT - 140;
+    private static final float BODY_BOTTOM = 70;
+    private static final float ROW_HEIGHT = 14;
+    private static final float FONT_SIZE = 8;
+    private static final float COL_DESCRIPTION = 140;
+    private static final float COL_REFERENCE = 290;
+    private static final float COL_TYPE = 400;
+    private static final float COL_AMOUNT_RIGHT = 490;
+    private static final int DESCRIPTION_CHARS = 30;
+
+    private final int fetchSize;
+
+    /**
+     * Size of a rendered statement
+     */
+    public static class RenderResult {
+        private final long rows;
+        private final int pages;
+        private final long bytes;
+
+        RenderResult(long rows, int pages, long bytes) {
+            this.rows = rows;
+            this.pages = pages;
+            this.bytes = bytes;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public int getPages() {
+            return pages;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    public StatementRenderer() {
+        this(Integer.getInteger("banking.statement.fetchSize", DEFAULT_FETCH_SIZE));
+    }
+
+    /**
+     * @param fetchSize Rows the driver fetches per round trip
+     */
+    public StatementRenderer(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Renders a statement to a file, replacing it if it exists
+     * @param accountNo Account number
+     * @param fromDate Inclusive start (yyyy-MM-dd), or null for the whole history
+     * @param toDate Inclusive end (yyyy-MM-dd HH:mm:ss), or null for no end
+     * @param target Output file
+     * @return Rows, pages and bytes written
+     * @throws SQLException if the ledger query fails
+     * @throws IOException if writing fails or the thread is interrupted
+     */
+    public RenderResult render(String accountNo, String fromDate, String toDate, Path target)
+            throws SQLException, IOException {
+        try (Connection connection = ConnectionPool.borrow()) {
+            return render(connection, accountNo, fromDate, toDate, target);
+        }
+    }
+
+    /**
+     * Renders a statement to a file using the caller's connection; the file is
+     * replaced only if the render succeeds
+     * @param connection Open database connection
+     * @param accountNo Account number
+     * @param fromDate Inclusive start (yyyy-MM-dd), or null for the whole history
+     * @param toDate Inclusive end (yyyy-MM-dd HH:mm:ss), or null for no end
+     * @param target Output file
+     * @return Rows, pages and bytes written
+     * @throws SQLException if the ledger query fails
+     * @throws IOException if writing fails or the thread is interrupted
+     */
+    public RenderResult render(Connection connection, String accountNo, String fromDate, String toDate, Path target)
+            throws SQLException, IOException {
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        boolean done = false;
+        try {
+            RenderResult result;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial), BUFFER_SIZE)) {
+                result = render(connection, accountNo, fromDate, toDate, out);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            done = true;
+            return result;
+        } finally {
+            if (!done) {
+                Files.deleteIfExists(partial);
+            }
+        }
+    }
+
+    /**
+     * Renders a statement to a stream; the stream is closed when done
+     * @param connection Open database connection
+     * @param accountNo Account number
+     * @param fromDate Inclusive start (yyyy-MM-dd), or null for the whole history
+     * @param toDate Inclusive end (yyyy-MM-dd HH:mm:ss), or null for no end
+     * @param out Destination, buffered by the caller
+     * @return Rows, pages and bytes written
+     * @throws SQLException if the ledger query fails
+     * @throws IOException if writing fails or the thread is interrupted
+     */
+    public RenderResult render(Connection connection, String accountNo, String fromDate, String toDate,
+                               OutputStream out) throws SQLException, IOException {
+        TransactionQuery query = new TransactionQuery(accountNo, fromDate, toDate, null, null, null);
+        long balance = BalanceSnapshotStore.balanceBefore(connection, accountNo, fromDate).getMinorUnits();
+        String period = (fromDate != null ? fromDate : "start") + " to " +
+                        (toDate != null ? toDate.substring(0, Math.min(10, toDate.length())) : "today");
+
+        long rows = 0;
+        long credits = 0;
+        long debits = 0;
+        try (PdfStreamWriter pdf = new PdfStreamWriter(out);
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT date, description, type, " + LedgerSchema.AMOUNT_MINOR + " AS amount_minor, reference " +
+                     "FROM bank WHERE " + query.whereClause() + " ORDER BY date ASC, reference ASC",
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            query.bind(ps, 1);
+            ps.setFetchSize(fetchSize);
+
+            float y = startPage(pdf, accountNo, period, balance);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (y < BODY_BOTTOM) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new InterruptedIOException("Statement cancelled after " + rows + " rows");
+                        }
+                        y = startPage(pdf, accountNo, period, balance);
+                    }
+                    String type = rs.getString("type");
+                    long amount = rs.getLong("amount_minor");
+                    String description = rs.getString("description");
+                    String reference = rs.getString("reference");
+
+                    boolean credit = AccountBalanceStore.isCredit(type);
+                    balance += Money.signedMinor(type, amount);
+                    if (credit) {
+                        credits += amount;
+                    } else {
+                        debits += amount;
+                    }
+
+                    pdf.text(MARGIN_LEFT, y, FONT_SIZE, false, rs.getString("date"));
+                    pdf.text(COL_DESCRIPTION, y, FONT_SIZE, false, truncate(description));
+                    pdf.text(COL_REFERENCE, y, FONT_SIZE, false, reference != null ? reference : "-");
+                    pdf.text(COL_TYPE, y, FONT_SIZE, false, type);
+                    pdf.textRight(COL_AMOUNT_RIGHT, y, FONT_SIZE, false,
+                            (credit ? "+" : "-") + Money.format(amount));
+                    pdf.textRight(MARGIN_RIGHT, y, FONT_SIZE, false, Money.format(balance));
+                    y -= ROW_HEIGHT;
+                    rows++;
+                }
+            }
+
+            if (y < BODY_BOTTOM + 3 * ROW_HEIGHT) {
+                y = startPage(pdf, accountNo, period, balance);
+            }
+            pdf.line(MARGIN_LEFT, MARGIN_RIGHT, y + ROW_HEIGHT - 4);
+            pdf.text(MARGIN_LEFT, y - 4, 9, true, "Total credits: " + Money.format(credits) +
+                     "    Total debits: " + Money.format(debits) + "    Transactions: " + rows);
+            pdf.textRight(MARGIN_RIGHT, y - 4 - ROW_HEIGHT, 9, true, "Closing balance: " + Money.format(balance));
+
+            pdf.finish();
+            return new RenderResult(rows, pdf.getPageCount(), pdf.getBytesWritten());
+        }
+    }
+
+    /**
+     * Flushes the previous page and draws the header of a new one
+     * @return Baseline of the first row
+     */
+    private static float startPage(PdfStreamWriter pdf, String accountNo, String period, long broughtForward)
+            throws IOException {
+        pdf.beginPage();
+        int page = pdf.getPageCount() + 1;
+
+        pdf.text(MARGIN_LEFT, HEADER_TOP, 16, true, "Account Statement");
+        pdf.textRight(MARGIN_RIGHT, HEADER_TOP, 9, false, "Page " + page);
+        pdf.text(MARGIN_LEFT, HEADER_TOP - 20, 10, false, "Account: " + maskAccountNumber(accountNo));
+        pdf.text(MARGIN_LEFT, HEADER_TOP - 34, 10, false, "Period: " + period);
+        pdf.textRight(MARGIN_RIGHT, HEADER_TOP - 34, 10, false,
+                (page == 1 ? "Opening balance: " : "Brought forward: ") + Money.format(broughtForward));
+
+        float y = BODY_TOP + ROW_HEIGHT + 6;
+        pdf.text(MARGIN_LEFT, y, FONT_SIZE, true, "Date");
+        pdf.text(COL_DESCRIPTION, y, FONT_SIZE, true, "Description");
+        pdf.text(COL_REFERENCE, y, FONT_SIZE, true, "Reference");
+        pdf.text(COL_TYPE, y, FONT_SIZE, true, "Type");
+        pdf.textRight(COL_AMOUNT_RIGHT, y, FONT_SIZE, true, "Amount");
+        pdf.textRight(MARGIN_RIGHT, y, FONT_SIZE, true, "Balance");
+        pdf.line(MARGIN_LEFT, MARGIN_RIGHT, y - 5);
+        return BODY_TOP;
+    }
+
+    private static String truncate(String description) {
+        if (description == null || description.isEmpty()) {
+            return "-";
+        }
+        return description.length() <= DESCRIPTION_CHARS ? description : description.substring(0, DESCRIPTION_CHARS - 3) + "...";
+    }
+
+    private static String maskAccountNumber(String accountNumber) {
+        if (accountNumber == null || accountNumber.length() < 4) {
+            return accountNumber;
+        }
+        return "XXXX" + accountNumber.substring(accountNumber.length() - 4);
+    }
+}
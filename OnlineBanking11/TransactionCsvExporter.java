@@ -0,0 +1,218 @@
+/*
+ * Online Banking System - Transaction CSV Exporter
+ */
+package banking.management.system;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Streams transaction history straight from the ledger to an RFC 4180 CSV file.
+ * The filter query runs with a forward-only, read-only cursor and a bounded fetch
+ * size, and rows are encoded into a fixed direct buffer that is flushed to a
+ * FileChannel, so memory use does not depend on the number of rows exported.
+ * On MySQL the fetch size needs useCursorFetch=true, which ConnectionPool adds
+ * to the URL unless it is set there.
+ */
+public class TransactionCsvExporter {
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    private final int fetchSize;
+
+    /**
+     * Receives export progress; called on the exporting thread
+     */
+    public interface ProgressListener {
+        /**
+         * @param rowsWritten Rows written so far
+         * @param totalRows Rows matching the filter
+         */
+        void onProgress(long rowsWritten, long totalRows);
+    }
+
+    public TransactionCsvExporter() {
+        this(Integer.getInteger("banking.export.fetchSize", DEFAULT_FETCH_SIZE));
+    }
+
+    /**
+     * @param fetchSize Rows the driver fetches per round trip
+     */
+    public TransactionCsvExporter(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Exports on the calling thread; run it off the event dispatch thread and
+     * interrupt that thread to cancel
+     * @param query Filter to export
+     * @param target Output file, replaced if it exists
+     * @param listener Progress listener, may be null
+     * @return Number of rows written
+     * @throws SQLException if the ledger query fails
+     * @throws IOException if writing fails or the export thread is interrupted
+     */
+    public long export(TransactionQuery query, Path target, ProgressListener listener) throws SQLException, IOException {
+        String aggregate = "SELECT COUNT(*), COALESCE(SUM(" + LedgerSchema.SIGNED_AMOUNT_MINOR + "), 0) " +
+                           "FROM bank WHERE " + query.whereClause();
+        String rowsSql = "SELECT date, description, type, " + LedgerSchema.AMOUNT_MINOR + " AS amount_minor, reference " +
+                         "FROM bank WHERE " + query.whereClause() +
+                         " ORDER BY date DESC, reference DESC";
+
+        try (Connection connection = ConnectionPool.borrow();
+             CsvChannelWriter out = new CsvChannelWriter(target)) {
+            long total;
+            // Same opening balance as the history table, so both show the same Balance column
+            long balance = HistoryService.openingBalance(connection, query);
+            try (PreparedStatement ps = connection.prepareStatement(aggregate)) {
+                query.bind(ps, 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    total = rs.getLong(1);
+                    balance += rs.getLong(2);
+                }
+            }
+
+            out.writeRow(TransactionTableModel.COLUMNS);
+
+            long written = 0;
+            String[] fields = new String[TransactionTableModel.COLUMNS.length];
+            try (PreparedStatement ps = connection.prepareStatement(rowsSql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                query.bind(ps, 1);
+                ps.setFetchSize(fetchSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String type = rs.getString("type");
+                        long amount = rs.getLong("amount_minor");
+                        String description = rs.getString("description");
+                        String reference = rs.getString("reference");
+
+                        fields[0] = rs.getString("date");
+                        fields[1] = description == null || description.isEmpty() ? "-" : description;
+                        fields[2] = reference != null ? reference : "-";
+                        fields[3] = type;
+                        fields[4] = (AccountBalanceStore.isCredit(type) ? "+" : "-") + "$" + Money.format(amount);
+                        fields[5] = "$" + Money.format(balance);
+                        out.writeRow(fields);
+                        balance -= Money.signedMinor(type, amount);
+
+                        written++;
+                        if (written % PROGRESS_INTERVAL == 0) {
+                            if (Thread.currentThread().isInterrupted()) {
+                                throw new InterruptedIOException("Export cancelled after " + written + " rows");
+                            }
+                            if (listener != null) {
+                                listener.onProgress(written, total);
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (listener != null) {
+                listener.onProgress(written, total);
+            }
+            return written;
+        }
+    }
+
+    /**
+     * Appends a field to a row, quoting it per RFC 4180 when needed
+     * @param sb Row being built
+     * @param value Field value, null is written as empty
+     */
+    static void appendField(StringBuilder sb, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            sb.append(value);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Encodes CSV rows as UTF-8 into a reusable buffer flushed to a file channel
+     */
+    private static class CsvChannelWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final StringBuilder row = new StringBuilder(256);
+
+        CsvChannelWriter(Path target) throws IOException {
+            channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void writeRow(String[] fields) throws IOException {
+            row.setLength(0);
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) {
+                    row.append(',');
+                }
+                appendField(row, fields[i]);
+            }
+            row.append("\r\n");
+
+            CharBuffer chars = CharBuffer.wrap(row);
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, false);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isUnderflow()) {
+                    break;
+                } else {
+                    result.throwException();
+                }
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -10,11 +10,7 @@ import java.sql.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Date;
-import javax.swing.table.DefaultTableModel;
-import javax.swing.table.TableRowSorter;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -29,7 +25,7 @@ import java.util.logging.Logger;
 public class TransactionHistory extends JFrame implements ActionListener {
 
     private JTable transactionTable;
-    private DefaultTableModel tableModel;
+    private TransactionTableModel tableModel;
     private JScrollPane tableScrollPane;
     private JButton backButton, exportPdfButton, exportExcelButton, filterButton, clearFilterButton;
     private JLabel titleLabel, dateFromLabel, dateToLabel, typeLabel, amountFromLabel, amountToLabel;
@@ -40,6 +36,7 @@ public class TransactionHistory extends JFrame implements ActionListener {
     
     private String pin;
     private String accountNo;
+    private TransactionQuery currentQuery;
     private static final Logger LOGGER = Logger.getLogger(TransactionHistory.class.getName());
     
     /**
@@ -86,14 +83,8 @@ public class TransactionHistory extends JFrame implements ActionListener {
         titleLabel.setForeground(Color.black);
         add(titleLabel);
         
-        // Initialize table model with columns
-        String[] columns = {"Date", "Description", "Reference", "Type", "Amount", "Balance"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make all cells non-editable
-            }
-        };
+        // Lazily loaded, keyset-paginated table model (non-editable)
+        tableModel = new TransactionTableModel();
         
         // Create table with the model
         transactionTable = new JTable(tableModel);
@@ -220,11 +211,6 @@ public class TransactionHistory extends JFrame implements ActionListener {
      */
     private void loadTransactionHistory() {
         try {
-            // Clear existing table data
-            tableModel.setRowCount(0);
-            
-            ConnectionSql c = new ConnectionSql();
-            
             // Get date range (default 6 months)
             Date fromDate = dateFromChooser.getDate();
             Date toDate = dateToChooser.getDate();
@@ -233,16 +219,16 @@ public class TransactionHistory extends JFrame implements ActionListener {
             String typeFilter = (String) typeComboBox.getSelectedItem();
             
             // Get amount range
-            double amountMin = -1;
-            double amountMax = Double.MAX_VALUE;
+            Money amountMin = null;
+            Money amountMax = null;
             
             try {
                 if (!amountFromField.getText().isEmpty()) {
-                    amountMin = Double.parseDouble(amountFromField.getText());
+                    amountMin = Money.parse(amountFromField.getText());
                 }
                 
                 if (!amountToField.getText().isEmpty()) {
-                    amountMax = Double.parseDouble(amountToField.getText());
+                    amountMax = Money.parse(amountToField.getText());
                 }
             } catch (NumberFormatException e) {
                 JOptionPane.showMessageDialog(this, "Please enter valid amount values.", 
@@ -252,90 +238,12 @@ public class TransactionHistory extends JFrame implements ActionListener {
             
             // Format dates for SQL query
             SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-            String fromDateStr = fromDate != null ? sdf.format(fromDate) : "";
-            String toDateStr = toDate != null ? sdf.format(toDate) + " 23:59:59" : "";
-            
-            // Build SQL query with filters
-            StringBuilder queryBuilder = new StringBuilder();
-            queryBuilder.append("SELECT * FROM bank WHERE Account_No = '").append(accountNo).append("'");
-            
-            if (fromDate != null) {
-                queryBuilder.append(" AND date >= '").append(fromDateStr).append("'");
-            }
-            
-            if (toDate != null) {
-                queryBuilder.append(" AND date <= '").append(toDateStr).append("'");
-            }
-            
-            if (typeFilter != null && !typeFilter.equals("All Types")) {
-                queryBuilder.append(" AND type = '").append(typeFilter).append("'");
-            }
-            
-            queryBuilder.append(" ORDER BY date DESC");
-            
-            String query = queryBuilder.toString();
-            ResultSet rs = c.s.executeQuery(query);
-            
-            // Running balance calculation
-            double runningBalance = 0;
-            
-            // Store transactions for reverse chronological processing
-            ArrayList<TransactionRecord> transactions = new ArrayList<>();
-            while (rs.next()) {
-                String date = rs.getString("date");
-                String description = rs.getString("description");
-                String type = rs.getString("type");
-                double amount = Double.parseDouble(rs.getString("amount"));
-                String reference = rs.getString("reference") != null ? rs.getString("reference") : "-";
-                
-                // Skip if outside amount range
-                if (amount < amountMin || amount > amountMax) {
-                    continue;
-                }
-                
-                transactions.add(new TransactionRecord(date, description, type, amount, reference));
-            }
-            
-            // Process transactions in reverse order for accurate balance calculation
-            Collections.sort(transactions);
+            String fromDateStr = fromDate != null ? sdf.format(fromDate) : null;
+            String toDateStr = toDate != null ? sdf.format(toDate) + " 23:59:59" : null;
             
-            // Calculate initial balance based on all transactions
-            for (TransactionRecord txn : transactions) {
-                if (txn.type.equals("Deposit") || txn.type.equals("Transfer-In")) {
-                    runningBalance += txn.amount;
-                } else {
-                    runningBalance -= txn.amount;
-                }
-            }
-            
-            double finalBalance = runningBalance;
-            runningBalance = 0;
-            
-            // Add transactions to table in correct order (newest first)
-            for (int i = transactions.size() - 1; i >= 0; i--) {
-                TransactionRecord txn = transactions.get(i);
-                
-                String formattedAmount;
-                if (txn.type.equals("Deposit") || txn.type.equals("Transfer-In")) {
-                    formattedAmount = "+" + String.format("$%.2f", txn.amount);
-                    runningBalance += txn.amount;
-                } else {
-                    formattedAmount = "-" + String.format("$%.2f", txn.amount);
-                    runningBalance -= txn.amount;
-                }
-                
-                String formattedBalance = String.format("$%.2f", finalBalance - runningBalance);
-                
-                // Add row to table model
-                tableModel.addRow(new Object[]{
-                    txn.date,
-                    txn.description.isEmpty() ? "-" : txn.description,
-                    txn.reference,
-                    txn.type,
-                    formattedAmount,
-                    formattedBalance
-                });
-            }
+            // Count and closing balance come from one aggregate query; rows load page by page
+            currentQuery = new TransactionQuery(accountNo, fromDateStr, toDateStr, typeFilter, amountMin, amountMax);
+            tableModel.load(currentQuery);
             
             // If no transactions found
             if (tableModel.getRowCount() == 0) {
@@ -384,46 +292,66 @@ public class TransactionHistory extends JFrame implements ActionListener {
                     filePath += ".csv";
                 }
                 
-                // Write to CSV file
-                try (FileWriter writer = new FileWriter(filePath)) {
-                    // Write header
-                    for (int i = 0; i < tableModel.getColumnCount(); i++) {
-                        writer.append(tableModel.getColumnName(i));
-                        if (i < tableModel.getColumnCount() - 1) {
-                            writer.append(",");
-                        }
-                    }
-                    writer.append("\n");
-                    
-                    // Write data rows
-                    for (int row = 0; row < tableModel.getRowCount(); row++) {
-                        for (int col = 0; col < tableModel.getColumnCount(); col++) {
-                            String value = tableModel.getValueAt(row, col).toString();
-                            // Escape commas in fields
-                            if (value.contains(",")) {
-                                writer.append("\"").append(value).append("\"");
-                            } else {
-                                writer.append(value);
-                            }
-                            
-                            if (col < tableModel.getColumnCount() - 1) {
-                                writer.append(",");
-                            }
-                        }
-                        writer.append("\n");
-                    }
-                    
-                    JOptionPane.showMessageDialog(this, "Transaction history exported successfully to Excel format.", 
-                            "Export Successful", JOptionPane.INFORMATION_MESSAGE);
-                }
+                // Stream rows from the ledger on a background thread
+                startCsvExport(currentQuery, new File(filePath));
             }
-        } catch (IOException e) {
+        } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error exporting to Excel", e);
             JOptionPane.showMessageDialog(this, "Error exporting to Excel: " + e.getMessage(), 
                     "Export Error", JOptionPane.ERROR_MESSAGE);
         }
     }
     
+    /**
+     * Run the streaming CSV export in the background with a cancellable progress monitor
+     * @param query Filter currently shown in the table
+     * @param file Output file
+     */
+    private void startCsvExport(final TransactionQuery query, final File file) {
+        final ProgressMonitor monitor = new ProgressMonitor(this, "Exporting transactions to " + file.getName(), 
+                "", 0, Math.max(1, tableModel.getRowCount()));
+        monitor.setMillisToDecideToPopup(200);
+        
+        SwingWorker<Long, Long> worker = new SwingWorker<Long, Long>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return new TransactionCsvExporter().export(query, file.toPath(), 
+                        (rowsWritten, totalRows) -> publish(rowsWritten));
+            }
+            
+            @Override
+            protected void process(java.util.List<Long> chunks) {
+                if (monitor.isCanceled()) {
+                    cancel(true);
+                    return;
+                }
+                long rows = chunks.get(chunks.size() - 1);
+                monitor.setProgress((int) Math.min(Integer.MAX_VALUE, rows));
+                monitor.setNote(rows + " rows written");
+            }
+            
+            @Override
+            protected void done() {
+                monitor.close();
+                if (isCancelled()) {
+                    file.delete();
+                    return;
+                }
+                try {
+                    long rows = get();
+                    JOptionPane.showMessageDialog(TransactionHistory.this, 
+                            "Transaction history exported successfully to Excel format (" + rows + " rows).", 
+                            "Export Successful", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    LOGGER.log(Level.SEVERE, "Error exporting to Excel", e);
+                    JOptionPane.showMessageDialog(TransactionHistory.this, "Error exporting to Excel: " + e.getMessage(), 
+                            "Export Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+    }
+    
     /**
      * Export transaction history to PDF file
      */
@@ -457,12 +385,7 @@ public class TransactionHistory extends JFrame implements ActionListener {
                     filePath += ".pdf";
                 }
                 
-                // In a real implementation, this would use a PDF library like iText or PDFBox
-                // For this example, we'll just simulate PDF creation
-                JOptionPane.showMessageDialog(this, 
-                        "PDF export simulation: Transaction history would be exported to: " + filePath + 
-                        "\n\nIn a real implementation, this would use a PDF generation library.", 
-                        "PDF Export", JOptionPane.INFORMATION_MESSAGE);
+                startPdfExport(currentQuery, new File(filePath));
             }
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error exporting to PDF", e);
@@ -471,6 +394,40 @@ public class TransactionHistory extends JFrame implements ActionListener {
         }
     }
     
+    /**
+     * Render the statement for the current account and date range in the background
+     * @param query Filter currently shown in the table; only its account and dates apply
+     * @param file Output file
+     */
+    private void startPdfExport(final TransactionQuery query, final File file) {
+        exportPdfButton.setEnabled(false);
+        
+        SwingWorker<StatementRenderer.RenderResult, Void> worker = new SwingWorker<StatementRenderer.RenderResult, Void>() {
+            @Override
+            protected StatementRenderer.RenderResult doInBackground() throws Exception {
+                return new StatementRenderer().render(query.getAccountNo(), query.getFromDate(), 
+                        query.getToDate(), file.toPath());
+            }
+            
+            @Override
+            protected void done() {
+                exportPdfButton.setEnabled(true);
+                try {
+                    StatementRenderer.RenderResult result = get();
+                    JOptionPane.showMessageDialog(TransactionHistory.this, 
+                            "Statement exported successfully to PDF (" + result.getRows() + " transactions, " + 
+                            result.getPages() + " pages).", 
+                            "Export Successful", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    LOGGER.log(Level.SEVERE, "Error exporting to PDF", e);
+                    JOptionPane.showMessageDialog(TransactionHistory.this, "Error exporting to PDF: " + e.getMessage(), 
+                            "Export Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+    }
+    
     /**
      * Reset all filters to default values
      */
@@ -499,6 +456,7 @@ public class TransactionHistory extends JFrame implements ActionListener {
     @Override
     public void actionPerformed(ActionEvent ae) {
         if (ae.getSource() == backButton) {
+            tableModel.dispose();
             setVisible(false);
             new Transactions(pin, accountNo).setVisible(true);
         } else if (ae.getSource() == exportPdfButton) {
@@ -512,35 +470,6 @@ public class TransactionHistory extends JFrame implements ActionListener {
         }
     }
     
-    /**
-     * Helper class to store transaction records for sorting and balance calculation
-     */
-    private class TransactionRecord implements Comparable<TransactionRecord> {
-        private String date;
-        private String description;
-        private String type;
-        private double amount;
-        private String reference;
-        
-        public TransactionRecord(String date, String description, String type, double amount, String reference) {
-            this.date = date;
-            this.description = description;
-            this.type = type;
-            this.amount = amount;
-            this.reference = reference;
-        }
-        
-        /**
-         * Compare transactions by date for sorting (oldest first for balance calculation)
-         * @param other Other transaction record to compare with
-         * @return Comparison result for sorting
-         */
-        @Override
-        public int compareTo(TransactionRecord other) {
-            return this.date.compareTo(other.date);
-        }
-    }
-    
     /**
      * Main method for testing
      * @param args Command line arguments
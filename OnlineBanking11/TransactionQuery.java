@@ -0,0 +1,137 @@
+/*
+ * Online Banking System - Transaction Query
+ */
+package banking.management.system;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filter criteria for an account's ledger rows, rendered as a parameterized
+ * WHERE clause. Shared by the history screen and anything else that walks
+ * the same rows.
+ */
+public class TransactionQuery {
+
+    public static final String ALL_TYPES = "All Types";
+
+    private final String accountNo;
+    private final String fromDate;
+    private final String toDate;
+    private final String type;
+    private final Money amountMin;
+    private final Money amountMax;
+
+    /**
+     * @param accountNo Account number
+     * @param fromDate Inclusive lower bound (yyyy-MM-dd), or null
+     * @param toDate Inclusive upper bound (yyyy-MM-dd HH:mm:ss), or null
+     * @param type Row type, or null / "All Types" for every type
+     * @param amountMin Inclusive minimum amount, or null
+     * @param amountMax Inclusive maximum amount, or null
+     */
+    public TransactionQuery(String accountNo, String fromDate, String toDate, String type,
+                            Money amountMin, Money amountMax) {
+        this.accountNo = accountNo;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.type = ALL_TYPES.equals(type) ? null : type;
+        this.amountMin = amountMin;
+        this.amountMax = amountMax;
+    }
+
+    public String getAccountNo() {
+        return accountNo;
+    }
+
+    public String getFromDate() {
+        return fromDate;
+    }
+
+    public String getToDate() {
+        return toDate;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Money getAmountMin() {
+        return amountMin;
+    }
+
+    public Money getAmountMax() {
+        return amountMax;
+    }
+
+    /**
+     * @return True if a type or amount filter hides some rows of the date window
+     */
+    public boolean filtersRows() {
+        return type != null || amountMin != null || amountMax != null;
+    }
+
+    /**
+     * @return WHERE clause (without the keyword) with one ? per bound value
+     */
+    public String whereClause() {
+        StringBuilder sb = new StringBuilder("Account_No = ?");
+        if (type != null) {
+            sb.append(" AND type = ?");
+        }
+        if (fromDate != null) {
+            sb.append(" AND date >= ?");
+        }
+        if (toDate != null) {
+            sb.append(" AND date <= ?");
+        }
+        if (amountMin != null) {
+            sb.append(" AND ").append(LedgerSchema.AMOUNT_MINOR).append(" >= ?");
+        }
+        if (amountMax != null) {
+            sb.append(" AND ").append(LedgerSchema.AMOUNT_MINOR).append(" <= ?");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return Values for the placeholders of {@link #whereClause()}, in order
+     */
+    public List<Object> parameters() {
+        List<Object> params = new ArrayList<>(6);
+        params.add(accountNo);
+        if (type != null) {
+            params.add(type);
+        }
+        if (fromDate != null) {
+            params.add(fromDate);
+        }
+        if (toDate != null) {
+            params.add(toDate);
+        }
+        if (amountMin != null) {
+            params.add(amountMin.getMinorUnits());
+        }
+        if (amountMax != null) {
+            params.add(amountMax.getMinorUnits());
+        }
+        return params;
+    }
+
+    /**
+     * Binds the filter values starting at the given parameter index
+     * @param ps Statement prepared from SQL containing {@link #whereClause()}
+     * @param startIndex Index of the first placeholder of the clause
+     * @return Index of the next unbound placeholder
+     * @throws SQLException if binding fails
+     */
+    public int bind(PreparedStatement ps, int startIndex) throws SQLException {
+        int i = startIndex;
+        for (Object value : parameters()) {
+            ps.setObject(i++, value);
+        }
+        return i;
+    }
+}
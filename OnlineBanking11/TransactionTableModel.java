@@ -0,0 +1,265 @@
+/*
+ * Online Banking System - Transaction Table Model
+ */
+package banking.management.system;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Lazily loaded table model for the transaction history.
+ * Rows are fetched from {@link HistoryService} a page at a time with keyset
+ * pagination on (date, reference), newest first, on a background thread as the
+ * table asks for them. Only a few
+ * pages are kept in an LRU cache; for every page already visited the model
+ * remembers the keyset cursor and the running balance at its first row, so a
+ * page evicted from the cache is re-fetched with one indexed query and its
+ * Balance column needs no pass over earlier rows.
+ */
+public class TransactionTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = Logger.getLogger(TransactionTableModel.class.getName());
+
+    public static final String[] COLUMNS = {"Date", "Description", "Reference", "Type", "Amount", "Balance"};
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_CACHED_PAGES = 8;
+    private static final String LOADING = "...";
+
+    private final int pageSize;
+    private final HistoryService history;
+    private final Map<Integer, Object[][]> pages;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "transaction-history-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Per visited page: cursor after its last row and balance before its first row
+    private final List<HistoryService.Cursor> boundaries = new ArrayList<>();
+    private TransactionQuery query;
+    private int rowCount;
+    private int generation;
+    private final Set<Integer> pending = new HashSet<>();
+
+    /**
+     * Rows of one page plus the cursor of the page after it
+     */
+    private static class Page {
+        private final Object[][] rows;
+        private final HistoryService.Cursor next;
+
+        Page(Object[][] rows, HistoryService.Cursor next) {
+            this.rows = rows;
+            this.next = next;
+        }
+    }
+
+    public TransactionTableModel() {
+        this(DEFAULT_PAGE_SIZE, DEFAULT_CACHED_PAGES);
+    }
+
+    /**
+     * @param pageSize Rows fetched per query
+     * @param maxCachedPages Pages kept in memory
+     */
+    public TransactionTableModel(int pageSize, final int maxCachedPages) {
+        this(new HistoryService(), pageSize, maxCachedPages);
+    }
+
+    /**
+     * @param history Service the pages are read from
+     * @param pageSize Rows fetched per query
+     * @param maxCachedPages Pages kept in memory
+     */
+    public TransactionTableModel(HistoryService history, int pageSize, final int maxCachedPages) {
+        this.history = history;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<Integer, Object[][]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+                return size() > maxCachedPages;
+            }
+        };
+    }
+
+    /**
+     * Replaces the filter. Runs one aggregate query for the row count and the
+     * net change of the window, adds the opening balance from the latest daily
+     * snapshot before the window, then loads the first page in the background.
+     * With a type or amount filter the Balance column runs over the shown rows only.
+     * Must be called on the event dispatch thread.
+     * @param newQuery Filter to show
+     * @throws SQLException if the aggregate or opening balance query fails
+     */
+    public void load(TransactionQuery newQuery) throws SQLException {
+        if (prepare(newQuery) > 0) {
+            requestPage(0);
+        }
+    }
+
+    /**
+     * Resets the model to a new filter without scheduling any page load
+     * @param newQuery Filter to show
+     * @return Number of matching rows
+     * @throws SQLException if the aggregate or opening balance query fails
+     */
+    int prepare(TransactionQuery newQuery) throws SQLException {
+        HistoryService.Summary summary = history.summarize(newQuery);
+        int count = summary.getRowCount();
+
+        generation++;
+        query = newQuery;
+        rowCount = count;
+        pages.clear();
+        boundaries.clear();
+        boundaries.add(summary.start());
+        pending.clear();
+        fireTableDataChanged();
+        return count;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Object[][] page = pages.get(row / pageSize);
+        if (page == null) {
+            requestPage(row / pageSize);
+            return LOADING;
+        }
+        return page[row % pageSize][column];
+    }
+
+    /**
+     * Returns a row, fetching its page on the calling thread if it is not cached
+     * @param row Row index
+     * @return Cell values of the row
+     * @throws SQLException if the page cannot be fetched
+     */
+    public Object[] getRowValues(int row) throws SQLException {
+        int pageIndex = row / pageSize;
+        Object[][] page = pages.get(pageIndex);
+        if (page == null) {
+            for (int p = Math.min(pageIndex, boundaries.size() - 1); p <= pageIndex; p++) {
+                Page fetched = fetchPage(query, boundaries.get(p));
+                storePage(p, fetched);
+                page = fetched.rows;
+            }
+        }
+        return page[row % pageSize];
+    }
+
+    /**
+     * Stops the background loader
+     */
+    public void dispose() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * Schedules background loading of every page up to the requested one; keyset
+     * pagination needs the cursor of the previous page, so pages are walked in order
+     */
+    private void requestPage(int pageIndex) {
+        if (pending.contains(pageIndex)) {
+            return;
+        }
+
+        final int startPage = Math.min(pageIndex, boundaries.size() - 1);
+        final int endPage = pageIndex;
+        final HistoryService.Cursor start = boundaries.get(startPage);
+        final TransactionQuery currentQuery = query;
+        final int currentGeneration = generation;
+        for (int p = startPage; p <= endPage; p++) {
+            pending.add(p);
+        }
+
+        loader.execute(() -> {
+            HistoryService.Cursor boundary = start;
+            for (int p = startPage; p <= endPage; p++) {
+                final int index = p;
+                try {
+                    final Page page = fetchPage(currentQuery, boundary);
+                    SwingUtilities.invokeLater(() -> {
+                        if (currentGeneration == generation) {
+                            pending.remove(index);
+                            storePage(index, page);
+                            int first = index * pageSize;
+                            fireTableRowsUpdated(first, Math.min(rowCount, first + pageSize) - 1);
+                        }
+                    });
+                    boundary = page.next;
+                } catch (SQLException e) {
+                    LOGGER.log(Level.SEVERE, "Error loading transaction page " + index, e);
+                    SwingUtilities.invokeLater(() -> {
+                        if (currentGeneration == generation) {
+                            for (int q = index; q <= endPage; q++) {
+                                pending.remove(q);
+                            }
+                        }
+                    });
+                    return;
+                }
+            }
+        });
+    }
+
+    private void storePage(int index, Page page) {
+        pages.put(index, page.rows);
+        if (boundaries.size() == index + 1) {
+            boundaries.add(page.next);
+        }
+    }
+
+    /**
+     * Fetches one page after the given cursor and formats its cells
+     */
+    private Page fetchPage(TransactionQuery pageQuery, HistoryService.Cursor cursor) throws SQLException {
+        HistoryService.Page page = history.page(pageQuery, cursor, pageSize);
+        Object[][] rows = new Object[page.getEntries().size()][];
+        int i = 0;
+        for (HistoryService.Entry entry : page.getEntries()) {
+            String description = entry.getDescription();
+            rows[i++] = new Object[]{
+                entry.getDate(),
+                description == null || description.isEmpty() ? "-" : description,
+                entry.getReference() != null ? entry.getReference() : "-",
+                entry.getType(),
+                (entry.isCredit() ? "+" : "-") + "$" + Money.format(entry.getAmount()),
+                "$" + Money.format(entry.getBalance())
+            };
+        }
+        return new Page(rows, page.getNext());
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Online Banking System - Transfer Engine
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Headless fund transfer service. Each transfer runs in one JDBC transaction:
+ * the reference is claimed in transfer_request (idempotency), both account_balance
+ * rows are locked with SELECT ... FOR UPDATE in account-number order (no lock
+ * cycles between opposite transfers), funds are checked against the locked
+ * balance and the debit/credit ledger rows are written before commit.
+ * Instances are stateless and safe to share between threads.
+ */
+public class TransferEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(TransferEngine.class.getName());
+    private static final int MAX_ATTEMPTS = 3;
+
+    static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS transfer_request (" +
+            "reference VARCHAR(64) NOT NULL PRIMARY KEY, " +
+            "from_account VARCHAR(30) NOT NULL, " +
+            "to_account VARCHAR(30) NOT NULL, " +
+            "amount DECIMAL(19,2) NOT NULL, " +
+            "created_at TIMESTAMP NOT NULL)";
+
+    private final LatencyHistogram transferLatency = new LatencyHistogram("transfer.latency");
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    /**
+     * Outcome of a transfer attempt
+     */
+    public enum Status {
+        COMPLETED, DUPLICATE, INSUFFICIENT_FUNDS, INVALID, FAILED
+    }
+
+    /**
+     * A transfer to execute. The reference doubles as the idempotency key, so a
+     * caller that retries must reuse the same request.
+     */
+    public static class TransferRequest {
+        private final String pin;
+        private final String fromAccount;
+        private final String toAccount;
+        private final Money amount;
+        private final String description;
+        private final String reference;
+
+        public TransferRequest(String pin, String fromAccount, String toAccount, Money amount,
+                               String description, String reference) {
+            this.pin = pin;
+            this.fromAccount = fromAccount;
+            this.toAccount = toAccount;
+            this.amount = amount;
+            this.description = description == null ? "" : description;
+            this.reference = reference;
+        }
+
+        public String getPin() {
+            return pin;
+        }
+
+        public String getFromAccount() {
+            return fromAccount;
+        }
+
+        public String getToAccount() {
+            return toAccount;
+        }
+
+        public Money getAmount() {
+            return amount;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public String getReference() {
+            return reference;
+        }
+    }
+
+    /**
+     * Result of a transfer
+     */
+    public static class TransferResult {
+        private final Status status;
+        private final String reference;
+        private final String timestamp;
+        private final Money sourceBalance;
+        private final String message;
+
+        TransferResult(Status status, String reference, String timestamp, Money sourceBalance, String message) {
+            this.status = status;
+            this.reference = reference;
+            this.timestamp = timestamp;
+            this.sourceBalance = sourceBalance;
+            this.message = message;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public boolean isSuccess() {
+            return status == Status.COMPLETED;
+        }
+
+        public String getReference() {
+            return reference;
+        }
+
+        public String getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @return Source account balance after the transfer (or at the time it was rejected)
+         */
+        public Money getSourceBalance() {
+            return sourceBalance;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * Generates a unique transaction reference
+     * @return Unique transaction reference string
+     */
+    public static String newReference() {
+        return "TXN" + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+
+    /**
+     * Creates the idempotency table if it does not exist yet
+     * @param connection Open database connection
+     * @throws SQLException if the DDL fails
+     */
+    public static void ensureTable(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate(CREATE_TABLE);
+        }
+    }
+
+    /**
+     * Executes a transfer atomically, retrying on deadlock or serialization failure
+     * @param request Transfer to execute
+     * @return Transfer result; never throws for business or database failures
+     */
+    public TransferResult transfer(TransferRequest request) {
+        String invalid = validate(request);
+        if (invalid != null) {
+            rejected.increment();
+            return new TransferResult(Status.INVALID, request.getReference(), null, Money.ZERO, invalid);
+        }
+
+        long start = System.nanoTime();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try (Connection connection = ConnectionPool.borrow()) {
+                    return execute(connection, request);
+                } catch (SQLTransactionRollbackException e) {
+                    if (attempt >= MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                    retries.increment();
+                    LOGGER.log(Level.FINE, "Retrying transfer " + request.getReference() + " after rollback", e);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Transfer failed: " + request.getReference(), e);
+            return new TransferResult(Status.FAILED, request.getReference(), null, Money.ZERO, "Transfer failed: " + e.getMessage());
+        } finally {
+            transferLatency.recordSince(start);
+        }
+    }
+
+    /**
+     * Runs one transfer attempt on the given connection
+     * @param connection Borrowed connection
+     * @param request Transfer to execute
+     * @return Transfer result
+     * @throws SQLException if the transaction fails and must be retried or reported
+     */
+    TransferResult execute(Connection connection, TransferRequest request) throws SQLException {
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+
+        // Seed balance rows outside the transaction so the FOR UPDATE below always finds them
+        AccountBalanceStore.getBalance(connection, request.getFromAccount());
+        AccountBalanceStore.getBalance(connection, request.getToAccount());
+
+        connection.setAutoCommit(false);
+        try {
+            if (!claimReference(connection, request, timestamp)) {
+                connection.rollback();
+                duplicates.increment();
+                return new TransferResult(Status.DUPLICATE, request.getReference(), null, Money.ZERO,
+                        "Transfer " + request.getReference() + " was already processed");
+            }
+
+            Money sourceBalance = lockBalances(connection, request.getFromAccount(), request.getToAccount());
+            if (request.getAmount().isGreaterThan(sourceBalance)) {
+                connection.rollback();
+                rejected.increment();
+                return new TransferResult(Status.INSUFFICIENT_FUNDS, request.getReference(), null, sourceBalance,
+                        "Insufficient funds");
+            }
+
+            LedgerWriter.append(connection, request.getFromAccount(), timestamp, "Transfer-Out",
+                    request.getAmount(), request.getDescription(), request.getReference());
+            LedgerWriter.append(connection, request.getToAccount(), timestamp, "Transfer-In",
+                    request.getAmount(), request.getDescription(), request.getReference());
+
+            connection.commit();
+            completed.increment();
+            return new TransferResult(Status.COMPLETED, request.getReference(), timestamp,
+                    sourceBalance.minus(request.getAmount()), "Transfer completed");
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    public LatencyHistogram getTransferLatency() {
+        return transferLatency;
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * Checks a request for problems that do not need the database
+     * @param request Transfer request
+     * @return Error message, or null if the request is well formed
+     */
+    static String validate(TransferRequest request) {
+        if (request.getReference() == null || request.getReference().isEmpty()) {
+            return "Missing transaction reference";
+        }
+        if (request.getFromAccount() == null || request.getToAccount() == null
+                || request.getToAccount().trim().isEmpty()) {
+            return "Invalid account number";
+        }
+        if (request.getFromAccount().equals(request.getToAccount())) {
+            return "Source and destination accounts cannot be the same";
+        }
+        if (request.getAmount() == null || !request.getAmount().isPositive()) {
+            return "Please enter a valid amount";
+        }
+        return null;
+    }
+
+    /**
+     * Inserts the reference into transfer_request; a concurrent duplicate blocks on
+     * the key until the first transaction ends and then fails the insert
+     * @return false if the reference was already used
+     */
+    private boolean claimReference(Connection connection, TransferRequest request, String timestamp) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO transfer_request (reference, from_account, to_account, amount, created_at) VALUES (?, ?, ?, ?, ?)")) {
+            ps.setString(1, request.getReference());
+            ps.setString(2, request.getFromAccount());
+            ps.setString(3, request.getToAccount());
+            ps.setBigDecimal(4, request.getAmount().toBigDecimal());
+            ps.setString(5, timestamp);
+            ps.executeUpdate();
+            return true;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Locks both balance rows in ascending account order
+     * @return Locked balance of the source account
+     */
+    static Money lockBalances(Connection connection, String fromAccount, String toAccount) throws SQLException {
+        String first = fromAccount.compareTo(toAccount) < 0 ? fromAccount : toAccount;
+        String second = first.equals(fromAccount) ? toAccount : fromAccount;
+
+        Money firstBalance = lockBalance(connection, first);
+        Money secondBalance = lockBalance(connection, second);
+        return first.equals(fromAccount) ? firstBalance : secondBalance;
+    }
+
+    /**
+     * Locks one account_balance row for the rest of the transaction
+     * @return Locked balance
+     */
+    static Money lockBalance(Connection connection, String accountNo) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT balance FROM account_balance WHERE Account_No = ? FOR UPDATE")) {
+            ps.setString(1, accountNo);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("No balance row for account " + accountNo);
+                }
+                return Money.of(rs.getBigDecimal(1));
+            }
+        }
+    }
+}
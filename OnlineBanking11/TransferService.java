@@ -0,0 +1,113 @@
+/*
+ * Online Banking System - Transfer Service
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Headless fund transfers between accounts, shared by the Swing screens and
+ * the HTTP API. Transfers run through {@link TransferEngine}; this class adds
+ * what used to live in the transfer screen: the destination list, and the
+ * balance-cache invalidation and LedgerEventBus publication of both ledger
+ * rows. Safe to share between threads.
+ */
+public class TransferService {
+
+    private final TransferEngine engine;
+    private final JournalLedger journal;
+
+    public TransferService() {
+        this(new TransferEngine());
+    }
+
+    /**
+     * @param engine Engine that executes the transfers; the journal and outbox relay come from system properties
+     */
+    public TransferService(TransferEngine engine) {
+        this(engine, JournalLedger.fromSystemProperties());
+        OutboxRelay.startFromSystemProperties();
+    }
+
+    /**
+     * @param engine Engine that executes the transfers on the SQL ledger
+     * @param journal Journal ledger that executes them instead, or null
+     */
+    public TransferService(TransferEngine engine, JournalLedger journal) {
+        this.engine = engine;
+        this.journal = journal;
+    }
+
+    /**
+     * Executes a transfer
+     * @param pin PIN recorded on the debit row, empty for API callers
+     * @param fromAccount Source account
+     * @param toAccount Destination account
+     * @param amount Amount to move
+     * @param description Free-text description, may be null
+     * @param reference Idempotency key; a retry must reuse it
+     * @return Transfer result; never throws for business or database failures
+     */
+    public TransferEngine.TransferResult transfer(String pin, String fromAccount, String toAccount, Money amount,
+                                                  String description, String reference) {
+        TransferEngine.TransferRequest request =
+                new TransferEngine.TransferRequest(pin, fromAccount, toAccount, amount, description, reference);
+        TransferEngine.TransferResult result = journal != null ? journal.transfer(request) : engine.transfer(request);
+        if (result.isSuccess()) {
+            publish(request, result);
+        }
+        return result;
+    }
+
+    /**
+     * Drops the cached balances of both accounts of a completed transfer and
+     * publishes both ledger rows to LedgerEventBus
+     * @param request Completed transfer
+     * @param result Its result, with the source balance after the debit
+     */
+    static void publish(TransferEngine.TransferRequest request, TransferEngine.TransferResult result) {
+        AccountService.invalidateBalance(request.getFromAccount());
+        AccountService.invalidateBalance(request.getToAccount());
+        LedgerEventBus bus = LedgerEventBus.getInstance();
+        long amount = request.getAmount().getMinorUnits();
+        bus.publish("Transfer-Out", request.getFromAccount(), amount, result.getSourceBalance().getMinorUnits(),
+                request.getReference(), result.getTimestamp());
+        bus.publish("Transfer-In", request.getToAccount(), amount, LedgerEvent.UNKNOWN_BALANCE,
+                request.getReference(), result.getTimestamp());
+    }
+
+    /**
+     * @param accountNo Account the transfer starts from
+     * @return Other accounts that can receive a transfer
+     * @throws SQLException if the lookup fails
+     */
+    public List<String> destinationAccounts(String accountNo) throws SQLException {
+        List<String> accounts = new ArrayList<>();
+        try (Connection connection = ConnectionPool.borrow();
+             PreparedStatement ps = connection.prepareStatement("SELECT DISTINCT Account_No FROM login WHERE Account_No != ?")) {
+            ps.setString(1, accountNo);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    accounts.add(rs.getString("Account_No"));
+                }
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * @return A new unique transfer reference
+     */
+    public String newReference() {
+        return TransferEngine.newReference();
+    }
+
+    public TransferEngine getEngine() {
+        return engine;
+    }
+}
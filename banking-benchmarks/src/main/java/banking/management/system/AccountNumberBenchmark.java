@@ -0,0 +1,73 @@
+/*
+ * Online Banking System - Account Number Benchmark
+ */
+package banking.management.system;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Number allocation during an onboarding burst: eight threads drawing account
+ * numbers (sequence value, formatting and check digit), form numbers and
+ * PINs at once. blockSize 1 is a database round trip per number, as a plain
+ * sequence table would be; larger blocks show the hi/lo path, where almost
+ * every call is one atomic increment.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class AccountNumberBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int blockSize;
+
+    private SequenceAllocator accounts;
+    private SequenceAllocator forms;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        EmbeddedBank.start();
+        accounts = new SequenceAllocator("bench_account_" + blockSize, blockSize, 0);
+        forms = new SequenceAllocator("bench_form_" + blockSize, blockSize, AccountNumbers.FIRST_FORM_NUMBER);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println(accounts);
+        System.out.println(forms);
+    }
+
+    @Benchmark
+    public String accountNumber() throws SQLException {
+        // Wrap so long runs stay inside the eight-digit sequence range
+        return AccountNumbers.accountNumber("35407", accounts.next() % 100_000_000L);
+    }
+
+    @Benchmark
+    public long formNumber() throws SQLException {
+        return forms.next();
+    }
+
+    @Benchmark
+    public String pin() {
+        return AccountNumbers.newPin();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Online Banking System - Balance Benchmark
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Balance lookup as the screens and the API do it (one primary key read of
+ * account_balance) against recomputing it from the ledger, which is what every
+ * lookup cost before the running balance existed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BalanceBenchmark {
+
+    private AccountService accounts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        EmbeddedBank.start();
+        accounts = new AccountService();
+    }
+
+    @Benchmark
+    public Money runningBalance() throws SQLException {
+        return accounts.getBalance(randomAccount());
+    }
+
+    @Benchmark
+    public Money ledgerSum() throws SQLException {
+        try (Connection connection = ConnectionPool.borrow()) {
+            return AccountBalanceStore.computeFromLedger(connection, randomAccount());
+        }
+    }
+
+    private static String randomAccount() {
+        return EmbeddedBank.account(ThreadLocalRandom.current().nextInt(EmbeddedBank.ACCOUNTS));
+    }
+}
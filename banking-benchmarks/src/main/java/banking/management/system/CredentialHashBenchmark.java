@@ -0,0 +1,69 @@
+/*
+ * Online Banking System - Credential Hash Benchmark
+ */
+package banking.management.system;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Credential verification cost, for choosing the PBKDF2 iteration count
+ * against a latency budget. verify and verifyRejected time a single check on
+ * one thread; loginStorm verifies on every core at once, which shows how many
+ * logins per second the machine sustains at that cost. The count
+ * CredentialStore would calibrate to on this machine is printed at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CredentialHashBenchmark {
+
+    private static final String PIN = "482913";
+
+    @Param({"100000", "200000", "400000", "600000"})
+    public int iterations;
+
+    private String stored;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stored = CredentialStore.hash(PIN, iterations);
+        System.out.printf("calibrated for %d ms: %,d iterations (in use: %,d)%n",
+                CredentialStore.DEFAULT_TARGET_MILLIS,
+                CredentialStore.calibrate(CredentialStore.DEFAULT_TARGET_MILLIS),
+                CredentialStore.getIterations());
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return CredentialStore.verify(PIN, stored);
+    }
+
+    @Benchmark
+    public boolean verifyRejected() {
+        return CredentialStore.verify("000000", stored);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(Threads.MAX)
+    public boolean loginStorm() {
+        return CredentialStore.verify(PIN, stored);
+    }
+}
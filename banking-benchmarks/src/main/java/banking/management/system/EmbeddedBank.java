@@ -0,0 +1,163 @@
+/*
+ * Online Banking System - Embedded Bank
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * In-memory H2 database in MySQL mode with the banking schema and a seeded
+ * ledger, for the JMH benchmarks. The shared ConnectionPool is pointed at it
+ * through banking.db.url, so the code under test runs unchanged. JMH forks a
+ * fresh JVM per benchmark, so each benchmark seeds its own copy.
+ *
+ * Settings: banking.bench.accounts (default 1000),
+ * banking.bench.rowsPerAccount (200), banking.bench.days (90).
+ */
+public final class EmbeddedBank {
+
+    public static final int ACCOUNTS = Integer.getInteger("banking.bench.accounts", 1_000);
+    public static final int ROWS_PER_ACCOUNT = Integer.getInteger("banking.bench.rowsPerAccount", 200);
+    public static final int DAYS = Integer.getInteger("banking.bench.days", 90);
+    public static final String PIN = "4829";
+
+    private static final String[] TYPES = {"Deposit", "Withdrawal", "Transfer-In", "Transfer-Out"};
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS login (Account_No VARCHAR(30) NOT NULL PRIMARY KEY, " +
+            "Login_Password VARCHAR(255) NOT NULL, user_type VARCHAR(10), form_no VARCHAR(30))",
+        "CREATE TABLE IF NOT EXISTS bank (Login_Password VARCHAR(255), Account_No VARCHAR(30) NOT NULL, " +
+            "date VARCHAR(30) NOT NULL, type VARCHAR(20) NOT NULL, amount VARCHAR(30) NOT NULL, " +
+            "description VARCHAR(255), reference VARCHAR(64))",
+        "CREATE TABLE IF NOT EXISTS signup1 (form_no VARCHAR(30) NOT NULL PRIMARY KEY, email VARCHAR(100))",
+        "CREATE TABLE IF NOT EXISTS user_contact (account_no VARCHAR(30) NOT NULL PRIMARY KEY, phone_number VARCHAR(20))",
+        "CREATE TABLE IF NOT EXISTS notification_preferences (account_no VARCHAR(30) NOT NULL PRIMARY KEY, " +
+            "enable_large_txn BOOLEAN, large_txn_threshold DOUBLE, enable_failed_login BOOLEAN, " +
+            "failed_login_threshold INT, enable_low_balance BOOLEAN, low_balance_threshold DOUBLE, " +
+            "enable_successful_login BOOLEAN, enable_sms BOOLEAN, enable_email BOOLEAN, " +
+            "enable_app_notifications BOOLEAN)",
+        "CREATE TABLE IF NOT EXISTS app_notifications (id INT AUTO_INCREMENT PRIMARY KEY, account_no VARCHAR(30), " +
+            "notification_type VARCHAR(40), message VARCHAR(1000), timestamp TIMESTAMP, is_read BOOLEAN)",
+        "CREATE TABLE IF NOT EXISTS login_activity (account_no VARCHAR(30), login_time TIMESTAMP, " +
+            "success BOOLEAN, ip_address VARCHAR(45))",
+        "CREATE TABLE IF NOT EXISTS security_audit (account_no VARCHAR(30), action VARCHAR(60), " +
+            "details VARCHAR(255), success BOOLEAN, timestamp TIMESTAMP)",
+        "CREATE TABLE IF NOT EXISTS notification_log (account_no VARCHAR(30), notification_type VARCHAR(40), " +
+            "message VARCHAR(1000), success BOOLEAN, timestamp TIMESTAMP)"
+    };
+
+    private static boolean started;
+
+    private EmbeddedBank() {
+    }
+
+    /**
+     * Creates and seeds the database once per JVM
+     * @throws SQLException if the schema or seed fails
+     */
+    public static synchronized void start() throws SQLException {
+        if (started) {
+            return;
+        }
+        System.setProperty("banking.db.url", "jdbc:h2:mem:bank;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        System.setProperty("banking.db.user", "sa");
+        if (System.getProperty("banking.pool.maxSize") == null) {
+            System.setProperty("banking.pool.maxSize", "32");
+        }
+
+        try (Connection connection = ConnectionPool.borrow()) {
+            try (Statement st = connection.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    st.executeUpdate(ddl);
+                }
+            }
+            LedgerSchema.ensureIndexes(connection);
+            LedgerSchema.ensureAmountColumn(connection);
+            AccountBalanceStore.ensureTable(connection);
+            TransferEngine.ensureTable(connection);
+            BalanceSnapshotStore.ensureTable(connection);
+            NotificationDispatcher.ensureTable(connection);
+            NotificationOutbox.ensureTable(connection);
+            seed(connection);
+            BalanceSnapshotStore.buildThrough(connection, LocalDateTime.now().toLocalDate().minusDays(1));
+        }
+        started = true;
+    }
+
+    /**
+     * @param index Account index, 0 to ACCOUNTS - 1
+     * @return Account number of the seeded account
+     */
+    public static String account(int index) {
+        return String.format("BENCH%09d", index);
+    }
+
+    private static void seed(Connection connection) throws SQLException {
+        String hash = CredentialStore.hash(PIN, CredentialStore.MIN_ITERATIONS);
+        LocalDateTime now = LocalDateTime.now();
+        long stepSeconds = DAYS * 86_400L / Math.max(1, ROWS_PER_ACCOUNT);
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement login = connection.prepareStatement(
+                     "INSERT INTO login (Account_No, Login_Password, user_type, form_no) VALUES (?, ?, 'USER', ?)");
+             PreparedStatement signup = connection.prepareStatement(
+                     "INSERT INTO signup1 (form_no, email) VALUES (?, ?)");
+             PreparedStatement contact = connection.prepareStatement(
+                     "INSERT INTO user_contact (account_no, phone_number) VALUES (?, ?)");
+             PreparedStatement ledger = connection.prepareStatement(
+                     "INSERT INTO bank (Login_Password, Account_No, date, type, amount, amount_minor, description, reference) " +
+                     "VALUES ('', ?, ?, ?, ?, ?, 'seed', ?)")) {
+            for (int a = 0; a < ACCOUNTS; a++) {
+                String accountNo = account(a);
+                login.setString(1, accountNo);
+                login.setString(2, hash);
+                login.setString(3, "F" + a);
+                login.addBatch();
+                signup.setString(1, "F" + a);
+                signup.setString(2, "user" + a + "@example.com");
+                signup.addBatch();
+                contact.setString(1, accountNo);
+                contact.setString(2, String.format("98%08d", a));
+                contact.addBatch();
+
+                // An opening deposit large enough that seeded debits and benchmark transfers never run dry
+                for (int r = 0; r < ROWS_PER_ACCOUNT; r++) {
+                    String type = r == 0 ? "Deposit" : TYPES[(a + r) % TYPES.length];
+                    Money amount = Money.ofMinor(r == 0 ? 100_000_000L : (1_000 + (a * 31L + r * 37L) % 99_000));
+                    ledger.setString(1, accountNo);
+                    ledger.setString(2, now.minusSeconds((ROWS_PER_ACCOUNT - r) * stepSeconds).format(TIMESTAMP));
+                    ledger.setString(3, type);
+                    ledger.setString(4, amount.toString());
+                    ledger.setLong(5, amount.getMinorUnits());
+                    ledger.setString(6, String.format("SEED%09d%06d", a, r));
+                    ledger.addBatch();
+                }
+                if (a % 50 == 49) {
+                    login.executeBatch();
+                    signup.executeBatch();
+                    contact.executeBatch();
+                    ledger.executeBatch();
+                }
+            }
+            login.executeBatch();
+            signup.executeBatch();
+            contact.executeBatch();
+            ledger.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate("INSERT INTO account_balance (Account_No, balance, updated_at) " +
+                             "SELECT Account_No, CAST(SUM(" + LedgerSchema.SIGNED_AMOUNT_MINOR + ") AS DECIMAL(19, 2)) / 100, NOW() " +
+                             "FROM bank GROUP BY Account_No");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Online Banking System - History Benchmark
+ */
+package banking.management.system;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transaction history for one account over the last windowDays days: the
+ * summary plus first page the API serves, and the same filter driven through
+ * TransactionTableModel up to the last row, the way the history screen builds
+ * its table when the user scrolls to the end.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HistoryBenchmark {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Param({"30"})
+    public int windowDays;
+
+    @Param({"100"})
+    public int pageSize;
+
+    private HistoryService history;
+    private TransactionTableModel model;
+    private String fromDate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        EmbeddedBank.start();
+        history = new HistoryService();
+        model = new TransactionTableModel(history, pageSize, TransactionTableModel.DEFAULT_CACHED_PAGES);
+        fromDate = LocalDateTime.now().minusDays(windowDays).format(TIMESTAMP);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        model.dispose();
+        System.out.println(history.getPageLatency());
+    }
+
+    @Benchmark
+    public HistoryService.Page firstPage() throws SQLException {
+        TransactionQuery query = randomQuery();
+        return history.page(query, history.summarize(query).start(), pageSize);
+    }
+
+    @Benchmark
+    public Object[] buildTable() throws SQLException {
+        int rows = model.prepare(randomQuery());
+        return rows == 0 ? null : model.getRowValues(rows - 1);
+    }
+
+    private TransactionQuery randomQuery() {
+        String accountNo = EmbeddedBank.account(ThreadLocalRandom.current().nextInt(EmbeddedBank.ACCOUNTS));
+        return new TransactionQuery(accountNo, fromDate, null, TransactionQuery.ALL_TYPES, null, null);
+    }
+}
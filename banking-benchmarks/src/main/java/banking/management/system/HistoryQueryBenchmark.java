@@ -0,0 +1,114 @@
+/*
+ * Online Banking System - History Query Benchmark
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The transaction history query (aggregate and first page) on one account
+ * whose total history grows. The account gets historyRows rows at a constant
+ * rate per day, so the six-month window always holds about the same number
+ * of rows; with the ledger indexes in place the query time should stay flat
+ * as historyRows grows. Larger histories can be run with -p historyRows=1000000.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryQueryBenchmark {
+
+    private static final String ACCOUNT = "BENCHHISTORY01";
+    private static final int ROWS_PER_DAY = 20;
+    private static final String[] TYPES = {"Deposit", "Withdrawal", "Transfer-In", "Transfer-Out"};
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Param({"10000", "50000", "200000"})
+    public int historyRows;
+
+    @Param({"window", "type", "amount"})
+    public String filter;
+
+    private TransactionQuery query;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        EmbeddedBank.start();
+        LocalDateTime now = LocalDateTime.now();
+        seed(now);
+
+        String fromDate = now.minusDays(182).toLocalDate() + " 00:00:00";
+        String toDate = now.toLocalDate() + " 23:59:59";
+        switch (filter) {
+            case "type":
+                query = new TransactionQuery(ACCOUNT, fromDate, toDate, "Transfer-Out", null, null);
+                break;
+            case "amount":
+                query = new TransactionQuery(ACCOUNT, fromDate, toDate, null, Money.ofMinor(10_000), Money.ofMinor(50_000));
+                break;
+            default:
+                query = new TransactionQuery(ACCOUNT, fromDate, toDate, null, null, null);
+        }
+    }
+
+    @Benchmark
+    public Object[] firstPage() throws SQLException {
+        TransactionTableModel model = new TransactionTableModel();
+        try {
+            return model.prepare(query) == 0 ? null : model.getRowValues(0);
+        } finally {
+            model.dispose();
+        }
+    }
+
+    /**
+     * Adds historyRows rows to the benchmark account; row i is i / ROWS_PER_DAY days old
+     */
+    private void seed(LocalDateTime now) throws SQLException {
+        long stepSeconds = 86_400L / ROWS_PER_DAY;
+        try (Connection connection = ConnectionPool.borrow();
+             PreparedStatement ps = connection.prepareStatement(
+                     "INSERT INTO bank (Login_Password, Account_No, date, type, amount, amount_minor, description, reference) " +
+                     "VALUES ('', ?, ?, ?, ?, ?, 'benchmark', ?)")) {
+            connection.setAutoCommit(false);
+            try {
+                for (int i = 0; i < historyRows; i++) {
+                    Money amount = Money.ofMinor((10 + (i * 37) % 990) * 100L);
+                    ps.setString(1, ACCOUNT);
+                    ps.setString(2, now.minusSeconds(i * stepSeconds).format(TIMESTAMP));
+                    ps.setString(3, TYPES[i % TYPES.length]);
+                    ps.setString(4, amount.toString());
+                    ps.setLong(5, amount.getMinorUnits());
+                    ps.setString(6, String.format("HIST%010d", i));
+                    ps.addBatch();
+                    if (i % 5_000 == 4_999) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+                connection.commit();
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+}
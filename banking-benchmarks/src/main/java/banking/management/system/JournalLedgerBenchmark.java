@@ -0,0 +1,94 @@
+/*
+ * Online Banking System - Journal Ledger Benchmark
+ */
+package banking.management.system;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Deposits, transfers and balance reads with banking.ledger.mode=journal, for
+ * comparison with BalanceBenchmark and TransferBenchmark on the SQL ledger.
+ * The journal lives in a fresh temporary directory. Every seeded account is
+ * opened before measuring, so the one-time SQL read of each account is left out.
+ * With forceEachAppend=true every write waits for its record to reach the disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalLedgerBenchmark {
+
+    private static final Money AMOUNT = Money.ofMinor(1_250);
+
+    @Param({"false"})
+    public boolean forceEachAppend;
+
+    private AccountService accounts;
+    private TransferService transfers;
+    private JournalLedger ledger;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        System.setProperty("banking.ledger.mode", "journal");
+        System.setProperty("banking.journal.dir", Files.createTempDirectory("ledger-journal").toString());
+        System.setProperty("banking.journal.forceEachAppend", String.valueOf(forceEachAppend));
+        EmbeddedBank.start();
+        ledger = JournalLedger.getInstance();
+        accounts = new AccountService(ledger);
+        transfers = new TransferService(new TransferEngine(), ledger);
+        for (int i = 0; i < EmbeddedBank.ACCOUNTS; i++) {
+            accounts.getBalance(EmbeddedBank.account(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println(ledger);
+    }
+
+    @Benchmark
+    public Money balance() throws SQLException {
+        return accounts.getBalance(randomAccount());
+    }
+
+    @Benchmark
+    public String deposit() throws SQLException {
+        return accounts.deposit(EmbeddedBank.PIN, randomAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    public boolean transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(EmbeddedBank.ACCOUNTS);
+        int to = (from + 1 + random.nextInt(EmbeddedBank.ACCOUNTS - 1)) % EmbeddedBank.ACCOUNTS;
+        TransferEngine.TransferResult result = transfers.transfer(EmbeddedBank.PIN, EmbeddedBank.account(from),
+                EmbeddedBank.account(to), AMOUNT, "benchmark", transfers.newReference());
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("Transfer failed: " + result.getMessage());
+        }
+        return result.isSuccess();
+    }
+
+    private static String randomAccount() {
+        return EmbeddedBank.account(ThreadLocalRandom.current().nextInt(EmbeddedBank.ACCOUNTS));
+    }
+}
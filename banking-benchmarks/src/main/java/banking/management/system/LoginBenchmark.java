@@ -0,0 +1,95 @@
+/*
+ * Online Banking System - Login Benchmark
+ */
+package banking.management.system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The login path before and after authenticate(). legacyLogin replays the old
+ * path as it ran: a SELECT * for the login, a synchronous login_activity
+ * INSERT, then a second SELECT * for the admin check, each lookup verifying
+ * the PIN. authenticate is LoginModel.authenticate(): one narrow query that
+ * returns the role, and an audit row handed to the background writer.
+ *
+ * The seeded PINs are hashed at the minimum cost, which still dominates both
+ * paths; CredentialHashBenchmark gives the hash share on its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoginBenchmark {
+
+    private LoginModel model;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        EmbeddedBank.start();
+        model = new LoginModel();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        AuditAppender.getInstance().shutdown(5_000);
+        System.out.println(AuditAppender.getInstance());
+    }
+
+    @Benchmark
+    public boolean authenticate() {
+        return model.authenticate(randomAccount(), EmbeddedBank.PIN).isAdmin();
+    }
+
+    @Benchmark
+    public boolean legacyLogin() throws SQLException {
+        String accountNo = randomAccount();
+        boolean loggedIn;
+        try (Connection connection = ConnectionPool.borrow()) {
+            try (PreparedStatement ps = connection.prepareStatement("SELECT * FROM login WHERE Account_No=?")) {
+                ps.setString(1, accountNo);
+                try (ResultSet rs = ps.executeQuery()) {
+                    loggedIn = rs.next() && CredentialStore.verify(EmbeddedBank.PIN, rs.getString("Login_Password"));
+                }
+            }
+        }
+        try (Connection connection = ConnectionPool.borrow();
+             PreparedStatement ps = connection.prepareStatement(
+                     "INSERT INTO login_activity (account_no, login_time, success, ip_address) VALUES (?, NOW(), ?, ?)")) {
+            ps.setString(1, accountNo);
+            ps.setBoolean(2, loggedIn);
+            ps.setString(3, null);
+            ps.executeUpdate();
+        }
+        try (Connection connection = ConnectionPool.borrow();
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT * FROM login WHERE Account_No=? AND user_type='ADMIN'")) {
+            ps.setString(1, accountNo);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && CredentialStore.verify(EmbeddedBank.PIN, rs.getString("Login_Password"));
+            }
+        }
+    }
+
+    private static String randomAccount() {
+        return EmbeddedBank.account(ThreadLocalRandom.current().nextInt(EmbeddedBank.ACCOUNTS));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Online Banking System - Notification Benchmark
+ */
+package banking.management.system;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * What a caller pays for NotificationService.sendNotification: copying the
+ * parameters and handing the task to the dispatcher intake queue. Resolution
+ * and delivery run on the dispatcher threads; their latencies and any rejected
+ * intake are printed from the dispatcher metrics at the end of the trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NotificationBenchmark {
+
+    private NotificationService notifications;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        EmbeddedBank.start();
+        notifications = new NotificationService();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println(NotificationDispatcher.getInstance().metricsSummary());
+        System.out.println(NotificationService.cacheMetricsSummary());
+    }
+
+    @Benchmark
+    public boolean sendNotification() {
+        String accountNo = EmbeddedBank.account(ThreadLocalRandom.current().nextInt(EmbeddedBank.ACCOUNTS));
+        Map<String, Object> params = new HashMap<>();
+        params.put("amount", 2_500.0);
+        params.put("accountNo", accountNo);
+        params.put("type", "Transfer-Out");
+        return notifications.sendNotification(accountNo, NotificationService.NOTIFY_LARGE_TRANSACTION, params);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Online Banking System - Security Benchmark
+ */
+package banking.management.system;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * OTP issue and check. generateOtp covers the secure random draw, the store
+ * write, the contact lookup for delivery and the audit row handed to the
+ * background appender. SecurityManager never hands the code back, so the
+ * accepted path is measured on the same OtpStore backend directly and the
+ * SecurityManager path is measured with a wrong code.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecurityBenchmark {
+
+    private SecurityManager security;
+    private OtpStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        EmbeddedBank.start();
+        security = new SecurityManager();
+        store = OtpStore.fromSystemProperties(TimeUnit.MINUTES.toMillis(5));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public boolean generateOtpSms() {
+        return security.generateOtp(randomAccount(), "SMS");
+    }
+
+    @Benchmark
+    public boolean generateOtpEmail() {
+        return security.generateOtp(randomAccount(), "EMAIL");
+    }
+
+    @Benchmark
+    public boolean verifyOtpRejected() {
+        String accountNo = randomAccount();
+        security.generateOtp(accountNo, "SMS");
+        return security.verifyOtp(accountNo, "not-an-otp");
+    }
+
+    @Benchmark
+    public boolean otpStoreRoundTrip() {
+        String accountNo = randomAccount();
+        String otp = String.format("%06d", ThreadLocalRandom.current().nextInt(1_000_000));
+        store.put(accountNo, otp);
+        return store.consume(accountNo, otp);
+    }
+
+    private static String randomAccount() {
+        return EmbeddedBank.account(ThreadLocalRandom.current().nextInt(EmbeddedBank.ACCOUNTS));
+    }
+}
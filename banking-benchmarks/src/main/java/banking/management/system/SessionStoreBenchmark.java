@@ -0,0 +1,108 @@
+/*
+ * Online Banking System - Session Store Benchmark
+ */
+package banking.management.system;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The session store under a large number of concurrent sessions, on every
+ * core at once. The store is filled with one session per key before the run
+ * and the heap per session is printed; the benchmarks then create and touch
+ * sessions at random while the expiry wheel removes idle ones. The live and
+ * expired-per-second gauges are printed after every iteration and once more
+ * after the sessions are left idle, which shows that memory stays bounded.
+ * Run with a fixed heap, e.g. -jvmArgs -Xmx1g, to see the bound.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class SessionStoreBenchmark {
+
+    private static final long TICK_MILLIS = 100;
+    private static final int WHEEL_SIZE = 512;
+
+    @Param({"1000000"})
+    public int sessions;
+
+    @Param({"5"})
+    public int ttlSeconds;
+
+    private String[] keys;
+    private ExpiringMap<String, String> store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        keys = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            keys[i] = String.format("%014d", i);
+        }
+        long baseline = usedHeap();
+        store = new ExpiringMap<>("bench.sessions", TimeUnit.SECONDS.toMillis(ttlSeconds), TICK_MILLIS, WHEEL_SIZE);
+        for (String key : keys) {
+            store.put(key, key);
+        }
+        long full = usedHeap();
+        System.out.printf("%,d sessions, heap %,d MB, %.0f bytes/session%n", store.size(),
+                (full - baseline) >> 20, (double) (full - baseline) / Math.max(1, store.size()));
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        System.out.println(store);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        // Leave the sessions idle and let the wheel expire them
+        long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds * 3L + 10);
+        while (store.size() > 0 && System.nanoTime() < until) {
+            Thread.sleep(1_000);
+        }
+        System.out.println("after idle: " + store);
+        store.close();
+    }
+
+    @Benchmark
+    public void createSession() {
+        String key = randomKey();
+        store.put(key, key);
+    }
+
+    @Benchmark
+    public String touchSession() {
+        return store.touch(randomKey());
+    }
+
+    private String randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(sessions)];
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Online Banking System - Transfer Benchmark
+ */
+package banking.management.system;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transfers between random seeded accounts through TransferService: the
+ * idempotency insert, both row locks, two ledger rows and both running
+ * balances in one transaction. Run with more threads (-t) to see lock
+ * contention between transfers that share an account.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class TransferBenchmark {
+
+    private static final Money AMOUNT = Money.ofMinor(1_250);
+
+    private TransferService transfers;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        EmbeddedBank.start();
+        transfers = new TransferService();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        TransferEngine engine = transfers.getEngine();
+        System.out.println(engine.getTransferLatency() + " completed=" + engine.getCompletedCount() +
+                           " retries=" + engine.getRetryCount() + " rejected=" + engine.getRejectedCount());
+        System.out.println(LedgerEventBus.getInstance());
+    }
+
+    @Benchmark
+    public boolean transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(EmbeddedBank.ACCOUNTS);
+        int to = (from + 1 + random.nextInt(EmbeddedBank.ACCOUNTS - 1)) % EmbeddedBank.ACCOUNTS;
+        TransferEngine.TransferResult result = transfers.transfer(EmbeddedBank.PIN, EmbeddedBank.account(from),
+                EmbeddedBank.account(to), AMOUNT, "benchmark", transfers.newReference());
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("Transfer failed: " + result.getMessage());
+        }
+        return result.isSuccess();
+    }
+}